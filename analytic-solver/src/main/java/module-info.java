@@ -0,0 +1,10 @@
+/**
+ * Dependency free Solver Module for Image Registration
+ */
+open module net.raumzeitfalle.registration.analytic {
+	requires transitive net.raumzeitfalle.registration.solver;
+	exports net.raumzeitfalle.registration.analytic;
+	
+	provides net.raumzeitfalle.registration.solver.spi.SolverAdapter
+	    with net.raumzeitfalle.registration.analytic.AnalyticSolver;
+}
@@ -0,0 +1,162 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.analytic;
+
+import net.raumzeitfalle.registration.solver.Deltas;
+import net.raumzeitfalle.registration.solver.NormalEquations;
+import net.raumzeitfalle.registration.solver.References;
+import net.raumzeitfalle.registration.solver.Solution;
+import net.raumzeitfalle.registration.solver.spi.SolverAdapter;
+
+/**
+ * Dependency free solver intended for the small systems of rigid body (2 or 3 parameters) and
+ * affine (3 parameters per direction) models.
+ * <p>
+ * Equations are accumulated into {@link NormalEquations}, hence no matrix library objects are created.
+ * Systems with up to 3 columns are solved in closed form (Cramer's rule), larger systems using a Cholesky decomposition.
+ * <p>
+ * Solving normal equations squares the condition number of the design. The affine calculation translates all displacements
+ * to their center before solving, which keeps its moments well conditioned. Rigid body calculations and any other callers of
+ * {@link #solve(References, Deltas)} pass uncentered designs, so for sites far from the origin results can be less accurate
+ * than with the QR or SVD based solvers.
+ */
+public class AnalyticSolver implements SolverAdapter {
+
+	/*
+	 * The normal equations are scaled to unit diagonal, hence the determinant is at most 1.
+	 */
+	private static final double SINGULARITY_THRESHOLD = 1E-15;
+
+	@Override
+	public Solution solve(References references, Deltas deviations) {
+
+		double[][] design = references.getArray();
+		double[] deltas = deviations.getArray();
+
+		if (design.length == 0) {
+			throw new IllegalArgumentException("Matrix must have at least one row.");
+		}
+
+		NormalEquations equations = new NormalEquations(design[0].length);
+		for (int row = 0; row < design.length; row++) {
+			equations.accept(design[row], deltas[row]);
+		}
+
+		return solve(equations);
+	}
+
+	@Override
+	public Solution solve(NormalEquations equations) {
+
+		double[][] normals = equations.getReferences().getArray();
+		double[] moments = equations.getDeltas().getArray();
+
+		double[] solved;
+		switch (equations.getColumns()) {
+			case 1:  solved = solve1x1(normals, moments); break;
+			case 2:  solved = solve2x2(normals, moments); break;
+			case 3:  solved = solve3x3(normals, moments); break;
+			default: solved = solveCholesky(normals, moments); break;
+		}
+
+		return equations.toSolution(solved);
+	}
+
+	private double[] solve1x1(double[][] a, double[] b) {
+		checkDeterminant(a[0][0]);
+		return new double[] { b[0] / a[0][0] };
+	}
+
+	private double[] solve2x2(double[][] a, double[] b) {
+		double det = a[0][0] * a[1][1] - a[0][1] * a[0][1];
+		checkDeterminant(det);
+
+		double x0 = (b[0] * a[1][1] - a[0][1] * b[1]) / det;
+		double x1 = (a[0][0] * b[1] - a[0][1] * b[0]) / det;
+
+		return new double[] { x0, x1 };
+	}
+
+	private double[] solve3x3(double[][] a, double[] b) {
+		double c00 = a[1][1] * a[2][2] - a[1][2] * a[1][2];
+		double c01 = a[0][2] * a[1][2] - a[0][1] * a[2][2];
+		double c02 = a[0][1] * a[1][2] - a[0][2] * a[1][1];
+		double c11 = a[0][0] * a[2][2] - a[0][2] * a[0][2];
+		double c12 = a[0][1] * a[0][2] - a[0][0] * a[1][2];
+		double c22 = a[0][0] * a[1][1] - a[0][1] * a[0][1];
+
+		double det = a[0][0] * c00 + a[0][1] * c01 + a[0][2] * c02;
+		checkDeterminant(det);
+
+		double x0 = (c00 * b[0] + c01 * b[1] + c02 * b[2]) / det;
+		double x1 = (c01 * b[0] + c11 * b[1] + c12 * b[2]) / det;
+		double x2 = (c02 * b[0] + c12 * b[1] + c22 * b[2]) / det;
+
+		return new double[] { x0, x1, x2 };
+	}
+
+	private double[] solveCholesky(double[][] a, double[] b) {
+		int n = b.length;
+		double[][] l = new double[n][n];
+		for (int j = 0; j < n; j++) {
+			double d = a[j][j];
+			for (int k = 0; k < j; k++) {
+				d -= l[j][k] * l[j][k];
+			}
+			checkDeterminant(d);
+			l[j][j] = Math.sqrt(d);
+			for (int i = j + 1; i < n; i++) {
+				double s = a[i][j];
+				for (int k = 0; k < j; k++) {
+					s -= l[i][k] * l[j][k];
+				}
+				l[i][j] = s / l[j][j];
+			}
+		}
+
+		// Solve L*y = b
+		double[] x = new double[n];
+		for (int i = 0; i < n; i++) {
+			double s = b[i];
+			for (int k = 0; k < i; k++) {
+				s -= l[i][k] * x[k];
+			}
+			x[i] = s / l[i][i];
+		}
+
+		// Solve L'*x = y
+		for (int i = n - 1; i >= 0; i--) {
+			double s = x[i];
+			for (int k = i + 1; k < n; k++) {
+				s -= l[k][i] * x[k];
+			}
+			x[i] = s / l[i][i];
+		}
+
+		return x;
+	}
+
+	private void checkDeterminant(double det) {
+		if (!(det > SINGULARITY_THRESHOLD)) {
+			throw new ArithmeticException("Matrix is singular.");
+		}
+	}
+
+}
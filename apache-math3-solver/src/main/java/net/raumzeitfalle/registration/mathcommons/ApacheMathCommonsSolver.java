@@ -19,6 +19,10 @@
  */
 package net.raumzeitfalle.registration.mathcommons;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
 import org.apache.commons.math3.linear.*;
 
 import net.raumzeitfalle.registration.solver.*;
@@ -26,10 +30,63 @@ import net.raumzeitfalle.registration.solver.spi.SolverAdapter;
 
 public class ApacheMathCommonsSolver implements SolverAdapter {
 
+	/*
+	 * Pseudo inverses have the size of the design, hence they are only cached when a capacity is given.
+	 */
+	private final FactorizationCache<RealMatrix> pseudoInverses;
+
+	public ApacheMathCommonsSolver() {
+		this.pseudoInverses = null;
+	}
+
+	/**
+	 * Creates a solver which keeps the pseudo inverses of recently solved designs (e.g. repeated measurements of one layout).
+	 * Each cached entry holds the design and its pseudo inverse, both with the size of the design.
+	 * 
+	 * @param cacheCapacity number of pseudo inverses kept for recurring designs, must be at least 1
+	 */
+	public ApacheMathCommonsSolver(int cacheCapacity) {
+		this.pseudoInverses = new FactorizationCache<>(cacheCapacity);
+	}
+
 	public Solution solve(References references, Deltas deviations) {
 
+		RealMatrix pseudoInverse = pseudoInverseOf(references);
+
+		return solve(pseudoInverse, deviations);
+
+	}
+
+	@Override
+	public List<Solution> solveAll(References references, List<? extends Deltas> deltas) {
+
+		RealMatrix pseudoInverse = pseudoInverseOf(references);
+
+		List<Solution> solutions = new ArrayList<>(deltas.size());
+		for (Deltas deviations : deltas) {
+			solutions.add(solve(pseudoInverse, deviations));
+		}
+		return solutions;
+
+	}
+
+	/**
+	 * @return {@link FactorizationCache} holding the pseudo inverses of recently solved designs, empty unless created with a cache capacity
+	 */
+	public Optional<FactorizationCache<RealMatrix>> getFactorizationCache() {
+		return Optional.ofNullable(pseudoInverses);
+	}
+
+	private RealMatrix pseudoInverseOf(References references) {
+		if (null == pseudoInverses) {
+			return createPseudoInverse(references);
+		}
+		return pseudoInverses.computeIfAbsent(references, this::createPseudoInverse);
+	}
+
+	private RealMatrix createPseudoInverse(References references) {
+
 		RealMatrix refs = MatrixUtils.createRealMatrix(references.getArray());
-		RealMatrix deltas = MatrixUtils.createColumnRealMatrix(deviations.getArray());
 
 		QRDecomposition qr = new QRDecomposition(refs);
 
@@ -37,12 +94,32 @@ public class ApacheMathCommonsSolver implements SolverAdapter {
 
 		RealMatrix qTransposed = qr.getQ().transpose();
 
-		RealMatrix solution = rInverse.multiply(qTransposed).multiply(deltas);
+		return rInverse.multiply(qTransposed);
+
+	}
+
+	private Solution solve(RealMatrix pseudoInverse, Deltas deviations) {
+
+		RealMatrix deltas = MatrixUtils.createColumnRealMatrix(deviations.getArray());
+
+		RealMatrix solution = pseudoInverse.multiply(deltas);
 
 		return Solutions.fromArray(solution.getColumn(0));
 
 	}
 
+	@Override
+	public Solution solve(NormalEquations equations) {
+
+		RealMatrix normals = MatrixUtils.createRealMatrix(equations.getReferences().getArray());
+		RealVector moments = MatrixUtils.createRealVector(equations.getDeltas().getArray());
+
+		RealVector solution = new CholeskyDecomposition(normals).getSolver().solve(moments);
+
+		return equations.toSolution(solution.toArray());
+
+	}
+
 	private RealMatrix createInverse(QRDecomposition qr) {
 
 		RealMatrix r = qr.getR();
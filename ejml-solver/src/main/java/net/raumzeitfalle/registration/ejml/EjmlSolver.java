@@ -19,6 +19,9 @@
  */
 package net.raumzeitfalle.registration.ejml;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.ejml.simple.SimpleMatrix;
 
 import net.raumzeitfalle.registration.solver.*;
@@ -43,5 +46,47 @@ public class EjmlSolver implements SolverAdapter {
 		return Solutions.fromArray(coefficients);
 		
 	}
+	
+	@Override
+	public List<Solution> solveAll(References references, List<? extends Deltas> deltas) {
+		
+		SimpleMatrix refs = new SimpleMatrix(references.getArray());
+		SimpleMatrix columns = new SimpleMatrix(refs.numRows(), deltas.size());
+		for (int column = 0; column < deltas.size(); column++) {
+			double[] deviations = deltas.get(column).getArray();
+			for (int row = 0; row < deviations.length; row++) {
+				columns.set(row, column, deviations[row]);
+			}
+		}
+		
+		SimpleMatrix coeffs = refs.solve(columns);
+		
+		List<Solution> solutions = new ArrayList<>(deltas.size());
+		for (int column = 0; column < deltas.size(); column++) {
+			double[] coefficients = new double[coeffs.numRows()];
+			for (int row = 0; row < coefficients.length; row++) {
+				coefficients[row] = coeffs.get(row, column);
+			}
+			solutions.add(Solutions.fromArray(coefficients));
+		}
+		return solutions;
+	}
+	
+	@Override
+	public Solution solve(NormalEquations equations) {
+		
+		int cols = equations.getColumns();
+		SimpleMatrix normals = new SimpleMatrix(equations.getReferences().getArray());
+		SimpleMatrix moments = new SimpleMatrix(cols, 1, true, equations.getDeltas().getArray());
+		
+		SimpleMatrix coeffs = normals.solve(moments);
+		
+		double[] coefficients = new double[cols];
+		for (int i = 0; i < cols; i++) {
+			coefficients[i] = coeffs.get(i, 0);
+		}
+		
+		return equations.toSolution(coefficients);
+	}
 
 }
@@ -25,12 +25,18 @@ import org.junit.jupiter.api.Test;
 
 import net.raumzeitfalle.registration.solver.Solution;
 import net.raumzeitfalle.registration.solver.spi.SolverAdapter;
+import net.raumzeitfalle.registration.solver.testing.SolverAdapterTestBase;
 
-class EjmlSolverTest {
+class EjmlSolverTest extends SolverAdapterTestBase {
 
 	private final SolverAdapter classUnderTest = new EjmlSolver();
 
 	private static final double TOLERANCE = 1E-11;
+
+	@Override
+	protected SolverAdapter createSolver() {
+		return classUnderTest;
+	}
 	
 	@Test
 	void test() {
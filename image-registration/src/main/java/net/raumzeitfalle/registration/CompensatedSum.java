@@ -0,0 +1,89 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration;
+
+import java.util.function.DoubleConsumer;
+
+/**
+ * Sum of double values with compensation of rounding errors (Kahan-Babuska-Neumaier summation).
+ * <p>
+ * Each addition keeps the lost low order part in a separate compensation term, hence the error of the sum
+ * does not grow with the number of values (only finite values should be added). Partial sums are merged using {@link #combine(CompensatedSum)}.
+ * Combined with {@link ReproducibleReduction}, the result does not depend on the number of threads used.
+ *
+ */
+public final class CompensatedSum implements DoubleConsumer {
+
+	private long count = 0;
+
+	private double sum = 0.0;
+
+	private double compensation = 0.0;
+
+	@Override
+	public void accept(double value) {
+		count++;
+		add(value);
+	}
+
+	/**
+	 * Adds the values of another sum to this one. The other sum is not modified.
+	 *
+	 * @param other {@link CompensatedSum}
+	 * @return this {@link CompensatedSum}
+	 */
+	public CompensatedSum combine(CompensatedSum other) {
+		count += other.count;
+		add(other.sum);
+		compensation += other.compensation;
+		return this;
+	}
+
+	private void add(double value) {
+		double t = sum + value;
+		if (Math.abs(sum) >= Math.abs(value)) {
+			compensation += (sum - t) + value;
+		} else {
+			compensation += (value - t) + sum;
+		}
+		sum = t;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getSum() {
+		return sum + compensation;
+	}
+
+	/**
+	 * @return Mean of all values, NaN if no value has been accepted
+	 */
+	public double getAverage() {
+		return count > 0 ? getSum() / count : Double.NaN;
+	}
+
+	@Override
+	public String toString() {
+		return "CompensatedSum [count=" + count + ", sum=" + getSum() + "]";
+	}
+
+}
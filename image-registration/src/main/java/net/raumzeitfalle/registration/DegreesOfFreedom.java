@@ -19,7 +19,6 @@
  */
 package net.raumzeitfalle.registration;
 
-import java.util.*;
 import java.util.function.*;
 
 import net.raumzeitfalle.registration.displacement.Displacement;
@@ -37,21 +36,45 @@ import net.raumzeitfalle.registration.displacement.Displacement;
  */
 public class DegreesOfFreedom implements Consumer<Displacement>, UnaryOperator<Displacement>, OrientedOperation<Integer> {
 	
-	private final Set<Double> xLocations = new HashSet<>(1000);
+	private final DistinctDoubles xLocations = new DistinctDoubles();
 	
-	private final Set<Double> yLocations = new HashSet<>(1000);
+	private final DistinctDoubles yLocations = new DistinctDoubles();
 
 	@Override
 	public void accept(Displacement t) {
+		accept(t.getX(), t.getY(), t.getXd(), t.getYd());
+	}
+	
+	/**
+	 * Processes a single site given by design location (x,y) and displaced location (xd,yd) without the need of a {@link Displacement}.
+	 * 
+	 * @param x design location in X
+	 * @param y design location in Y
+	 * @param xd displaced location in X
+	 * @param yd displaced location in Y
+	 */
+	public void accept(double x, double y, double xd, double yd) {
 		
-		if (Double.isFinite(t.getXd())) 
-			xLocations.add(Double.valueOf(t.getX()));
+		if (Double.isFinite(xd)) 
+			xLocations.add(x);
 		
-		if (Double.isFinite(t.getYd())) 
-			yLocations.add(Double.valueOf(t.getY()));
+		if (Double.isFinite(yd)) 
+			yLocations.add(y);
 		
 	}
 	
+	/**
+	 * Adds all design locations processed by the other {@link DegreesOfFreedom} to this one.
+	 * 
+	 * @param other {@link DegreesOfFreedom}
+	 * @return this {@link DegreesOfFreedom} with the locations of both
+	 */
+	public DegreesOfFreedom combine(DegreesOfFreedom other) {
+		xLocations.addAll(other.xLocations);
+		yLocations.addAll(other.yLocations);
+		return this;
+	}
+	
 	public Orientation getDirection() {
 		if (xLocations.size() == 0 && yLocations.size() == 0) {
 			return Orientations.XY;
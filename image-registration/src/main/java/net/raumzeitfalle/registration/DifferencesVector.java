@@ -19,9 +19,32 @@
  */
 package net.raumzeitfalle.registration;
 
+import java.util.Collection;
+
 import net.raumzeitfalle.registration.solver.Deltas;
 
 public final class DifferencesVector implements Deltas {
+	
+	public static DifferencesVector from(Collection<? extends ModelEquation> equations) {
+		DifferencesVector deltas = new DifferencesVector(equations.size());
+		int row = 0;
+		for (ModelEquation eq : equations) {
+			deltas.set(row, eq);
+			row++;
+		}
+		return deltas;
+	}
+
+	/**
+	 * @param values delta values, the first rows are copied
+	 * @param rows number of rows
+	 * @return {@link DifferencesVector}
+	 */
+	public static DifferencesVector from(double[] values, int rows) {
+		DifferencesVector deltas = new DifferencesVector(rows);
+		System.arraycopy(values, 0, deltas.deltas, 0, rows);
+		return deltas;
+	}
 
 	private final double[] deltas;
 	
@@ -0,0 +1,131 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration;
+
+/**
+ * Counts distinct double values without boxing (open addressing hash set of primitive values).
+ * <p>
+ * Values are distinguished the same way as by {@link Double#equals(Object)}, i.e. all NaN values are equal
+ * whereas 0.0 and -0.0 are different.
+ *
+ */
+final class DistinctDoubles {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	/*
+	 * The bits of 0.0 mark empty slots, hence 0.0 is tracked separately.
+	 */
+	private static final long EMPTY = 0L;
+
+	private long[] slots = new long[INITIAL_CAPACITY];
+
+	private int mask = INITIAL_CAPACITY - 1;
+
+	private int occupied = 0;
+
+	private boolean containsZero = false;
+
+	/**
+	 * @param value double value to add
+	 * @return true when the value has not been added before
+	 */
+	boolean add(double value) {
+		long bits = Double.doubleToLongBits(value);
+		if (EMPTY == bits) {
+			if (containsZero) {
+				return false;
+			}
+			containsZero = true;
+			return true;
+		}
+
+		int slot = slotOf(bits);
+		while (EMPTY != slots[slot]) {
+			if (bits == slots[slot]) {
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+		slots[slot] = bits;
+		occupied++;
+		if (occupied << 1 > slots.length) {
+			grow();
+		}
+		return true;
+	}
+
+	/**
+	 * Adds all values of the other set.
+	 * 
+	 * @param other {@link DistinctDoubles}
+	 */
+	void addAll(DistinctDoubles other) {
+		if (other.containsZero) {
+			add(0.0);
+		}
+		for (long bits : other.slots) {
+			if (EMPTY != bits) {
+				add(Double.longBitsToDouble(bits));
+			}
+		}
+	}
+
+	/**
+	 * @return number of distinct values
+	 */
+	int size() {
+		return containsZero ? occupied + 1 : occupied;
+	}
+
+	boolean isEmpty() {
+		return 0 == size();
+	}
+
+	/*
+	 * Design locations are often multiples of a pitch, so that the lower bits are all zero.
+	 * All bits are mixed (finalizer of MurmurHash3) before selecting the slot.
+	 */
+	private int slotOf(long bits) {
+		long hash = bits;
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return (int) hash & mask;
+	}
+
+	private void grow() {
+		long[] previous = slots;
+		slots = new long[previous.length << 1];
+		mask = slots.length - 1;
+		for (long bits : previous) {
+			if (EMPTY != bits) {
+				int slot = slotOf(bits);
+				while (EMPTY != slots[slot]) {
+					slot = (slot + 1) & mask;
+				}
+				slots[slot] = bits;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,230 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+import net.raumzeitfalle.registration.alignment.NonUniformSimilarityTransform;
+import net.raumzeitfalle.registration.alignment.RigidTransform;
+import net.raumzeitfalle.registration.alignment.SimilarityTransform;
+import net.raumzeitfalle.registration.alignment.Translation;
+import net.raumzeitfalle.registration.displacement.Displacement;
+import net.raumzeitfalle.registration.distortions.SimpleAffineTransform;
+
+/**
+ * Chain of transforms which is applied in one pass over the data.
+ * <p>
+ * Translations, rigid, similarity and affine transforms all subtract a first order function of the design location (x,y)
+ * from the displaced location (x<sub>d</sub>, y<sub>d</sub>). Hence a chain of those transforms is fused into a single 2&times;3 affine operation:
+ * <pre>
+ * x<sub>d</sub>' = x<sub>d</sub> - t<sub>x</sub> - s<sub>x</sub> * x + o<sub>x</sub> * y
+ * y<sub>d</sub>' = y<sub>d</sub> - t<sub>y</sub> - s<sub>y</sub> * y - o<sub>y</sub> * x
+ * </pre>
+ * Transforms which can be skipped (see {@link Transform#skip()}) are removed from the chain, a chain of skipped transforms is the identity.
+ * Sites with non-finite design locations as well as chains containing other transforms are processed stage by stage,
+ * so that the results are the same as when applying each transform separately.
+ *
+ */
+public final class FusedTransform implements Transform {
+
+	/**
+	 * Creates a {@link FusedTransform} which applies first one and then the other {@link Transform}.
+	 *
+	 * @param first {@link Transform} applied first
+	 * @param second {@link Transform} applied second
+	 * @return {@link FusedTransform}
+	 */
+	public static FusedTransform of(Transform first, Transform second) {
+		Objects.requireNonNull(first, "first transform must not be null");
+		Objects.requireNonNull(second, "second transform must not be null");
+
+		List<Transform> stages = new ArrayList<>();
+		addStages(first, stages);
+		addStages(second, stages);
+		return new FusedTransform(stages);
+	}
+
+	private static void addStages(Transform transform, List<Transform> stages) {
+		if (transform instanceof FusedTransform) {
+			stages.addAll(((FusedTransform) transform).stages);
+		} else if (!transform.skip()) {
+			stages.add(transform);
+		}
+	}
+
+	private final List<Transform> stages;
+
+	private final boolean fused;
+
+	private double translationX = 0.0;
+
+	private double translationY = 0.0;
+
+	private double scaleX = 0.0;
+
+	private double scaleY = 0.0;
+
+	private double orthoX = 0.0;
+
+	private double orthoY = 0.0;
+
+	private FusedTransform(List<Transform> stages) {
+		this.stages = Collections.unmodifiableList(stages);
+		boolean fusible = true;
+		for (Transform stage : stages) {
+			fusible &= add(stage);
+		}
+		this.fused = fusible;
+	}
+
+	private boolean add(Transform stage) {
+		if (stage instanceof SimpleAffineTransform) {
+			SimpleAffineTransform affine = (SimpleAffineTransform) stage;
+			return add(affine.getTranslationX(), affine.getTranslationY(),
+					   affine.getScaleX(), affine.getScaleY(), affine.getOrthoX(), affine.getOrthoY());
+		}
+		if (stage instanceof NonUniformSimilarityTransform) {
+			NonUniformSimilarityTransform similarity = (NonUniformSimilarityTransform) stage;
+			return add(similarity.getTranslationX(), similarity.getTranslationY(),
+					   similarity.getScaleX(), similarity.getScaleY(), similarity.getRotation(), similarity.getRotation());
+		}
+		if (stage instanceof SimilarityTransform) {
+			SimilarityTransform similarity = (SimilarityTransform) stage;
+			return add(similarity.getTranslationX(), similarity.getTranslationY(),
+					   similarity.getMagnification(), similarity.getMagnification(), similarity.getRotation(), similarity.getRotation());
+		}
+		if (stage instanceof RigidTransform) {
+			RigidTransform rigid = (RigidTransform) stage;
+			return add(rigid.getTranslationX(), rigid.getTranslationY(), 0.0, 0.0, rigid.getRotation(), rigid.getRotation());
+		}
+		if (stage instanceof Translation) {
+			Translation translation = (Translation) stage;
+			return add(translation.getTranslationX(), translation.getTranslationY(), 0.0, 0.0, 0.0, 0.0);
+		}
+		return false;
+	}
+
+	private boolean add(double tx, double ty, double sx, double sy, double ox, double oy) {
+		this.translationX += tx;
+		this.translationY += ty;
+		this.scaleX += sx;
+		this.scaleY += sy;
+		this.orthoX += ox;
+		this.orthoY += oy;
+		return true;
+	}
+
+	/**
+	 * @return true when all stages are fused into a single affine operation
+	 */
+	public boolean isFused() {
+		return fused;
+	}
+
+	/**
+	 * @return Unmodifiable {@link List} of all transforms in order of application, skipped transforms are not included.
+	 */
+	public List<Transform> getStages() {
+		return stages;
+	}
+
+	public double getTranslationX() {
+		return translationX;
+	}
+
+	public double getTranslationY() {
+		return translationY;
+	}
+
+	public double getScaleX() {
+		return scaleX;
+	}
+
+	public double getScaleY() {
+		return scaleY;
+	}
+
+	public double getOrthoX() {
+		return orthoX;
+	}
+
+	public double getOrthoY() {
+		return orthoY;
+	}
+
+	@Override
+	public boolean skip() {
+		return stages.isEmpty();
+	}
+
+	@Override
+	public Displacement apply(Displacement source) {
+		if (fused && Double.isFinite(source.getX()) && Double.isFinite(source.getY())) {
+			return Displacement.from(source,
+					source.getXd() - translationX - source.getX() * scaleX + source.getY() * orthoX,
+					source.getYd() - translationY - source.getY() * scaleY - source.getX() * orthoY);
+		}
+		Displacement result = source;
+		for (Transform stage : stages) {
+			result = stage.apply(result);
+		}
+		return result;
+	}
+
+	@Override
+	public void applyAll(double[] x, double[] y, double[] xd, double[] yd, double[] xdOut, double[] ydOut, int from, int to) {
+		if (!fused) {
+			double[] xdIn = xd;
+			double[] ydIn = yd;
+			for (Transform stage : stages) {
+				stage.applyAll(x, y, xdIn, ydIn, xdOut, ydOut, from, to);
+				xdIn = xdOut;
+				ydIn = ydOut;
+			}
+			return;
+		}
+		for (int i = from; i < to; i++) {
+			if (Double.isFinite(x[i]) && Double.isFinite(y[i])) {
+				xdOut[i] = xd[i] - translationX - x[i] * scaleX + y[i] * orthoX;
+				ydOut[i] = yd[i] - translationY - y[i] * scaleY - x[i] * orthoY;
+			} else {
+				Displacement corrected = apply(Displacement.at(i, i, x[i], y[i], xd[i], yd[i]));
+				xdOut[i] = corrected.getXd();
+				ydOut[i] = corrected.getYd();
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "FusedTransform [" +
+				"tx=" + format(translationX) + " um, sx=" + format(scaleX * 1E6) + " ppm, ox=" + format(orthoX * 1E6) + " urad" +
+				System.lineSeparator() + "                ty=" + format(translationY) + " um, sy=" + format(scaleY * 1E6) + " ppm, oy=" +
+				format(orthoY * 1E6) + " urad, stages=" + stages.size() + ", fused=" + fused + "]";
+	}
+
+	private String format(double value) {
+		return String.format(Locale.US, "%10.7f", value);
+	}
+}
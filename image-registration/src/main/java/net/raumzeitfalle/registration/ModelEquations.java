@@ -0,0 +1,62 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration;
+
+import java.util.Collection;
+import java.util.stream.Stream;
+
+import net.raumzeitfalle.registration.displacement.Displacement;
+
+/**
+ * Shared setup for creating model equations from a collection of displacements.
+ * <p>
+ * The rigid and affine calculations collect their equations together with the {@link DegreesOfFreedom} into column oriented
+ * tables in one pass over a stream created by {@link #streamOf(Collection, int)}. The tables merge partial results in encounter
+ * order, hence the stream may be parallel.
+ *
+ */
+public final class ModelEquations {
+
+	/**
+	 * Default number of displacements from which on the parallel modes (e.g. {@code RigidTransformCalculation.parallel()}) use parallel streams.
+	 * Without a parallel mode being requested, all collections are processed sequentially.
+	 */
+	static final int PARALLEL_THRESHOLD = 100_000;
+
+	private ModelEquations() {
+		/* static methods only */
+	}
+
+	/**
+	 * Creates a stream of the given displacements, which is parallel for collections with at least the given number of displacements.
+	 * With {@link Integer#MAX_VALUE} as threshold, the stream is always sequential.
+	 *
+	 * @param displacements {@link Collection} of {@link Displacement}
+	 * @param parallelThreshold Number of displacements from which on a parallel stream is created
+	 * @return {@link Stream} of {@link Displacement}
+	 */
+	public static Stream<Displacement> streamOf(Collection<Displacement> displacements, int parallelThreshold) {
+		if (displacements.size() >= parallelThreshold) {
+			return displacements.parallelStream();
+		}
+		return displacements.stream();
+	}
+
+}
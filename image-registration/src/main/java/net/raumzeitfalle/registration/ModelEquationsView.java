@@ -0,0 +1,104 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import net.raumzeitfalle.registration.displacement.Displacement;
+
+/**
+ * Model equations of a collection of displacements, which are created again each time the view is iterated
+ * instead of being kept in memory. Intended for models accumulating normal equations, where each equation is
+ * only visited once, so that memory does not grow with the number of sites.
+ * <p>
+ * {@link DegreesOfFreedom} and size are determined once when the view is created. Hence the underlying
+ * collection must not be modified while the view is used and the selector must always give the same result
+ * for a {@link Displacement}, as it is evaluated on each iteration.
+ *
+ * @param <E> Type of model equation
+ */
+public final class ModelEquationsView<E extends ModelEquation> extends AbstractCollection<E> {
+
+	/**
+	 * Creates a view of the model equations for all displacements matching the selector.
+	 *
+	 * @param <E> Type of model equation
+	 * @param displacements {@link Collection} of {@link Displacement}
+	 * @param selector {@link Predicate} which describes which {@link Displacement} elements shall be used
+	 * @param equations {@link Function} creating the model equations for a {@link Displacement}, e.g. {@code RigidModelEquation::from}
+	 * @return {@link ModelEquationsView}
+	 */
+	public static <E extends ModelEquation> ModelEquationsView<E> of(Collection<Displacement> displacements,
+			Predicate<Displacement> selector, Function<Displacement, Stream<E>> equations) {
+		return new ModelEquationsView<>(Objects.requireNonNull(displacements, "displacements must not be null"),
+										Objects.requireNonNull(selector, "selector must not be null"),
+										Objects.requireNonNull(equations, "equations function must not be null"));
+	}
+
+	private final Collection<Displacement> displacements;
+
+	private final Predicate<Displacement> selector;
+
+	private final Function<Displacement, Stream<E>> equations;
+
+	private final DegreesOfFreedom degreesOfFreedom = new DegreesOfFreedom();
+
+	private final int size;
+
+	private ModelEquationsView(Collection<Displacement> displacements, Predicate<Displacement> selector,
+			Function<Displacement, Stream<E>> equations) {
+		this.displacements = displacements;
+		this.selector = selector;
+		this.equations = equations;
+
+		long count = 0;
+		for (Displacement d : displacements) {
+			if (selector.test(d)) {
+				degreesOfFreedom.accept(d);
+				count += equations.apply(d).count();
+			}
+		}
+		this.size = Math.toIntExact(count);
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return displacements.stream()
+							.filter(selector)
+							.flatMap(equations)
+							.iterator();
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	public DegreesOfFreedom getDegreesOfFreedom() {
+		return degreesOfFreedom;
+	}
+
+}
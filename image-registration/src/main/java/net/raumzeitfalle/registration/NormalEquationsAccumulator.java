@@ -0,0 +1,132 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import net.raumzeitfalle.registration.solver.NormalEquations;
+
+/**
+ * Accumulates the rows of a least squares problem into {@link NormalEquations}, in parallel for large numbers of rows.
+ * <p>
+ * Rows are split recursively into halves which are processed as tasks of the common {@link ForkJoinPool}. Each task
+ * accumulates its own partial {@link NormalEquations}, which are then combined pairwise. Splitting only depends on
+ * the number of rows and the threshold, hence the summation order is the same for each run.
+ *
+ */
+public final class NormalEquationsAccumulator {
+
+	/**
+	 * Default number of rows from which on rows are accumulated in parallel.
+	 */
+	public static final int DEFAULT_THRESHOLD = ModelEquations.PARALLEL_THRESHOLD;
+
+	/*
+	 * Tasks with less rows are not split any further.
+	 */
+	static final int MIN_ROWS_PER_TASK = 1024;
+
+	/**
+	 * Writes the coefficients of one row of the design matrix.
+	 */
+	@FunctionalInterface
+	public interface RowWriter {
+		/**
+		 * @param row index of the row
+		 * @param coefficients target for the coefficients of the row, length equals the number of columns
+		 * @return delta value (right hand side) of the row
+		 */
+		double write(int row, double[] coefficients);
+	}
+
+	private final int parallelThreshold;
+
+	/**
+	 * @param parallelThreshold Number of rows from which on rows are accumulated in parallel (must be positive).
+	 */
+	public NormalEquationsAccumulator(int parallelThreshold) {
+		if (parallelThreshold < 1) {
+			throw new IllegalArgumentException("Parallel threshold must be positive.");
+		}
+		this.parallelThreshold = parallelThreshold;
+	}
+
+	public int getParallelThreshold() {
+		return parallelThreshold;
+	}
+
+	/**
+	 * @param rows Number of rows
+	 * @param cols Number of columns
+	 * @param rowWriter {@link RowWriter} providing the rows, must be safe to be called concurrently for different rows
+	 * @return {@link NormalEquations} of all rows
+	 */
+	public NormalEquations accumulate(int rows, int cols, RowWriter rowWriter) {
+		if (rows < parallelThreshold) {
+			return accumulate(0, rows, cols, rowWriter);
+		}
+		return ForkJoinPool.commonPool().invoke(new AccumulationTask(0, rows, cols, rowWriter));
+	}
+
+	private static NormalEquations accumulate(int from, int to, int cols, RowWriter rowWriter) {
+		NormalEquations normalEquations = new NormalEquations(cols);
+		double[] coefficients = new double[cols];
+		for (int row = from; row < to; row++) {
+			double delta = rowWriter.write(row, coefficients);
+			normalEquations.accept(coefficients, delta);
+		}
+		return normalEquations;
+	}
+
+	private final class AccumulationTask extends RecursiveTask<NormalEquations> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+
+		private final int to;
+
+		private final int cols;
+
+		private final transient RowWriter rowWriter;
+
+		private AccumulationTask(int from, int to, int cols, RowWriter rowWriter) {
+			this.from = from;
+			this.to = to;
+			this.cols = cols;
+			this.rowWriter = rowWriter;
+		}
+
+		@Override
+		protected NormalEquations compute() {
+			int rows = to - from;
+			if (rows < parallelThreshold || rows < 2 * MIN_ROWS_PER_TASK) {
+				return accumulate(from, to, cols, rowWriter);
+			}
+			int middle = from + rows / 2;
+			AccumulationTask upper = new AccumulationTask(middle, to, cols, rowWriter);
+			upper.fork();
+			NormalEquations lower = new AccumulationTask(from, middle, cols, rowWriter).compute();
+			return lower.combine(upper.join());
+		}
+	}
+
+}
@@ -0,0 +1,361 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+import net.raumzeitfalle.registration.alignment.RigidTransform;
+import net.raumzeitfalle.registration.alignment.RigidTransformCalculation;
+import net.raumzeitfalle.registration.displacement.Displacement;
+import net.raumzeitfalle.registration.distortions.AffineTransform;
+import net.raumzeitfalle.registration.distortions.AffineTransformCalculation;
+
+/**
+ * Sufficient statistics for rigid and affine registration of a collection of displacements.
+ * <p>
+ * Rigid and affine least squares fits only depend on means and second order (co-)moments of design locations and deviations
+ * for each direction. These are updated per {@link Displacement} (Welford's algorithm), so the displacements do not need to be kept in memory.
+ * Moments of partial data, e.g. per chunk, per file or per worker, are merged using {@link #combine(RegistrationMoments)}.
+ * <p>
+ * Transforms are calculated in closed form using {@link RigidTransformCalculation#apply(RegistrationMoments)}
+ * and {@link AffineTransformCalculation#apply(RegistrationMoments)}.
+ *
+ */
+public final class RegistrationMoments implements Consumer<Displacement> {
+
+	/**
+	 * Collects the moments of all selected displacements.
+	 *
+	 * @param displacements {@link Collection} of {@link Displacement}
+	 * @param selector {@link Predicate} which describes which {@link Displacement} elements shall be used
+	 * @return {@link RegistrationMoments}
+	 */
+	public static RegistrationMoments of(Collection<Displacement> displacements, Predicate<Displacement> selector) {
+		return of(displacements, selector, false);
+	}
+
+	/**
+	 * Collects the moments of all selected displacements. In reproducible mode, blocks of the collection are processed in parallel
+	 * using a {@link ReproducibleReduction}, hence the result does not depend on the number of threads used. It may differ in the last bits
+	 * from {@link #of(Collection, Predicate)}.
+	 *
+	 * @param displacements {@link Collection} of {@link Displacement}
+	 * @param selector {@link Predicate} which describes which {@link Displacement} elements shall be used
+	 * @param reproducible true for the reproducible reduction, false for the same result as {@link #of(Collection, Predicate)}
+	 * @return {@link RegistrationMoments}
+	 */
+	public static RegistrationMoments of(Collection<Displacement> displacements, Predicate<Displacement> selector, boolean reproducible) {
+		Objects.requireNonNull(selector, "selector must not be null");
+		if (reproducible) {
+			return ReproducibleReduction.collect(displacements, Collectors.filtering(selector, collector()), true);
+		}
+		return displacements.stream()
+							.filter(selector)
+							.collect(collector());
+	}
+
+	/**
+	 * Creates a {@link Collector} for {@link RegistrationMoments}, partial results are merged in encounter order.
+	 *
+	 * @return {@link Collector} for {@link RegistrationMoments}
+	 */
+	public static Collector<Displacement, RegistrationMoments, RegistrationMoments> collector() {
+		return Collector.of(RegistrationMoments::new,
+							RegistrationMoments::accept,
+							RegistrationMoments::combine,
+							Collector.Characteristics.IDENTITY_FINISH);
+	}
+
+	private final Moments x = new Moments();
+
+	private final Moments y = new Moments();
+
+	private long designCountX = 0;
+
+	private long designCountY = 0;
+
+	private double designMeanX = 0.0;
+
+	private double designMeanY = 0.0;
+
+	@Override
+	public void accept(Displacement d) {
+		if (Double.isFinite(d.getX())) {
+			designCountX++;
+			designMeanX += (d.getX() - designMeanX) / designCountX;
+		}
+
+		if (Double.isFinite(d.getY())) {
+			designCountY++;
+			designMeanY += (d.getY() - designMeanY) / designCountY;
+		}
+
+		if (Double.isFinite(d.getXd())) {
+			x.accept(d.getX(), d.getY(), d.dX());
+		}
+
+		if (Double.isFinite(d.getYd())) {
+			y.accept(d.getX(), d.getY(), d.dY());
+		}
+	}
+
+	/**
+	 * Adds the moments of the other {@link RegistrationMoments} to this one (Chan's parallel update).
+	 *
+	 * @param other {@link RegistrationMoments}
+	 * @return this {@link RegistrationMoments} with the moments of both
+	 */
+	public RegistrationMoments combine(RegistrationMoments other) {
+		long countX = designCountX + other.designCountX;
+		if (countX > 0) {
+			designMeanX += (other.designMeanX - designMeanX) * other.designCountX / countX;
+		}
+		designCountX = countX;
+
+		long countY = designCountY + other.designCountY;
+		if (countY > 0) {
+			designMeanY += (other.designMeanY - designMeanY) * other.designCountY / countY;
+		}
+		designCountY = countY;
+
+		x.combine(other.x);
+		y.combine(other.y);
+		return this;
+	}
+
+	/**
+	 * @return Moments of all displacements with finite X value, deltas are deviations in X (x<sub>d</sub> - x)
+	 */
+	public Moments getX() {
+		return x;
+	}
+
+	/**
+	 * @return Moments of all displacements with finite Y value, deltas are deviations in Y (y<sub>d</sub> - y)
+	 */
+	public Moments getY() {
+		return y;
+	}
+
+	/**
+	 * @return Mean of all finite design locations in X, NaN if there are none (same as translation to center used for affine transforms)
+	 */
+	public double getDesignMeanX() {
+		return designCountX > 0 ? designMeanX : Double.NaN;
+	}
+
+	/**
+	 * @return Mean of all finite design locations in Y, NaN if there are none (same as translation to center used for affine transforms)
+	 */
+	public double getDesignMeanY() {
+		return designCountY > 0 ? designMeanY : Double.NaN;
+	}
+
+	/**
+	 * @return {@link Orientation} of the collected displacements, same as {@link DegreesOfFreedom#getDirection()}
+	 */
+	public Orientation getDirection() {
+		return new Orientations().determine((int) Math.min(x.count, 1), (int) Math.min(y.count, 1));
+	}
+
+	/**
+	 * Determines the spatial distribution from the spread of design locations, a direction has a spread
+	 * when its design locations are not all identical.
+	 *
+	 * @return {@link Distribution} of the collected displacements, same as {@link DegreesOfFreedom#getDistribution()}
+	 */
+	public Distribution getDistribution() {
+		if (x.count == 0 && y.count == 0) {
+			throw new IllegalArgumentException("Could not determine data distribution as no valid displacements have been processed yet.");
+		}
+
+		int xLocations = x.count == 0 ? 0 : (x.xx > 0.0 ? 2 : 1);
+		int yLocations = y.count == 0 ? 0 : (y.yy > 0.0 ? 2 : 1);
+
+		if (xLocations > 1 && yLocations > 1)
+			return Distribution.AREA;
+
+		if (xLocations == 1 && yLocations > 1)
+			return Distribution.VERTICAL;
+
+		if (yLocations == 1 && xLocations > 1)
+			return Distribution.HORIZONTAL;
+
+		return Distribution.SINGULARITY;
+	}
+
+	/**
+	 * @return {@link RigidTransform} calculated from these moments
+	 */
+	public RigidTransform toRigidTransform() {
+		return new RigidTransformCalculation().apply(this);
+	}
+
+	/**
+	 * @return {@link AffineTransform} calculated from these moments
+	 */
+	public AffineTransform toAffineTransform() {
+		return new AffineTransformCalculation().apply(this);
+	}
+
+	@Override
+	public String toString() {
+		return "RegistrationMoments [x=" + x + ", y=" + y + "]";
+	}
+
+	/**
+	 * Count, means and co-moments (sums of products of deviations from the means) of design location (x,y) and delta for one direction.
+	 */
+	public static final class Moments {
+
+		private long count = 0;
+
+		private double meanX = 0.0;
+
+		private double meanY = 0.0;
+
+		private double meanDelta = 0.0;
+
+		private double xx = 0.0;
+
+		private double xy = 0.0;
+
+		private double yy = 0.0;
+
+		private double xDelta = 0.0;
+
+		private double yDelta = 0.0;
+
+		private double deltaDelta = 0.0;
+
+		private Moments() {
+			// created by RegistrationMoments only
+		}
+
+		private void accept(double x, double y, double delta) {
+			count++;
+			double dx = x - meanX;
+			double dy = y - meanY;
+			double dd = delta - meanDelta;
+			meanX += dx / count;
+			meanY += dy / count;
+			meanDelta += dd / count;
+
+			xx += dx * (x - meanX);
+			xy += dx * (y - meanY);
+			yy += dy * (y - meanY);
+			xDelta += dx * (delta - meanDelta);
+			yDelta += dy * (delta - meanDelta);
+			deltaDelta += dd * (delta - meanDelta);
+		}
+
+		private void combine(Moments other) {
+			if (other.count == 0) {
+				return;
+			}
+			long combined = count + other.count;
+			double dx = other.meanX - meanX;
+			double dy = other.meanY - meanY;
+			double dd = other.meanDelta - meanDelta;
+			double weight = (double) count * other.count / combined;
+
+			xx += other.xx + dx * dx * weight;
+			xy += other.xy + dx * dy * weight;
+			yy += other.yy + dy * dy * weight;
+			xDelta += other.xDelta + dx * dd * weight;
+			yDelta += other.yDelta + dy * dd * weight;
+			deltaDelta += other.deltaDelta + dd * dd * weight;
+
+			double share = (double) other.count / combined;
+			meanX += dx * share;
+			meanY += dy * share;
+			meanDelta += dd * share;
+			count = combined;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public double getMeanX() {
+			return meanX;
+		}
+
+		public double getMeanY() {
+			return meanY;
+		}
+
+		public double getMeanDelta() {
+			return meanDelta;
+		}
+
+		/**
+		 * @return &Sigma;(x - x&#772;)&sup2;
+		 */
+		public double getXX() {
+			return xx;
+		}
+
+		/**
+		 * @return &Sigma;(x - x&#772;)(y - y&#772;)
+		 */
+		public double getXY() {
+			return xy;
+		}
+
+		/**
+		 * @return &Sigma;(y - y&#772;)&sup2;
+		 */
+		public double getYY() {
+			return yy;
+		}
+
+		/**
+		 * @return &Sigma;(x - x&#772;)(delta - delta&#772;)
+		 */
+		public double getXDelta() {
+			return xDelta;
+		}
+
+		/**
+		 * @return &Sigma;(y - y&#772;)(delta - delta&#772;)
+		 */
+		public double getYDelta() {
+			return yDelta;
+		}
+
+		/**
+		 * @return &Sigma;(delta - delta&#772;)&sup2;
+		 */
+		public double getDeltaDelta() {
+			return deltaDelta;
+		}
+
+		@Override
+		public String toString() {
+			return "Moments [count=" + count + ", meanX=" + meanX + ", meanY=" + meanY + ", meanDelta=" + meanDelta + "]";
+		}
+	}
+}
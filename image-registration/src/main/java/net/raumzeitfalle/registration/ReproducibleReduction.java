@@ -0,0 +1,200 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * Reduction of indexed data whose result is bit-identical for sequential and parallel execution, independent of the number of threads.
+ * <p>
+ * Parallel streams split their data depending on the parallelism of the {@link ForkJoinPool}, so that floating point results
+ * of a reduction may differ in the last bits between machines. Here the data is always split into blocks of {@link #BLOCK_SIZE} elements,
+ * each block is reduced in index order and the block results are combined pairwise along a fixed tree, which only depends on the number of
+ * elements. In parallel mode, blocks are processed by tasks of the common {@link ForkJoinPool}, without changing the order of any operation.
+ *
+ */
+public final class ReproducibleReduction {
+
+	/**
+	 * Number of consecutive elements reduced sequentially into one result container.
+	 */
+	public static final int BLOCK_SIZE = 4096;
+
+	private ReproducibleReduction() {
+		/* static methods only */
+	}
+
+	/**
+	 * Collects all items sequentially using the given {@link Collector}, iterating the collection once without copying it.
+	 * The result is the same as for {@link #collect(Collection, Collector, boolean)} in parallel mode.
+	 *
+	 * @param <T> Type of item
+	 * @param <A> Type of result container
+	 * @param <R> Type of result
+	 * @param items {@link Collection} of items
+	 * @param collector {@link Collector}, whose combiner merges the right container into the left one (or returns the merged container)
+	 * @return result of the reduction
+	 */
+	public static <T, A, R> R collect(Collection<? extends T> items, Collector<? super T, A, R> collector) {
+		return collect(items, collector, false);
+	}
+
+	/**
+	 * Collects all items using the given {@link Collector}, the characteristics of the collector are not considered.
+	 * In parallel mode, collections which are not random access lists are copied into a list first.
+	 *
+	 * @param <T> Type of item
+	 * @param <A> Type of result container
+	 * @param <R> Type of result
+	 * @param items {@link Collection} of items
+	 * @param collector {@link Collector}, whose combiner merges the right container into the left one (or returns the merged container)
+	 * @param parallel true when blocks shall be processed in parallel, the result is the same in both cases
+	 * @return result of the reduction
+	 */
+	public static <T, A, R> R collect(Collection<? extends T> items, Collector<? super T, A, R> collector, boolean parallel) {
+		BiConsumer<A, ? super T> accumulator = collector.accumulator();
+		if (!parallel) {
+			return collector.finisher().apply(iterate(items, collector.supplier(), accumulator, collector.combiner()));
+		}
+		List<? extends T> list = (items instanceof List && items instanceof RandomAccess) ? (List<? extends T>) items : new ArrayList<>(items);
+		A container = reduce(list.size(),
+							 collector.supplier(),
+							 (partial, index) -> accumulator.accept(partial, list.get(index)),
+							 collector.combiner(),
+							 true);
+		return collector.finisher().apply(container);
+	}
+
+	/*
+	 * Fills one container per block while iterating, only the block results are kept
+	 * until these are combined along the same tree as used by BlockTask.
+	 */
+	private static <T, A> A iterate(Iterable<? extends T> items, Supplier<A> supplier, BiConsumer<A, ? super T> accumulator, BinaryOperator<A> combiner) {
+		List<A> blocks = new ArrayList<>();
+		A container = supplier.get();
+		int count = 0;
+		for (T item : items) {
+			if (BLOCK_SIZE == count) {
+				blocks.add(container);
+				container = supplier.get();
+				count = 0;
+			}
+			accumulator.accept(container, item);
+			count++;
+		}
+		blocks.add(container);
+		return combine(blocks, 0, blocks.size(), combiner);
+	}
+
+	private static <A> A combine(List<A> blocks, int fromBlock, int toBlock, BinaryOperator<A> combiner) {
+		if (toBlock - fromBlock == 1) {
+			return blocks.get(fromBlock);
+		}
+		int middle = fromBlock + (toBlock - fromBlock) / 2;
+		A left = combine(blocks, fromBlock, middle, combiner);
+		return combiner.apply(left, combine(blocks, middle, toBlock, combiner));
+	}
+
+	/**
+	 * Reduces the elements 0 (inclusive) to size (exclusive).
+	 *
+	 * @param <A> Type of result container
+	 * @param size Number of elements
+	 * @param supplier creates an empty result container
+	 * @param accumulator adds the element with the given index to a result container
+	 * @param combiner merges the right container into the left one (or returns the merged container)
+	 * @param parallel true when blocks shall be processed in parallel, the result is the same in both cases
+	 * @return reduced result container, an empty container for size 0
+	 */
+	public static <A> A reduce(int size, Supplier<A> supplier, ObjIntConsumer<A> accumulator, BinaryOperator<A> combiner, boolean parallel) {
+		if (size < 0) {
+			throw new IllegalArgumentException("Size must not be negative.");
+		}
+		int blocks = Math.max(1, (size + BLOCK_SIZE - 1) / BLOCK_SIZE);
+		BlockTask<A> task = new BlockTask<>(0, blocks, size, supplier, accumulator, combiner, parallel);
+		if (parallel && blocks > 1) {
+			return ForkJoinPool.commonPool().invoke(task);
+		}
+		return task.compute();
+	}
+
+	private static final class BlockTask<A> extends RecursiveTask<A> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int fromBlock;
+
+		private final int toBlock;
+
+		private final int size;
+
+		private final transient Supplier<A> supplier;
+
+		private final transient ObjIntConsumer<A> accumulator;
+
+		private final transient BinaryOperator<A> combiner;
+
+		private final boolean parallel;
+
+		private BlockTask(int fromBlock, int toBlock, int size, Supplier<A> supplier,
+				ObjIntConsumer<A> accumulator, BinaryOperator<A> combiner, boolean parallel) {
+			this.fromBlock = fromBlock;
+			this.toBlock = toBlock;
+			this.size = size;
+			this.supplier = supplier;
+			this.accumulator = accumulator;
+			this.combiner = combiner;
+			this.parallel = parallel;
+		}
+
+		@Override
+		protected A compute() {
+			if (toBlock - fromBlock == 1) {
+				A container = supplier.get();
+				int end = (int) Math.min(size, (fromBlock + 1L) * BLOCK_SIZE);
+				for (int index = fromBlock * BLOCK_SIZE; index < end; index++) {
+					accumulator.accept(container, index);
+				}
+				return container;
+			}
+
+			int middle = fromBlock + (toBlock - fromBlock) / 2;
+			BlockTask<A> lower = new BlockTask<>(fromBlock, middle, size, supplier, accumulator, combiner, parallel);
+			BlockTask<A> upper = new BlockTask<>(middle, toBlock, size, supplier, accumulator, combiner, parallel);
+			if (parallel) {
+				upper.fork();
+				A left = lower.compute();
+				return combiner.apply(left, upper.join());
+			}
+			return combiner.apply(lower.compute(), upper.compute());
+		}
+	}
+
+}
@@ -26,4 +26,18 @@ public interface SkipTransform extends Transform {
 		return true;
 	}
 	
+	/**
+	 * A {@link SkipTransform} does not modify any displacement, hence the displaced locations are only copied
+	 * in case {@code xdOut} and {@code ydOut} are not the arrays {@code xd} and {@code yd}.
+	 */
+	@Override
+	default void applyAll(double[] x, double[] y, double[] xd, double[] yd, double[] xdOut, double[] ydOut, int from, int to) {
+		if (xd != xdOut) {
+			System.arraycopy(xd, from, xdOut, from, to - from);
+		}
+		if (yd != ydOut) {
+			System.arraycopy(yd, from, ydOut, from, to - from);
+		}
+	}
+	
 }
@@ -44,4 +44,57 @@ public interface Transform extends SkippableOperation {
 		return false;
 	}
 	
+	/**
+	 * Creates a {@link FusedTransform} which applies this transform and then the given one in one pass.
+	 * Translations, rigid, similarity and affine transforms are fused into a single affine operation.
+	 * 
+	 * @param next {@link Transform} to apply after this one
+	 * @return {@link FusedTransform}
+	 */
+	default FusedTransform followedBy(Transform next) {
+		return FusedTransform.of(this, next);
+	}
+	
+	/**
+	 * Applies this transform to the displaced locations (x<sub>d</sub>, y<sub>d</sub>) of many sites given as primitive arrays.
+	 * Results are written into {@code xdOut} and {@code ydOut}, which can be the arrays {@code xd} and {@code yd} themselves to correct in place.
+	 * The design locations (x, y) are not modified. All arrays must provide at least {@code length} elements.
+	 * 
+	 * @param x design locations x
+	 * @param y design locations y
+	 * @param xd displaced locations x
+	 * @param yd displaced locations y
+	 * @param xdOut corrected displaced locations x
+	 * @param ydOut corrected displaced locations y
+	 * @param length number of sites
+	 */
+	default void applyAll(double[] x, double[] y, double[] xd, double[] yd, double[] xdOut, double[] ydOut, int length) {
+		applyAll(x, y, xd, yd, xdOut, ydOut, 0, length);
+	}
+	
+	/**
+	 * Applies this transform to the sites {@code from} (inclusive) to {@code to} (exclusive) of the given arrays, 
+	 * see {@link #applyAll(double[], double[], double[], double[], double[], double[], int)}. Other elements of {@code xdOut} and {@code ydOut}
+	 * are not modified, hence disjoint ranges of the same arrays can be corrected concurrently.
+	 * <p>
+	 * This default implementation creates a {@link Displacement} per site and delegates to {@link #apply(Object)}.
+	 * The transforms provided with this library override it with loops over the arrays which do not allocate anything.
+	 * 
+	 * @param x design locations x
+	 * @param y design locations y
+	 * @param xd displaced locations x
+	 * @param yd displaced locations y
+	 * @param xdOut corrected displaced locations x
+	 * @param ydOut corrected displaced locations y
+	 * @param from index of the first site
+	 * @param to index after the last site
+	 */
+	default void applyAll(double[] x, double[] y, double[] xd, double[] yd, double[] xdOut, double[] ydOut, int from, int to) {
+		for (int i = from; i < to; i++) {
+			Displacement corrected = apply(Displacement.at(i, i, x[i], y[i], xd[i], yd[i]));
+			xdOut[i] = corrected.getXd();
+			ydOut[i] = corrected.getYd();
+		}
+	}
+	
 }
@@ -19,14 +19,89 @@
  */
 package net.raumzeitfalle.registration;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
 import net.raumzeitfalle.registration.displacement.Displacement;
+import net.raumzeitfalle.registration.displacement.DisplacementTable;
 
+/**
+ * Applies a {@link Transform} to a {@link Collection} of displacements, keeping the order of the displacements.
+ * <p>
+ * By default all displacements are corrected sequentially. In parallel mode (see {@link #parallel(int, Executor)}), collections
+ * with at least the given number of displacements are split into consecutive chunks, which are corrected by tasks of an
+ * {@link Executor} (by default the common {@link ForkJoinPool}). Each task writes only its own range of the result,
+ * hence results are identical to the sequential correction. Column oriented storage of a {@link DisplacementTable} is kept in both modes.
+ * Other collections are corrected into a fixed-size {@link java.util.List} in parallel mode, without copying the corrected displacements again.
+ *
+ */
 public class TransformCorrection implements BiFunction<Transform, Collection<Displacement>, Collection<Displacement>> {
 	
+	/**
+	 * Default number of displacements from which on the correction runs in parallel.
+	 */
+	public static final int DEFAULT_THRESHOLD = ModelEquations.PARALLEL_THRESHOLD;
+	
+	/*
+	 * Maximum number of displacements corrected by one task.
+	 */
+	static final int SITES_PER_TASK = 16_384;
+	
+	/**
+	 * Creates a correction which processes large collections in parallel using the common {@link ForkJoinPool}.
+	 * 
+	 * @param parallelThreshold Number of displacements from which on the correction runs in parallel (must be positive).
+	 * @return {@link TransformCorrection} in parallel mode
+	 */
+	public static TransformCorrection parallel(int parallelThreshold) {
+		return parallel(parallelThreshold, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Creates a correction in parallel mode with {@link #DEFAULT_THRESHOLD}, see {@link #parallel(int)}.
+	 * 
+	 * @return {@link TransformCorrection} in parallel mode
+	 */
+	public static TransformCorrection parallel() {
+		return parallel(DEFAULT_THRESHOLD);
+	}
+	
+	/**
+	 * Creates a correction which processes large collections in parallel using tasks of the given {@link Executor}.
+	 * 
+	 * @param parallelThreshold Number of displacements from which on the correction runs in parallel (must be positive).
+	 * @param executor {@link Executor} running the tasks
+	 * @return {@link TransformCorrection} in parallel mode
+	 */
+	public static TransformCorrection parallel(int parallelThreshold, Executor executor) {
+		if (parallelThreshold < 1) {
+			throw new IllegalArgumentException("Parallel threshold must be positive.");
+		}
+		return new TransformCorrection(parallelThreshold, Objects.requireNonNull(executor, "Executor must not be null."));
+	}
+	
+	private final int parallelThreshold;
+	
+	private final Executor executor;
+	
+	public TransformCorrection() {
+		this(Integer.MAX_VALUE, ForkJoinPool.commonPool());
+	}
+	
+	private TransformCorrection(int parallelThreshold, Executor executor) {
+		this.parallelThreshold = parallelThreshold;
+		this.executor = executor;
+	}
+	
 	@Override
 	public Collection<Displacement> apply(Transform t, Collection<Displacement> u) {
 
@@ -34,10 +109,46 @@ public class TransformCorrection implements BiFunction<Transform, Collection<Dis
 			return u;
 		}
 		
+		if (u.size() >= parallelThreshold) {
+			try {
+				return applyParallel(t, u);
+			} catch (CompletionException e) {
+				throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+			}
+		}
+		
+		// keep column oriented storage
+		if (u instanceof DisplacementTable) {
+			return ((DisplacementTable) u).transform(t);
+		}
+		
 		return u.stream()
 				.map(t)
 				.collect(Collectors.toList());
 		
 	}
+	
+	private Collection<Displacement> applyParallel(Transform t, Collection<Displacement> u) {
+		
+		if (u instanceof DisplacementTable) {
+			return ((DisplacementTable) u).transform(t, executor, SITES_PER_TASK);
+		}
+		
+		// random access lists are read in place, other collections are copied once for indexed access
+		List<Displacement> sites = (u instanceof List && u instanceof RandomAccess) ? (List<Displacement>) u : Arrays.asList(u.toArray(new Displacement[0]));
+		Displacement[] corrected = new Displacement[sites.size()];
+		CompletableFuture<?>[] tasks = new CompletableFuture<?>[(corrected.length + SITES_PER_TASK - 1) / SITES_PER_TASK];
+		for (int task = 0; task < tasks.length; task++) {
+			int from = task * SITES_PER_TASK;
+			int to = Math.min(corrected.length, from + SITES_PER_TASK);
+			tasks[task] = CompletableFuture.runAsync(() -> {
+				for (int i = from; i < to; i++) {
+					corrected[i] = t.apply(sites.get(i));
+				}
+			}, executor);
+		}
+		CompletableFuture.allOf(tasks).join();
+		return Arrays.asList(corrected);
+	}
 
 }
@@ -19,15 +19,20 @@
  */
 package net.raumzeitfalle.registration.alignment;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 
 import net.raumzeitfalle.registration.DegreesOfFreedom;
 import net.raumzeitfalle.registration.DifferencesVector;
+import net.raumzeitfalle.registration.NormalEquationsAccumulator;
 import net.raumzeitfalle.registration.Orientable;
 import net.raumzeitfalle.registration.Orientation;
 import net.raumzeitfalle.registration.ReferencesMatrix;
+import net.raumzeitfalle.registration.solver.NormalEquations;
 import net.raumzeitfalle.registration.solver.Solution;
+import net.raumzeitfalle.registration.solver.SolverMode;
 import net.raumzeitfalle.registration.solver.SolverProvider;
 import net.raumzeitfalle.registration.solver.spi.SolverAdapter;
 
@@ -43,6 +48,20 @@ import net.raumzeitfalle.registration.solver.spi.SolverAdapter;
  * 
  */
 final class BasicRigidBodyModel implements RigidBodyModel {
+	
+	/*
+	 * Systems with at least the parallel threshold number of equations are solved using normal equations
+	 * accumulated in parallel, independent of the configured SolverMode.
+	 */
+	private final NormalEquationsAccumulator accumulator;
+	
+	BasicRigidBodyModel() {
+		this(new NormalEquationsAccumulator(Integer.MAX_VALUE));
+	}
+	
+	BasicRigidBodyModel(NormalEquationsAccumulator accumulator) {
+		this.accumulator = accumulator;
+	}
 
 	private void prepare(Collection<RigidModelEquation> equations, ReferencesMatrix references, DifferencesVector deltas, Orientation direction) {
 		int row = 0;
@@ -61,9 +80,43 @@ final class BasicRigidBodyModel implements RigidBodyModel {
 		return row;
 	}
 
+	private ReferencesMatrix references(Collection<RigidModelEquation> equations, Orientation direction, int cols) {
+		if (equations instanceof RigidEquationTable) {
+			return ((RigidEquationTable) equations).references(direction, cols);
+		}
+		ReferencesMatrix references = new ReferencesMatrix(equations.size(), cols);
+		int row = 0;
+		for (RigidModelEquation eq : equations) {
+			references.set(row, eq, direction);
+			row++;
+		}
+		return references;
+	}
+
+	private RigidTransform solveNormalEquations(Collection<RigidModelEquation> equations, Orientation direction, int cols) {
+		
+		NormalEquations normalEquations;
+		if (equations instanceof RigidEquationTable) {
+			normalEquations = ((RigidEquationTable) equations).accumulate(accumulator, direction, cols);
+		} else {
+			normalEquations = new NormalEquations(cols);
+			ReferencesMatrix row = new ReferencesMatrix(1, cols);
+			for (RigidModelEquation eq : equations) {
+				row.set(0, eq, direction);
+				normalEquations.accept(row.getArray()[0], eq.getDeltaValue());
+			}
+		}
+		
+		// the normal equations form a square system
+		SolverAdapter solver = SolverProvider.getInstance().getSolver(cols, cols);
+		Solution solution = solver.solve(normalEquations);
+		
+		return createTransform(solution, direction);
+	}
+
 	private RigidTransform solve(ReferencesMatrix references, DifferencesVector deltas, Orientation direction) {
 
-		SolverAdapter solver = SolverProvider.getInstance().getSolver();
+		SolverAdapter solver = SolverProvider.getInstance().getSolver(references.rows(), references.columns());
 		Solution solution = solver.apply(references, deltas);
 		
 		return createTransform(solution,direction);
@@ -80,16 +133,71 @@ final class BasicRigidBodyModel implements RigidBodyModel {
 		Orientation ori = dof.getDirection();
 		int rows = equations.size();
 		int cols = ori.getDimensions()+1;
-				
-		DifferencesVector deltas = new DifferencesVector(rows);
-		ReferencesMatrix references = new ReferencesMatrix(rows, cols);
-		prepare(equations, references, deltas, ori);
 		
 		// escape here before singular matrix exception can be thrown
 		if (1 == dof.getCombined()) {
-			return ori.runOperation(new RigidTransformTranslationsFactory(deltas));
-		}				
+			return ori.runOperation(new RigidTransformTranslationsFactory(deltas(equations)));
+		}
+		
+		if (useNormalEquations(rows)) {
+			return solveNormalEquations(equations, ori, cols);
+		}
+				
+		DifferencesVector deltas;
+		ReferencesMatrix references;
+		if (equations instanceof RigidEquationTable) {
+			RigidEquationTable table = (RigidEquationTable) equations;
+			deltas = table.deltas();
+			references = table.references(ori, cols);
+		} else {
+			deltas = new DifferencesVector(rows);
+			references = new ReferencesMatrix(rows, cols);
+			prepare(equations, references, deltas, ori);
+		}
+		
 		return solve(references, deltas, ori);
 	}
 	
+	private boolean useNormalEquations(int rows) {
+		return rows >= accumulator.getParallelThreshold() 
+				|| SolverMode.NORMAL_EQUATIONS.equals(SolverProvider.getInstance().getMode());
+	}
+	
+	private DifferencesVector deltas(Collection<RigidModelEquation> equations) {
+		if (equations instanceof RigidEquationTable) {
+			return ((RigidEquationTable) equations).deltas();
+		}
+		return DifferencesVector.from(equations);
+	}
+	
+	@Override
+	public List<RigidTransform> solveAll(List<? extends Collection<RigidModelEquation>> runs, DegreesOfFreedom dof) {
+		
+		if (runs.size() < 2 || 1 == dof.getCombined() || SolverMode.NORMAL_EQUATIONS.equals(SolverProvider.getInstance().getMode())) {
+			return RigidBodyModel.super.solveAll(runs, dof);
+		}
+		
+		Orientation ori = dof.getDirection();
+		Collection<RigidModelEquation> design = runs.get(0);
+		int rows = design.size();
+		int cols = ori.getDimensions()+1;
+		
+		ReferencesMatrix references = references(design, ori, cols);
+		
+		List<DifferencesVector> deltas = new ArrayList<>(runs.size());
+		for (Collection<RigidModelEquation> equations : runs) {
+			if (equations.size() != rows) {
+				throw new IllegalArgumentException("All sets of equations must share the same design.");
+			}
+			deltas.add(deltas(equations));
+		}
+		
+		SolverAdapter solver = SolverProvider.getInstance().getSolver(rows, cols);
+		List<RigidTransform> transforms = new ArrayList<>(runs.size());
+		for (Solution solution : solver.solveAll(references, deltas)) {
+			transforms.add(createTransform(solution, ori));
+		}
+		return transforms;
+	}
+	
 }
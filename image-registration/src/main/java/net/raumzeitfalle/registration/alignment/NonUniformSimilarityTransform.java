@@ -49,4 +49,19 @@ public interface NonUniformSimilarityTransform extends Transform {
 		source.getYd() - this.getTranslationY() - source.getY() * this.getScaleY() - source.getX() * this.getRotation());
 	}
 	
+	@Override
+	default void applyAll(double[] x, double[] y, double[] xd, double[] yd, double[] xdOut, double[] ydOut, int from, int to) {
+		double tx = this.getTranslationX();
+		double ty = this.getTranslationY();
+		double rot = this.getRotation();
+		double sx = this.getScaleX();
+		double sy = this.getScaleY();
+		for (int i = from; i < to; i++) {
+			xdOut[i] = xd[i] - tx - x[i] * sx + y[i] * rot;
+		}
+		for (int i = from; i < to; i++) {
+			ydOut[i] = yd[i] - ty - y[i] * sy - x[i] * rot;
+		}
+	}
+	
 }
@@ -19,11 +19,29 @@
  */
 package net.raumzeitfalle.registration.alignment;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import net.raumzeitfalle.registration.DegreesOfFreedom;
 import net.raumzeitfalle.registration.Orientable;
 
 public interface RigidBodyModel {
 	<T extends Orientable> RigidTransform solve(Collection<RigidModelEquation> equations, DegreesOfFreedom dof);
+	
+	/**
+	 * Solves several sets of equations which share the same design (references), e.g. repeated measurements of one layout.
+	 * All sets must consist of equations with identical reference coefficients in identical order, only the delta values may differ.
+	 * 
+	 * @param runs List of equation sets sharing the same design
+	 * @param dof {@link DegreesOfFreedom} which apply to all sets
+	 * @return List of {@link RigidTransform} in order of the given sets
+	 */
+	default List<RigidTransform> solveAll(List<? extends Collection<RigidModelEquation>> runs, DegreesOfFreedom dof) {
+		List<RigidTransform> transforms = new ArrayList<>(runs.size());
+		for (Collection<RigidModelEquation> equations : runs) {
+			transforms.add(solve(equations, dof));
+		}
+		return transforms;
+	}
 }
@@ -0,0 +1,193 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.alignment;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.stream.Collector;
+
+import net.raumzeitfalle.registration.DegreesOfFreedom;
+import net.raumzeitfalle.registration.DifferencesVector;
+import net.raumzeitfalle.registration.NormalEquationsAccumulator;
+import net.raumzeitfalle.registration.Orientation;
+import net.raumzeitfalle.registration.Orientations;
+import net.raumzeitfalle.registration.ReferencesMatrix;
+import net.raumzeitfalle.registration.displacement.Displacement;
+import net.raumzeitfalle.registration.solver.NormalEquations;
+
+/**
+ * Column oriented storage of rigid model equations, one row per finite X or Y value of a {@link Displacement}.
+ * <p>
+ * Rows are written directly into {@link ReferencesMatrix}, {@link DifferencesVector} or {@link NormalEquations}
+ * by {@link BasicRigidBodyModel}. Other {@link RigidBodyModel} implementations see the table as {@link java.util.List} of
+ * {@link RigidModelEquation}, which are created on access.
+ *
+ */
+final class RigidEquationTable extends AbstractList<RigidModelEquation> implements RandomAccess {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * Creates a {@link Collector} which creates the equations for each {@link Displacement} and collects the
+	 * {@link DegreesOfFreedom} of all displacements. Partial results are appended in encounter order, so that the
+	 * collector can be used with parallel streams.
+	 *
+	 * @return {@link Collector} of {@link RigidEquationTable}
+	 */
+	static Collector<Displacement, RigidEquationTable, RigidEquationTable> collector() {
+		return Collector.of(RigidEquationTable::new,
+							RigidEquationTable::accept,
+							RigidEquationTable::combine,
+							Collector.Characteristics.IDENTITY_FINISH);
+	}
+
+	private final DegreesOfFreedom degreesOfFreedom = new DegreesOfFreedom();
+
+	private boolean[] alongX = new boolean[INITIAL_CAPACITY];
+
+	private double[] design = new double[INITIAL_CAPACITY];
+
+	private double[] delta = new double[INITIAL_CAPACITY];
+
+	private int rows = 0;
+
+	void accept(Displacement d) {
+		degreesOfFreedom.accept(d);
+
+		if (Double.isFinite(d.getXd())) {
+			add(true, -d.getY(), d.dX());
+		}
+
+		if (Double.isFinite(d.getYd())) {
+			add(false, d.getX(), d.dY());
+		}
+	}
+
+	private void add(boolean x, double designValue, double deltaValue) {
+		ensureCapacity(rows + 1);
+		alongX[rows] = x;
+		design[rows] = designValue;
+		delta[rows] = deltaValue;
+		rows++;
+	}
+
+	private RigidEquationTable combine(RigidEquationTable other) {
+		ensureCapacity(rows + other.rows);
+		System.arraycopy(other.alongX, 0, alongX, rows, other.rows);
+		System.arraycopy(other.design, 0, design, rows, other.rows);
+		System.arraycopy(other.delta, 0, delta, rows, other.rows);
+		rows += other.rows;
+		degreesOfFreedom.combine(other.degreesOfFreedom);
+		return this;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > delta.length) {
+			int grown = Math.max(capacity, delta.length << 1);
+			alongX = Arrays.copyOf(alongX, grown);
+			design = Arrays.copyOf(design, grown);
+			delta = Arrays.copyOf(delta, grown);
+		}
+	}
+
+	DegreesOfFreedom getDegreesOfFreedom() {
+		return degreesOfFreedom;
+	}
+
+	@Override
+	public RigidModelEquation get(int row) {
+		Objects.checkIndex(row, rows);
+		return RigidModelEquation.of(alongX[row] ? Orientations.X : Orientations.Y, design[row], delta[row]);
+	}
+
+	@Override
+	public int size() {
+		return rows;
+	}
+
+	/**
+	 * Writes the coefficients of the given row in the same way as {@link ReferencesMatrix#set(int, RigidModelEquation, Orientation)}.
+	 */
+	private void writeRow(int row, double[] target, Orientation direction) {
+		double xf = alongX[row] ? 1.0 : 0.0;
+		double yf = alongX[row] ? 0.0 : 1.0;
+
+		if (Orientations.X.equals(direction)) {
+			target[0] = xf;
+			target[1] = design[row];
+		}
+
+		if (Orientations.Y.equals(direction)) {
+			target[0] = yf;
+			target[1] = design[row];
+		}
+
+		if (Orientations.XY.equals(direction)) {
+			target[0] = xf;
+			target[1] = yf;
+			target[2] = design[row];
+		}
+	}
+
+	ReferencesMatrix references(Orientation direction, int cols) {
+		ReferencesMatrix references = new ReferencesMatrix(rows, cols);
+		double[][] matrix = references.getArray();
+		for (int row = 0; row < rows; row++) {
+			writeRow(row, matrix[row], direction);
+		}
+		return references;
+	}
+
+	DifferencesVector deltas() {
+		return DifferencesVector.from(delta, rows);
+	}
+
+	/**
+	 * @param accumulator {@link NormalEquationsAccumulator} used to accumulate the rows, sequential or in parallel
+	 * @param direction {@link Orientation} describing the columns used
+	 * @param cols number of columns
+	 * @return {@link NormalEquations} of all equations in this table
+	 */
+	NormalEquations accumulate(NormalEquationsAccumulator accumulator, Orientation direction, int cols) {
+		return accumulator.accumulate(rows, cols, (row, coefficients) -> {
+			writeRow(row, coefficients, direction);
+			return delta[row];
+		});
+	}
+
+	/**
+	 * @param other {@link RigidEquationTable} to compare with
+	 * @return true when both tables consist of equations with the same orientation and reference coefficients in the same order, delta values are not compared.
+	 */
+	boolean hasSameDesign(RigidEquationTable other) {
+		if (rows != other.rows) {
+			return false;
+		}
+		for (int row = 0; row < rows; row++) {
+			if (alongX[row] != other.alongX[row] || Double.compare(design[row], other.design[row]) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -66,6 +66,13 @@ public final class RigidModelEquation implements ModelEquation {
 		return new RigidModelEquation(xf, yf, design, delta, Orientations.Y);
 	}
 	
+	static RigidModelEquation of(Orientation direction, double design, double delta) {
+		if (Orientations.X.equals(direction)) {
+			return new RigidModelEquation(1.0, 0.0, design, delta, Orientations.X);
+		}
+		return new RigidModelEquation(0.0, 1.0, design, delta, Orientations.Y);
+	}
+	
 	private final double xf;
 	
 	private final double yf;
@@ -0,0 +1,64 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.alignment;
+
+import net.raumzeitfalle.registration.Orientation;
+import net.raumzeitfalle.registration.Orientations;
+import net.raumzeitfalle.registration.RegistrationMoments;
+
+/**
+ * Closed form least squares solution of the rigid body model using {@link RegistrationMoments}.
+ * <p>
+ * With X equations dX = t<sub>x</sub> - r*y and Y equations dY = t<sub>y</sub> + r*x, the translations are
+ * eliminated using the means of each direction, so that the rotation only depends on the centered co-moments.
+ * Without spread of the design locations, only translations are calculated (same as {@link BasicRigidBodyModel}).
+ *
+ */
+final class RigidMomentsModel {
+
+	RigidTransform solve(RegistrationMoments moments) {
+		RegistrationMoments.Moments x = moments.getX();
+		RegistrationMoments.Moments y = moments.getY();
+		Orientation direction = moments.getDirection();
+
+		if (Orientations.X.equals(direction)) {
+			double rotation = ratio(-x.getYDelta(), x.getYY());
+			return RigidTransform.with(x.getMeanDelta() + rotation * x.getMeanY(), 0.0, rotation);
+		}
+
+		if (Orientations.Y.equals(direction)) {
+			double rotation = ratio(y.getXDelta(), y.getXX());
+			return RigidTransform.with(0.0, y.getMeanDelta() - rotation * y.getMeanX(), rotation);
+		}
+
+		double rotation = ratio(y.getXDelta() - x.getYDelta(), x.getYY() + y.getXX());
+		double tx = x.getMeanDelta() + rotation * x.getMeanY();
+		double ty = y.getMeanDelta() - rotation * y.getMeanX();
+		return RigidTransform.with(tx, ty, rotation);
+	}
+
+	/*
+	 * Without spread in the design, the rotation cannot be determined and only translations are calculated.
+	 */
+	private static double ratio(double numerator, double denominator) {
+		return denominator > 0.0 ? numerator / denominator : 0.0;
+	}
+
+}
@@ -69,6 +69,19 @@ public interface RigidTransform extends Transform {
 				source.getYd() - this.getTranslationY() - source.getX() * this.getRotation());
 	}
 	
+	@Override
+	default void applyAll(double[] x, double[] y, double[] xd, double[] yd, double[] xdOut, double[] ydOut, int from, int to) {
+		double tx = this.getTranslationX();
+		double ty = this.getTranslationY();
+		double rot = this.getRotation();
+		for (int i = from; i < to; i++) {
+			xdOut[i] = xd[i] - tx + y[i] * rot;
+		}
+		for (int i = from; i < to; i++) {
+			ydOut[i] = yd[i] - ty - x[i] * rot;
+		}
+	}
+	
 	default Translation getTranslation() {
 		return SimpleTranslation.with(getTranslationX(), getTranslationY());
 	}
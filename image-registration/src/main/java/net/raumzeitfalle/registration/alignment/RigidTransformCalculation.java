@@ -21,10 +21,17 @@ package net.raumzeitfalle.registration.alignment;
 
 import java.util.*;
 import java.util.function.*;
+import java.util.stream.Collector;
 import java.util.stream.Collectors;
 
 import net.raumzeitfalle.registration.DegreesOfFreedom;
+import net.raumzeitfalle.registration.ModelEquations;
+import net.raumzeitfalle.registration.ModelEquationsView;
+import net.raumzeitfalle.registration.NormalEquationsAccumulator;
+import net.raumzeitfalle.registration.RegistrationMoments;
 import net.raumzeitfalle.registration.displacement.Displacement;
+import net.raumzeitfalle.registration.solver.SolverMode;
+import net.raumzeitfalle.registration.solver.SolverProvider;
 
 /**
  * 
@@ -36,14 +43,44 @@ import net.raumzeitfalle.registration.displacement.Displacement;
  */
 public final class RigidTransformCalculation implements BiFunction<Collection<Displacement>, Predicate<Displacement>, RigidTransform>{
 	
+	/**
+	 * Creates a calculation which processes large data sets in parallel using the common {@link java.util.concurrent.ForkJoinPool}.
+	 * For at least the given number of displacements, the equations are created using a parallel stream. Systems with at least the given
+	 * number of equations are solved using normal equations, which are accumulated in parallel tasks and combined pairwise
+	 * (see {@link NormalEquationsAccumulator}). Smaller data sets are processed sequentially.
+	 * 
+	 * @param parallelThreshold Number of displacements or equations from which on the calculation runs in parallel (must be positive).
+	 * @return {@link RigidTransformCalculation} in parallel mode
+	 */
+	public static RigidTransformCalculation parallel(int parallelThreshold) {
+		NormalEquationsAccumulator accumulator = new NormalEquationsAccumulator(parallelThreshold);
+		return new RigidTransformCalculation(new BasicRigidBodyModel(accumulator), parallelThreshold);
+	}
+	
+	/**
+	 * Creates a calculation in parallel mode with {@link NormalEquationsAccumulator#DEFAULT_THRESHOLD}, see {@link #parallel(int)}.
+	 * 
+	 * @return {@link RigidTransformCalculation} in parallel mode
+	 */
+	public static RigidTransformCalculation parallel() {
+		return parallel(NormalEquationsAccumulator.DEFAULT_THRESHOLD);
+	}
+	
 	private final RigidBodyModel model;
 	
+	private final int parallelThreshold;
+	
 	public RigidTransformCalculation() {
 		this(new BasicRigidBodyModel());
 	}
 
 	public RigidTransformCalculation(RigidBodyModel model) {
+		this(model, Integer.MAX_VALUE);
+	}
+	
+	private RigidTransformCalculation(RigidBodyModel model, int parallelThreshold) {
 		this.model = Objects.requireNonNull(model, "The used model for calculation must not be null (RigidBodyModel).");
+		this.parallelThreshold = parallelThreshold;
 	}
 
 	/**
@@ -62,20 +99,123 @@ public final class RigidTransformCalculation implements BiFunction<Collection<Di
 	 */
 	@Override
 	public RigidTransform apply(Collection<Displacement> displacements, Predicate<Displacement> selector) {
-						
-		DegreesOfFreedom degreesOfFreedom = new DegreesOfFreedom();
-				
-		List<RigidModelEquation> equations = displacements.stream()
-											  .filter(selector)
-											  .map(degreesOfFreedom)
-											  .flatMap(RigidModelEquation::from)
-											  .collect(Collectors.toList());
 		
+		if (useEquationsView(displacements)) {
+			ModelEquationsView<RigidModelEquation> equations = ModelEquationsView.of(displacements, selector, RigidModelEquation::from);
+			if (equations.isEmpty()) {
+				return continueUnaligned();
+			}
+			return model.solve(equations, equations.getDegreesOfFreedom());
+		}
+		
+		return solve(createEquations(displacements, selector));
+	}
+	
+	/*
+	 * Normal equations are accumulated by visiting each equation once, hence there is no need to keep them in memory.
+	 * Large collections are collected into tables nevertheless, as those are accumulated in parallel.
+	 */
+	private boolean useEquationsView(Collection<Displacement> displacements) {
+		return displacements.size() < parallelThreshold
+				&& SolverMode.NORMAL_EQUATIONS.equals(SolverProvider.getInstance().getMode());
+	}
+	
+	/**
+	 * Creates a {@link Collector} which calculates the {@link RigidTransform} for all collected displacements,
+	 * with the same result as {@link #apply(Collection, Predicate)} for all selected displacements.
+	 * Partial results are merged in encounter order, hence the collector can be used with parallel streams.
+	 * 
+	 * @return {@link Collector} calculating a {@link RigidTransform}
+	 */
+	public Collector<Displacement, ?, RigidTransform> collector() {
+		return Collectors.collectingAndThen(RigidEquationTable.collector(), this::solve);
+	}
+	
+	/**
+	 * Calculates the alignment parameters from the given {@link RegistrationMoments} in closed form, without processing the displacements again.
+	 * The result is the least squares solution for all displacements collected in the moments, same as {@link #apply(Collection, Predicate)}
+	 * within numerical precision. The configured {@link RigidBodyModel} is not used.
+	 * <p>
+	 * A {@link SkipRigidTransform} is returned when the moments do not contain any finite displacement. Without spread in the design locations,
+	 * only the mean translations are calculated.
+	 * 
+	 * @param moments {@link RegistrationMoments} of all displacements to be used for alignment
+	 * @return {@link RigidTransform} providing translation (x,y) and rotation values.
+	 */
+	public RigidTransform apply(RegistrationMoments moments) {
+		if (0 == moments.getX().getCount() && 0 == moments.getY().getCount()) {
+			return continueUnaligned();
+		}
+		
+		return new RigidMomentsModel().solve(moments);
+	}
+	
+	private RigidTransform solve(RigidEquationTable equations) {
 		if (equations.isEmpty()) {
 			return continueUnaligned();
 		}
 		
-		return model.solve(equations, degreesOfFreedom);
+		return model.solve(equations, equations.getDegreesOfFreedom());
+	}
+	
+	/**
+	 * Calculates the alignment parameters for several collections of displacements, e.g. repeated measurements of one layout.
+	 * Collections which result in identical designs (same selected locations and same missing values) are solved together,
+	 * so that the design is only decomposed once.
+	 * 
+	 * @param runs List of collections of {@link Displacement}
+	 * @param selector {@link Predicate} which describes which {@link Displacement} elements shall be used for alignment
+	 * @return List of {@link RigidTransform}, one for each collection in the given order.
+	 */
+	public List<RigidTransform> applyAll(List<? extends Collection<Displacement>> runs, Predicate<Displacement> selector) {
+		
+		List<RigidEquationTable> equations = new ArrayList<>(runs.size());
+		for (Collection<Displacement> displacements : runs) {
+			equations.add(createEquations(displacements, selector));
+		}
+		
+		RigidTransform[] transforms = new RigidTransform[runs.size()];
+		for (int i = 0; i < transforms.length; i++) {
+			if (null != transforms[i]) {
+				continue;
+			}
+			
+			if (equations.get(i).isEmpty()) {
+				transforms[i] = continueUnaligned();
+				continue;
+			}
+			
+			List<Integer> group = new ArrayList<>();
+			List<List<RigidModelEquation>> sharedDesign = new ArrayList<>();
+			for (int j = i; j < transforms.length; j++) {
+				if (null == transforms[j] && sameDesign(equations.get(i), equations.get(j))) {
+					group.add(j);
+					sharedDesign.add(equations.get(j));
+				}
+			}
+			
+			List<RigidTransform> solved = model.solveAll(sharedDesign, equations.get(i).getDegreesOfFreedom());
+			for (int k = 0; k < group.size(); k++) {
+				transforms[group.get(k)] = solved.get(k);
+			}
+		}
+		
+		return Arrays.asList(transforms);
+	}
+	
+	private RigidEquationTable createEquations(Collection<Displacement> displacements, Predicate<Displacement> selector) {
+		return ModelEquations.streamOf(displacements, parallelThreshold)
+							 .filter(selector)
+							 .collect(RigidEquationTable.collector());
+	}
+	
+	private boolean sameDesign(RigidEquationTable equations, RigidEquationTable otherEquations) {
+		DegreesOfFreedom dof = equations.getDegreesOfFreedom();
+		DegreesOfFreedom otherDof = otherEquations.getDegreesOfFreedom();
+		if (!dof.getX().equals(otherDof.getX()) || !dof.getY().equals(otherDof.getY())) {
+			return false;
+		}
+		return equations.hasSameDesign(otherEquations);
 	}
 
 	private RigidTransform continueUnaligned() {
@@ -48,4 +48,18 @@ public interface SimilarityTransform extends Transform {
 			source.getYd() - this.getTranslationY() - source.getY() * this.getMagnification() - source.getX() * this.getRotation());
 	}
 	
+	@Override
+	default void applyAll(double[] x, double[] y, double[] xd, double[] yd, double[] xdOut, double[] ydOut, int from, int to) {
+		double tx = this.getTranslationX();
+		double ty = this.getTranslationY();
+		double rot = this.getRotation();
+		double mag = this.getMagnification();
+		for (int i = from; i < to; i++) {
+			xdOut[i] = xd[i] - tx - x[i] * mag + y[i] * rot;
+		}
+		for (int i = from; i < to; i++) {
+			ydOut[i] = yd[i] - ty - y[i] * mag - x[i] * rot;
+		}
+	}
+	
 }
\ No newline at end of file
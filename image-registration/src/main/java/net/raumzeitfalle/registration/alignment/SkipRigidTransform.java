@@ -48,6 +48,11 @@ public final class SkipRigidTransform implements RigidTransform, SkipTransform {
 	@Override
 	public Displacement apply(Displacement t) { return t; }
 	
+	@Override
+	public void applyAll(double[] x, double[] y, double[] xd, double[] yd, double[] xdOut, double[] ydOut, int from, int to) {
+		SkipTransform.super.applyAll(x, y, xd, yd, xdOut, ydOut, from, to);
+	}
+	
 	@Override
 	public int hashCode() {
 		return Objects.hash(getRotation(), getTranslationX(), getTranslationY());
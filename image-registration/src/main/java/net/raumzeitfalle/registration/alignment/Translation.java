@@ -37,5 +37,17 @@ public interface Translation extends Transform {
 				source.getXd() - this.getTranslationX(), 
 				source.getYd() - this.getTranslationY());
 	}
+	
+	@Override
+	default void applyAll(double[] x, double[] y, double[] xd, double[] yd, double[] xdOut, double[] ydOut, int from, int to) {
+		double tx = this.getTranslationX();
+		double ty = this.getTranslationY();
+		for (int i = from; i < to; i++) {
+			xdOut[i] = xd[i] - tx;
+		}
+		for (int i = from; i < to; i++) {
+			ydOut[i] = yd[i] - ty;
+		}
+	}
 
 }
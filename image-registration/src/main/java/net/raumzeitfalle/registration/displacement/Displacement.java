@@ -24,7 +24,10 @@ import java.util.Objects;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.function.ToDoubleFunction;
+import java.util.stream.Collector;
 
+import net.raumzeitfalle.registration.CompensatedSum;
+import net.raumzeitfalle.registration.ReproducibleReduction;
 import net.raumzeitfalle.registration.alignment.TranslateFunction;
 
 /**
@@ -129,6 +132,18 @@ public class Displacement {
 		return DisplacementSummary.over(t, calculationSelection);
 	}
 	
+	/**
+	 * Creates a statistical summary for the selected sites of the given collection of {@link Displacement} instances.
+	 * For both axes (X,Y) descriptive statistics such as average (mean), min, max, 3Sigma etc. are provided.
+	 * 
+	 * @param t Given {@link Collection}ollection of {@link Displacement} items.
+	 * @param calculationSelection {@link SiteSelection} which determines, which Displacements will be considered for summary creation.
+	 * @return {@link DisplacementSummary} Table with descriptive statistics of positionals, alignment details (translation, rotation) and and first order systematics (scaling and shear aka. non-orthogonality).
+	 */
+	public static DisplacementSummary summarize(Collection<Displacement> t, SiteSelection calculationSelection) {
+		return DisplacementSummary.over(t, calculationSelection);
+	}
+	
 	/**
 	 * Creates the average value for a given double property of a {@link Displacement} while considering only Displacements which match the filter {@link Predicate}.
 	 *
@@ -146,10 +161,52 @@ public class Displacement {
 				.orElse(Double.NaN);
 	}
 	
+	/**
+	 * Creates the average value for a given double property of a {@link Displacement} while considering only Displacements which match the filter {@link Predicate}.
+	 * <p>
+	 * In reproducible mode, values are summed up using a {@link CompensatedSum} within a {@link ReproducibleReduction}, which processes
+	 * blocks of the collection in parallel. The result is bit-identical for any number of threads, but may differ in the last bits from
+	 * {@link #average(Collection, Predicate, ToDoubleFunction)}.
+	 *
+	 * @param t Given {@link Collection}ollection of {@link Displacement} items.
+	 * @param filter {@link Predicate} to {@link Displacement} which determines which Displacements will be considered for averaging.
+	 * @param mapper {@link ToDoubleFunction} which extracts a double value from a {@link Displacement} 
+	 * @param reproducible true for the reproducible compensated reduction, false for the same result as {@link #average(Collection, Predicate, ToDoubleFunction)}
+	 * @return double, NaN if there is no finite value
+	 */
+	public static double average(Collection<Displacement> t, Predicate<Displacement> filter, ToDoubleFunction<Displacement> mapper, boolean reproducible) {
+		if (!reproducible) {
+			return average(t, filter, mapper);
+		}
+		Collector<Displacement, CompensatedSum, Double> average = Collector.of(CompensatedSum::new, 
+				(sum, d) -> {
+					if (filter.test(d)) {
+						double value = mapper.applyAsDouble(d);
+						if (Double.isFinite(value))
+							sum.accept(value);
+					}
+				}, 
+				CompensatedSum::combine, 
+				CompensatedSum::getAverage);
+		return ReproducibleReduction.collect(t, average, true);
+	}
+	
 	public static TranslateFunction translationToCenter(Collection<Displacement> displacements, Predicate<Displacement> u) {
+		return translationToCenter(displacements, u, false);
+	}
+	
+	/**
+	 * Creates the {@link TranslateFunction} which moves the mean design location of the selected displacements into the origin.
+	 * 
+	 * @param displacements Given {@link Collection}ollection of {@link Displacement} items.
+	 * @param u {@link Predicate} to {@link Displacement} which determines which Displacements will be considered.
+	 * @param reproducible true to calculate the means using the reproducible mode of {@link #average(Collection, Predicate, ToDoubleFunction, boolean)}
+	 * @return {@link TranslateFunction}
+	 */
+	public static TranslateFunction translationToCenter(Collection<Displacement> displacements, Predicate<Displacement> u, boolean reproducible) {
 
-		double meanx = Displacement.average(displacements, u, Displacement::getX);
-    	double meany = Displacement.average(displacements, u, Displacement::getY);
+		double meanx = Displacement.average(displacements, u, Displacement::getX, reproducible);
+    	double meany = Displacement.average(displacements, u, Displacement::getY, reproducible);
     	
     	return new TranslateFunction(-meanx, -meany);
 	}
@@ -25,6 +25,7 @@ import java.util.Locale;
 import java.util.function.DoubleConsumer;
 import java.util.function.Predicate;
 
+import net.raumzeitfalle.registration.RegistrationMoments;
 import net.raumzeitfalle.registration.alignment.RigidTransform;
 import net.raumzeitfalle.registration.alignment.RigidTransformCalculation;
 import net.raumzeitfalle.registration.distortions.AffineTransform;
@@ -46,12 +47,33 @@ public final class DisplacementSummary {
 	 * @return Summary table
 	 */
 	public static DisplacementSummary over(Collection<Displacement> displacements, Predicate<Displacement> calculationSelection) {
-		return new DisplacementSummary(displacements, calculationSelection);
+		return new DisplacementSummary(displacements, calculationSelection, QuantileSketch.DEFAULT_ACCURACY);
+	}
+	
+	/**
+	 * Generates a summary table for (x,y)-Directions showing min/max/mean/3sigma values for deviations from reference. Also first order and alignment details are shown.
+	 * @param displacements Collection of displacements
+	 * @param calculationSelection A {@link SiteSelection} of Displacements which shall be considered for summary creation.
+	 * @return Summary table
+	 */
+	public static DisplacementSummary over(Collection<Displacement> displacements, SiteSelection calculationSelection) {
+		return over(displacements, calculationSelection, QuantileSketch.DEFAULT_ACCURACY);
+	}
+	
+	/**
+	 * Generates a summary table for (x,y)-Directions showing min/max/mean/3sigma values for deviations from reference. Also first order and alignment details are shown.
+	 * @param displacements Collection of displacements
+	 * @param calculationSelection A {@link SiteSelection} of Displacements which shall be considered for summary creation.
+	 * @param quantileAccuracy Accuracy parameter (k) of the {@link QuantileSketch} used for medians and percentiles of deviations from reference.
+	 * @return Summary table
+	 */
+	public static DisplacementSummary over(Collection<Displacement> displacements, SiteSelection calculationSelection, int quantileAccuracy) {
+		return new DisplacementSummary(calculationSelection.select(displacements), d -> true, quantileAccuracy);
 	}
 
-	private final DoubleStatisticsSummary statsDiffX = new DoubleStatisticsSummary();
+	private final DoubleStatisticsSummary statsDiffX;
 	
-	private final DoubleStatisticsSummary statsDiffY = new DoubleStatisticsSummary();
+	private final DoubleStatisticsSummary statsDiffY;
 	
 	private final DoubleSummaryStatistics statsRefX = new DoubleSummaryStatistics();
 	
@@ -75,18 +97,27 @@ public final class DisplacementSummary {
 	
 	private final double ortho;
 	
-	private DisplacementSummary(Collection<Displacement> displacements, Predicate<Displacement> calculationSelection) {
+	/*
+	 * Statistics and the registration moments for alignment and first order are collected in one pass over the displacements,
+	 * sites not matching the selection are skipped on the fly. The displacements are not kept in memory.
+	 */
+	private DisplacementSummary(Collection<Displacement> displacements, Predicate<Displacement> selection, int quantileAccuracy) {
+		
+		this.statsDiffX = new DoubleStatisticsSummary(quantileAccuracy);
+		this.statsDiffY = new DoubleStatisticsSummary(quantileAccuracy);
 
-		displacements.stream()
-		 			 .filter(calculationSelection)
-		             .forEach(this::update);
+		RegistrationMoments moments = new RegistrationMoments();
 		
-		RigidTransform alignment = new RigidTransformCalculation()
-				.apply(displacements, calculationSelection);
+		for (Displacement d : displacements) {
+			if (!selection.test(d)) {
+				continue;
+			}
+			update(d);
+			moments.accept(d);
+		}
 		
-		AffineTransform firstOrder = new AffineTransformCalculation()
-				.apply(displacements, calculationSelection);
-				
+		RigidTransform alignment = new RigidTransformCalculation().apply(moments);
+		AffineTransform firstOrder = new AffineTransformCalculation().apply(moments);
 		
 		this.rotation = alignment.getRotation();		
 		this.scalex = firstOrder.getScaleX();
@@ -115,7 +146,7 @@ public final class DisplacementSummary {
 			consumer.accept(value);
 		}
 	}
-
+	
 	@Override
 	public String toString() {
 		String tabs3 = "\t\t\t";
@@ -197,6 +228,30 @@ public final class DisplacementSummary {
 		return this.statsDiffY.getMax();
 	}
 	
+	public double medianX() {
+		return this.statsDiffX.getMedian();
+	}
+	
+	public double medianY() {
+		return this.statsDiffY.getMedian();
+	}
+	
+	/**
+	 * @param p quantile between 0.0 and 1.0, e.g. 0.997 for the 99.7th percentile
+	 * @return approximate quantile of deviations from reference in X (see {@link QuantileSketch})
+	 */
+	public double quantileX(double p) {
+		return this.statsDiffX.getQuantile(p);
+	}
+	
+	/**
+	 * @param p quantile between 0.0 and 1.0, e.g. 0.997 for the 99.7th percentile
+	 * @return approximate quantile of deviations from reference in Y (see {@link QuantileSketch})
+	 */
+	public double quantileY(double p) {
+		return this.statsDiffY.getQuantile(p);
+	}
+	
 	public double sd3X() {
 		return this.statsDiffX.getStdDevOfSample() * 3;
 	}
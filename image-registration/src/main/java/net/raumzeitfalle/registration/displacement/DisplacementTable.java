@@ -0,0 +1,307 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.displacement;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import net.raumzeitfalle.registration.Transform;
+
+/**
+ * Column oriented (structure of arrays) storage of displacements. Instead of one {@link Displacement} object per site,
+ * all sites are stored in primitive arrays (index, id, x, y, x<sub>d</sub>, y<sub>d</sub> and category).
+ * <p>
+ * A {@link DisplacementTable} is an immutable {@link java.util.List} of {@link Displacement}, hence it can be used wherever
+ * a {@link Collection} of displacements is accepted (e.g. calculations, corrections and summaries). {@link Displacement} objects
+ * are not stored but created on each access, hence consumers iterating the table (calculations, summaries and selections)
+ * still create one short lived object per site and visit. The table reduces the memory retained for large data sets.
+ * Only {@link #transform(Transform)} (used by {@link net.raumzeitfalle.registration.TransformCorrection}) and the accessors
+ * with a site (row) argument, e.g. {@link #getX(int)}, work on the columns without creating {@link Displacement} objects.
+ * {@link #from(Collection)} copies the given displacements into columns.
+ *
+ */
+public final class DisplacementTable extends AbstractList<Displacement> implements RandomAccess {
+
+	private static final Category[] CATEGORIES = Category.values();
+
+	/**
+	 * Creates a {@link DisplacementTable} containing all given displacements in iteration order.
+	 * If the given {@link Collection} already is a {@link DisplacementTable}, it is returned as is.
+	 *
+	 * @param displacements {@link Collection} of {@link Displacement}
+	 * @return {@link DisplacementTable}
+	 */
+	public static DisplacementTable from(Collection<Displacement> displacements) {
+		if (displacements instanceof DisplacementTable) {
+			return (DisplacementTable) displacements;
+		}
+		DisplacementTable.Builder builder = builder(displacements.size());
+		for (Displacement d : displacements) {
+			builder.add(d);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @param capacity expected number of sites
+	 * @return {@link DisplacementTable.Builder}
+	 */
+	public static DisplacementTable.Builder builder(int capacity) {
+		return new Builder(capacity);
+	}
+
+	private final int size;
+
+	private final int[] index;
+
+	private final int[] id;
+
+	private final double[] x;
+	private final double[] y;
+	private final double[] xd;
+	private final double[] yd;
+
+	private final byte[] category;
+
+	private DisplacementTable(int size, int[] index, int[] id, double[] x, double[] y, double[] xd, double[] yd, byte[] category) {
+		this.size = size;
+		this.index = index;
+		this.id = id;
+		this.x = x;
+		this.y = y;
+		this.xd = xd;
+		this.yd = yd;
+		this.category = category;
+	}
+
+	@Override
+	public Displacement get(int site) {
+		Objects.checkIndex(site, size);
+		return Displacement.at(index[site], id[site], x[site], y[site], xd[site], yd[site], CATEGORIES[category[site]]);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Applies the given function to each site and stores the resulting locations (x, y, x<sub>d</sub>, y<sub>d</sub>) in a new {@link DisplacementTable}.
+	 * Index, id and category of all sites are shared with this table and not copied.
+	 *
+	 * @param mapper {@link Function} applied to each {@link Displacement}, e.g. a {@link net.raumzeitfalle.registration.Transform}
+	 * @return {@link DisplacementTable} with mapped locations
+	 */
+	public DisplacementTable map(Function<Displacement, Displacement> mapper) {
+		double[] mappedX = new double[size];
+		double[] mappedY = new double[size];
+		double[] mappedXd = new double[size];
+		double[] mappedYd = new double[size];
+		for (int site = 0; site < size; site++) {
+			Displacement mapped = mapper.apply(get(site));
+			mappedX[site] = mapped.getX();
+			mappedY[site] = mapped.getY();
+			mappedXd[site] = mapped.getXd();
+			mappedYd[site] = mapped.getYd();
+		}
+		return new DisplacementTable(size, index, id, mappedX, mappedY, mappedXd, mappedYd, category);
+	}
+
+	/**
+	 * Applies the given {@link Transform} to the displaced locations (x<sub>d</sub>, y<sub>d</sub>) of all sites using {@link Transform#applyAll}.
+	 * Only the corrected x<sub>d</sub> and y<sub>d</sub> columns are allocated, all other columns are shared with this table.
+	 *
+	 * @param transform {@link Transform} to apply
+	 * @return {@link DisplacementTable} with corrected displaced locations
+	 */
+	public DisplacementTable transform(Transform transform) {
+		double[] correctedXd = new double[size];
+		double[] correctedYd = new double[size];
+		transform.applyAll(x, y, xd, yd, correctedXd, correctedYd, size);
+		return new DisplacementTable(size, index, id, x, y, correctedXd, correctedYd, category);
+	}
+
+	/**
+	 * Same as {@link #transform(Transform)}, but sites are split into consecutive ranges which are corrected by tasks
+	 * running on the given {@link Executor}. Each task writes only its own range of the corrected columns, hence the
+	 * result is identical to the sequential correction.
+	 *
+	 * @param transform {@link Transform} to apply, must be safe to be applied concurrently
+	 * @param executor {@link Executor} running the tasks
+	 * @param sitesPerTask maximum number of sites corrected by one task (must be positive)
+	 * @return {@link DisplacementTable} with corrected displaced locations
+	 */
+	public DisplacementTable transform(Transform transform, Executor executor, int sitesPerTask) {
+		if (sitesPerTask < 1) {
+			throw new IllegalArgumentException("Number of sites per task must be positive.");
+		}
+		double[] correctedXd = new double[size];
+		double[] correctedYd = new double[size];
+		CompletableFuture<?>[] tasks = new CompletableFuture<?>[(size + sitesPerTask - 1) / sitesPerTask];
+		for (int task = 0; task < tasks.length; task++) {
+			int from = task * sitesPerTask;
+			int to = Math.min(size, from + sitesPerTask);
+			tasks[task] = CompletableFuture.runAsync(() -> transform.applyAll(x, y, xd, yd, correctedXd, correctedYd, from, to), executor);
+		}
+		CompletableFuture.allOf(tasks).join();
+		return new DisplacementTable(size, index, id, x, y, correctedXd, correctedYd, category);
+	}
+
+	public int getIndex(int site) {
+		Objects.checkIndex(site, size);
+		return index[site];
+	}
+
+	public int getId(int site) {
+		Objects.checkIndex(site, size);
+		return id[site];
+	}
+
+	public double getX(int site) {
+		Objects.checkIndex(site, size);
+		return x[site];
+	}
+
+	public double getY(int site) {
+		Objects.checkIndex(site, size);
+		return y[site];
+	}
+
+	public double getXd(int site) {
+		Objects.checkIndex(site, size);
+		return xd[site];
+	}
+
+	public double getYd(int site) {
+		Objects.checkIndex(site, size);
+		return yd[site];
+	}
+
+	/**
+	 * Difference dx = xd - x
+	 * @param site row in this table
+	 * @return double dx
+	 */
+	public double dX(int site) {
+		Objects.checkIndex(site, size);
+		return xd[site] - x[site];
+	}
+
+	/**
+	 * Difference dy = yd - y
+	 * @param site row in this table
+	 * @return double dy
+	 */
+	public double dY(int site) {
+		Objects.checkIndex(site, size);
+		return yd[site] - y[site];
+	}
+
+	public Category getCategory(int site) {
+		Objects.checkIndex(site, size);
+		return CATEGORIES[category[site]];
+	}
+
+	public static class Builder {
+
+		private int size = 0;
+
+		private int[] index;
+
+		private int[] id;
+
+		private double[] x;
+		private double[] y;
+		private double[] xd;
+		private double[] yd;
+
+		private byte[] category;
+
+		private Builder(int capacity) {
+			if (capacity < 0) {
+				throw new IllegalArgumentException("Capacity must not be negative.");
+			}
+			this.index = new int[capacity];
+			this.id = new int[capacity];
+			this.x = new double[capacity];
+			this.y = new double[capacity];
+			this.xd = new double[capacity];
+			this.yd = new double[capacity];
+			this.category = new byte[capacity];
+		}
+
+		public Builder add(Displacement d) {
+			return add(d.getIndex(), d.getId(), d.getX(), d.getY(), d.getXd(), d.getYd(), d.getCategory());
+		}
+
+		public Builder add(int index, int id, double x, double y, double xd, double yd, Category type) {
+			Objects.requireNonNull(type, "type must not be null");
+			checkNotBuilt();
+			ensureCapacity();
+			this.index[size] = index;
+			this.id[size] = id;
+			this.x[size] = x;
+			this.y[size] = y;
+			this.xd[size] = xd;
+			this.yd[size] = yd;
+			this.category[size] = (byte) type.ordinal();
+			size++;
+			return this;
+		}
+
+		private void checkNotBuilt() {
+			if (null == this.index) {
+				throw new IllegalStateException("The DisplacementTable has already been built.");
+			}
+		}
+
+		private void ensureCapacity() {
+			if (size < index.length) {
+				return;
+			}
+			int capacity = Math.max(16, index.length + (index.length >> 1));
+			index = Arrays.copyOf(index, capacity);
+			id = Arrays.copyOf(id, capacity);
+			x = Arrays.copyOf(x, capacity);
+			y = Arrays.copyOf(y, capacity);
+			xd = Arrays.copyOf(xd, capacity);
+			yd = Arrays.copyOf(yd, capacity);
+			category = Arrays.copyOf(category, capacity);
+		}
+
+		/**
+		 * Creates the {@link DisplacementTable}, the builder must not be used afterwards.
+		 *
+		 * @return {@link DisplacementTable}
+		 */
+		public DisplacementTable build() {
+			checkNotBuilt();
+			DisplacementTable table = new DisplacementTable(size, index, id, x, y, xd, yd, category);
+			this.index = null;
+			return table;
+		}
+	}
+}
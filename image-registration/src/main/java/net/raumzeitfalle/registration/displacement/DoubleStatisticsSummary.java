@@ -20,46 +20,96 @@
 package net.raumzeitfalle.registration.displacement;
 
 import java.util.DoubleSummaryStatistics;
+import java.util.function.DoubleConsumer;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collector;
 
-public final class DoubleStatisticsSummary {
+/**
+ * Descriptive statistics (count, min, max, mean and sample standard deviation) of all finite values accepted.
+ * <p>
+ * Mean and variance are updated with each value (Welford's algorithm), so that memory consumption is constant
+ * and no second pass over the values is required. Summaries of partial data, e.g. created in parallel, 
+ * are merged using {@link #combine(DoubleStatisticsSummary)}.
+ * <p>
+ * Quantiles (e.g. median) are approximated using a {@link QuantileSketch}, the accuracy of the sketch is configurable.
+ * <p>
+ * Partial summaries are always merged in the same order when collected using {@link #collector(ToDoubleFunction)} 
+ * together with a {@link net.raumzeitfalle.registration.ReproducibleReduction}, so that results are bit-identical
+ * independent of the number of threads.
+ *
+ */
+public final class DoubleStatisticsSummary implements DoubleConsumer {
 	
-	private float loadFactor = 0.5f;
+	/**
+	 * Creates a {@link Collector} which summarizes the values provided by the mapper, non-finite values are ignored.
+	 * 
+	 * @param <T> Type of item
+	 * @param mapper {@link ToDoubleFunction} providing the value for each item
+	 * @return {@link Collector} of {@link DoubleStatisticsSummary}
+	 */
+	public static <T> Collector<T, DoubleStatisticsSummary, DoubleStatisticsSummary> collector(ToDoubleFunction<? super T> mapper) {
+		return Collector.of(DoubleStatisticsSummary::new,
+							(summary, item) -> summary.accept(mapper.applyAsDouble(item)),
+							(summary, other) -> {
+								summary.combine(other);
+								return summary;
+							},
+							Collector.Characteristics.IDENTITY_FINISH);
+	}
 	
-	private double[] values;
+	private final DoubleSummaryStatistics stats;
 	
-	private int cursor;
+	private double mean = 0.0;
 	
-	private final DoubleSummaryStatistics stats;
+	/*
+	 * Sum of squared deviations from the current mean.
+	 */
+	private double squaredDeviations = 0.0;
+	
+	private final QuantileSketch quantiles;
 	
 	public DoubleStatisticsSummary() {
-		this(2_000);
+		this(QuantileSketch.DEFAULT_ACCURACY);
 	}
 	
-	protected DoubleStatisticsSummary(int initialCapacity) {
-		this.values = new double[initialCapacity];
+	/**
+	 * @param quantileAccuracy Accuracy parameter (k) of the {@link QuantileSketch} used for quantiles
+	 */
+	public DoubleStatisticsSummary(int quantileAccuracy) {
 		this.stats = new DoubleSummaryStatistics();
+		this.quantiles = new QuantileSketch(quantileAccuracy);
 	}
 	
+	@Override
 	public final void accept(double value) {
 		if (!Double.isFinite(value))
 			return;
 		stats.accept(value);
-		memorize(value);
+		
+		double delta = value - mean;
+		mean += delta / stats.getCount();
+		squaredDeviations += delta * (value - mean);
+		quantiles.accept(value);
 	}
 	
-	private final void memorize(double value) {
-		increaseArraySize();
-		values[cursor++] = value;
-	}
-
-	private final void increaseArraySize() {
-		if (cursor >= values.length) {
-			int expansion = 1 + (int)(values.length*loadFactor);
-			double[] moreValues = new double[values.length + expansion];
-			System.arraycopy(values, 0, moreValues, 0, values.length);
-			values = moreValues;
-			System.out.println("Exp: " + values.length);
+	/**
+	 * Merges the values of another summary into this one (Chan's parallel update of mean and variance).
+	 * 
+	 * @param other {@link DoubleStatisticsSummary}
+	 */
+	public final void combine(DoubleStatisticsSummary other) {
+		long count = stats.getCount();
+		long otherCount = other.stats.getCount();
+		if (otherCount == 0) {
+			return;
 		}
+		
+		long combinedCount = count + otherCount;
+		double delta = other.mean - mean;
+		mean += delta * otherCount / combinedCount;
+		squaredDeviations += other.squaredDeviations + delta * delta * ((double) count * otherCount / combinedCount);
+		stats.combine(other.stats);
+		quantiles.merge(other.quantiles);
 	}
 
 	public final double getRange() {
@@ -70,19 +120,19 @@ public final class DoubleStatisticsSummary {
 		if (stats.getCount() == 0)
 			return Double.NaN;
 		
-		final double sumOfSquares = sumOfSquares();
-		return Math.sqrt(sumOfSquares / (cursor - 1));
+		return Math.sqrt(squaredDeviations / (stats.getCount() - 1));
 	}
-
-	private double sumOfSquares() {
-		final DoubleSummaryStatistics sumOfSquares = new DoubleSummaryStatistics();
-		final double mean = stats.getAverage();
-		double dev;
-		for (int i = 0; i < cursor; i++ ) {
-			dev = values[i]-mean;
-			sumOfSquares.accept(dev*dev);
-		}
-		return sumOfSquares.getSum();
+	
+	/**
+	 * @param p quantile between 0.0 and 1.0, e.g. 0.997 for the 99.7th percentile
+	 * @return approximate value (see {@link QuantileSketch}) below or at which the given fraction of all values is located
+	 */
+	public final double getQuantile(double p) {
+		return quantiles.getQuantile(p);
+	}
+	
+	public final double getMedian() {
+		return quantiles.getMedian();
 	}
 	
 	public final double getAverage() {
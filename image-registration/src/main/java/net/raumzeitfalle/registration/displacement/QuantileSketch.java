@@ -0,0 +1,273 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.displacement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Approximates quantiles (e.g. median or 99.7th percentile) of all finite values accepted using bounded memory (KLL sketch).
+ * <p>
+ * Values are kept in a hierarchy of compactors. Whenever the sketch is full, the values of one compactor are sorted and every
+ * second value is moved to the next level, where it represents twice the weight. Hence the number of retained values only grows
+ * logarithmically with the number of accepted values. The accuracy parameter k controls the size of the compactors and thereby the
+ * rank error, which is roughly 2/k of all values for the default compactor sizes (i.e. about 1% for k=200).
+ * <p>
+ * Sketches of partial data, e.g. created in parallel, are merged using {@link #merge(QuantileSketch)}.
+ * Compactors alternate between keeping even and odd positions, so results are reproducible for the same input order.
+ *
+ */
+public final class QuantileSketch implements DoubleConsumer {
+
+	/**
+	 * Default accuracy parameter (k), approximately 1% rank error.
+	 */
+	public static final int DEFAULT_ACCURACY = 200;
+
+	private static final double CAPACITY_DECAY = 2.0 / 3.0;
+
+	private final int accuracy;
+
+	private final List<Compactor> levels = new ArrayList<>();
+
+	private int retained = 0;
+
+	private int maxRetained = 0;
+
+	private long count = 0;
+
+	private double min = Double.POSITIVE_INFINITY;
+
+	private double max = Double.NEGATIVE_INFINITY;
+
+	public QuantileSketch() {
+		this(DEFAULT_ACCURACY);
+	}
+
+	/**
+	 * @param accuracy Size (k) of the top level compactor, larger values lead to more accurate quantiles (must be at least 8).
+	 */
+	public QuantileSketch(int accuracy) {
+		if (accuracy < 8) {
+			throw new IllegalArgumentException("Accuracy (k) must be at least 8.");
+		}
+		this.accuracy = accuracy;
+		grow();
+	}
+
+	@Override
+	public void accept(double value) {
+		if (!Double.isFinite(value))
+			return;
+
+		count++;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+
+		levels.get(0).add(value);
+		retained++;
+		if (retained >= maxRetained) {
+			compress();
+		}
+	}
+
+	/**
+	 * Adds all values represented by the other sketch to this sketch. The other sketch is not modified.
+	 *
+	 * @param other {@link QuantileSketch}
+	 */
+	public void merge(QuantileSketch other) {
+		if (other.count == 0) {
+			return;
+		}
+		while (levels.size() < other.levels.size()) {
+			grow();
+		}
+		for (int h = 0; h < other.levels.size(); h++) {
+			levels.get(h).addAll(other.levels.get(h));
+		}
+		count += other.count;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+
+		retained = retained();
+		while (retained >= maxRetained) {
+			compress();
+		}
+	}
+
+	/**
+	 * @param p quantile between 0.0 and 1.0, e.g. 0.5 for the median
+	 * @return approximate value below or at which the given fraction of all values is located, NaN if no value has been accepted
+	 */
+	public double getQuantile(double p) {
+		if (!(p >= 0.0 && p <= 1.0)) {
+			throw new IllegalArgumentException("Quantile must be within 0.0 and 1.0 but was " + p + ".");
+		}
+		if (count == 0)
+			return Double.NaN;
+
+		if (p == 0.0)
+			return min;
+
+		if (p == 1.0)
+			return max;
+
+		double[] values = new double[0];
+		long[] weights = new long[0];
+		for (int h = 0; h < levels.size(); h++) {
+			Compactor level = levels.get(h);
+			double[] sorted = Arrays.copyOf(level.items, level.size);
+			Arrays.sort(sorted);
+			long[] weight = new long[sorted.length];
+			Arrays.fill(weight, 1L << h);
+			int merged = values.length + sorted.length;
+			double[] mergedValues = new double[merged];
+			long[] mergedWeights = new long[merged];
+			int i = 0;
+			int j = 0;
+			for (int m = 0; m < merged; m++) {
+				if (j >= sorted.length || (i < values.length && values[i] <= sorted[j])) {
+					mergedValues[m] = values[i];
+					mergedWeights[m] = weights[i++];
+				} else {
+					mergedValues[m] = sorted[j];
+					mergedWeights[m] = weight[j++];
+				}
+			}
+			values = mergedValues;
+			weights = mergedWeights;
+		}
+
+		double rank = p * count;
+		long cumulated = 0;
+		for (int i = 0; i < values.length; i++) {
+			cumulated += weights[i];
+			if (cumulated >= rank) {
+				return values[i];
+			}
+		}
+		return max;
+	}
+
+	public double getMedian() {
+		return getQuantile(0.5);
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public int getAccuracy() {
+		return accuracy;
+	}
+
+	/**
+	 * @return Number of values currently kept by the sketch
+	 */
+	int getRetained() {
+		return retained;
+	}
+
+	private void grow() {
+		levels.add(new Compactor());
+		int total = 0;
+		for (int h = 0; h < levels.size(); h++) {
+			total += capacity(h);
+		}
+		maxRetained = total;
+	}
+
+	private int capacity(int level) {
+		int height = levels.size() - level - 1;
+		return Math.max(2, (int) Math.ceil(accuracy * Math.pow(CAPACITY_DECAY, height)) + 1);
+	}
+
+	/*
+	 * Compacts levels from bottom to top until the sketch is no longer full.
+	 */
+	private void compress() {
+		for (int h = 0; h < levels.size(); h++) {
+			if (levels.get(h).size >= capacity(h)) {
+				if (h + 1 == levels.size()) {
+					grow();
+				}
+				levels.get(h).compactInto(levels.get(h + 1));
+				retained = retained();
+				if (retained < maxRetained) {
+					break;
+				}
+			}
+		}
+	}
+
+	private int retained() {
+		int total = 0;
+		for (Compactor level : levels) {
+			total += level.size;
+		}
+		return total;
+	}
+
+	@Override
+	public String toString() {
+		return "QuantileSketch [k=" + accuracy + ", count=" + count + ", retained=" + retained + ", levels=" + levels.size() + "]";
+	}
+
+	private static final class Compactor {
+
+		private double[] items = new double[16];
+
+		private int size = 0;
+
+		private boolean keepOdd = false;
+
+		private void add(double value) {
+			if (size == items.length) {
+				items = Arrays.copyOf(items, size << 1);
+			}
+			items[size++] = value;
+		}
+
+		private void addAll(Compactor other) {
+			if (size + other.size > items.length) {
+				items = Arrays.copyOf(items, Math.max(size + other.size, items.length << 1));
+			}
+			System.arraycopy(other.items, 0, items, size, other.size);
+			size += other.size;
+		}
+
+		/*
+		 * Sorts all items and moves every second one to the next level.
+		 * For an odd number of items, the smallest one is kept in this level.
+		 */
+		private void compactInto(Compactor next) {
+			Arrays.sort(items, 0, size);
+			int first = size % 2;
+			for (int i = first + (keepOdd ? 1 : 0); i < size; i += 2) {
+				next.add(items[i]);
+			}
+			size = first;
+			keepOdd = !keepOdd;
+		}
+	}
+}
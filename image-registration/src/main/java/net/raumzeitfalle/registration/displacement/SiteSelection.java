@@ -0,0 +1,220 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.displacement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+/**
+ * Compact bit mask which marks the selected sites of a collection of displacements.
+ * <p>
+ * A {@link Predicate} is evaluated only once per {@link Displacement} when the {@link SiteSelection} is created.
+ * Sites are identified by their position in iteration order of the collection, hence a {@link SiteSelection} also applies
+ * to corrected displacements, as corrections keep order and number of sites.
+ * Selections are combined using bitwise operations ({@link #and(SiteSelection)}, {@link #or(SiteSelection)} and {@link #not()}),
+ * so that the predicates are not evaluated again.
+ *
+ */
+public final class SiteSelection {
+
+	/**
+	 * Evaluates the given selector once for each {@link Displacement}.
+	 *
+	 * @param displacements {@link Collection} of {@link Displacement}
+	 * @param selector {@link Predicate} which matches all selected displacements
+	 * @return {@link SiteSelection}
+	 */
+	public static SiteSelection of(Collection<Displacement> displacements, Predicate<Displacement> selector) {
+		Objects.requireNonNull(selector, "selector must not be null");
+		SiteSelection selection = none(displacements.size());
+		int site = 0;
+		for (Displacement d : displacements) {
+			if (selector.test(d)) {
+				selection.words[site >> 6] |= 1L << site;
+			}
+			site++;
+		}
+		return selection;
+	}
+
+	/**
+	 * @param size number of sites
+	 * @return {@link SiteSelection} where all sites are selected
+	 */
+	public static SiteSelection all(int size) {
+		return none(size).not();
+	}
+
+	/**
+	 * @param size number of sites
+	 * @return {@link SiteSelection} where no site is selected
+	 */
+	public static SiteSelection none(int size) {
+		if (size < 0) {
+			throw new IllegalArgumentException("Number of sites must not be negative.");
+		}
+		return new SiteSelection(size, new long[(size + 63) >> 6]);
+	}
+
+	private final int size;
+
+	private final long[] words;
+
+	private SiteSelection(int size, long[] words) {
+		this.size = size;
+		this.words = words;
+	}
+
+	/**
+	 * @param site position of a {@link Displacement} in iteration order
+	 * @return true when the given site is selected
+	 */
+	public boolean isSelected(int site) {
+		Objects.checkIndex(site, size);
+		return (words[site >> 6] & (1L << site)) != 0;
+	}
+
+	/**
+	 * @return number of sites in this selection, selected or not
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return number of selected sites
+	 */
+	public int count() {
+		int count = 0;
+		for (long word : words) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+	/**
+	 * @param other {@link SiteSelection} of the same number of sites
+	 * @return {@link SiteSelection} of sites selected in both selections
+	 */
+	public SiteSelection and(SiteSelection other) {
+		checkSize(other);
+		long[] combined = new long[words.length];
+		for (int i = 0; i < combined.length; i++) {
+			combined[i] = words[i] & other.words[i];
+		}
+		return new SiteSelection(size, combined);
+	}
+
+	/**
+	 * @param other {@link SiteSelection} of the same number of sites
+	 * @return {@link SiteSelection} of sites selected in any of both selections
+	 */
+	public SiteSelection or(SiteSelection other) {
+		checkSize(other);
+		long[] combined = new long[words.length];
+		for (int i = 0; i < combined.length; i++) {
+			combined[i] = words[i] | other.words[i];
+		}
+		return new SiteSelection(size, combined);
+	}
+
+	/**
+	 * @return {@link SiteSelection} of all sites which are not selected in this selection
+	 */
+	public SiteSelection not() {
+		long[] inverted = new long[words.length];
+		for (int i = 0; i < inverted.length; i++) {
+			inverted[i] = ~words[i];
+		}
+		int unused = (words.length << 6) - size;
+		if (unused > 0) {
+			inverted[inverted.length - 1] &= -1L >>> unused;
+		}
+		return new SiteSelection(size, inverted);
+	}
+
+	/**
+	 * Collects the selected displacements in iteration order. The given collection must be the collection this selection
+	 * was created for or a collection derived from it with the same number and order of sites (e.g. corrected displacements).
+	 *
+	 * @param displacements {@link Collection} of {@link Displacement}
+	 * @return {@link List} of selected {@link Displacement}
+	 */
+	public List<Displacement> select(Collection<Displacement> displacements) {
+		if (displacements.size() != size) {
+			throw new IllegalArgumentException("The number of displacements (" + displacements.size()
+					+ ") does not match the number of sites in selection (" + size + ").");
+		}
+		List<Displacement> selected = new ArrayList<>(count());
+		if (displacements instanceof RandomAccess && displacements instanceof List) {
+			List<Displacement> list = (List<Displacement>) displacements;
+			for (int i = 0; i < words.length; i++) {
+				long word = words[i];
+				while (word != 0) {
+					selected.add(list.get((i << 6) + Long.numberOfTrailingZeros(word)));
+					word &= word - 1;
+				}
+			}
+			return selected;
+		}
+		Iterator<Displacement> iterator = displacements.iterator();
+		for (int site = 0; site < size; site++) {
+			Displacement d = iterator.next();
+			if ((words[site >> 6] & (1L << site)) != 0) {
+				selected.add(d);
+			}
+		}
+		return selected;
+	}
+
+	private void checkSize(SiteSelection other) {
+		if (other.size != size) {
+			throw new IllegalArgumentException("Selections must refer to the same number of sites.");
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * size + Arrays.hashCode(words);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		SiteSelection other = (SiteSelection) obj;
+		return size == other.size && Arrays.equals(words, other.words);
+	}
+
+	@Override
+	public String toString() {
+		return "SiteSelection [sites=" + size + ", selected=" + count() + "]";
+	}
+}
@@ -0,0 +1,281 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.distortions;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.stream.Collector;
+
+import net.raumzeitfalle.registration.DegreesOfFreedom;
+import net.raumzeitfalle.registration.DifferencesVector;
+import net.raumzeitfalle.registration.NormalEquationsAccumulator;
+import net.raumzeitfalle.registration.Orientation;
+import net.raumzeitfalle.registration.Orientations;
+import net.raumzeitfalle.registration.ReferencesMatrix;
+import net.raumzeitfalle.registration.alignment.TranslateFunction;
+import net.raumzeitfalle.registration.displacement.Displacement;
+import net.raumzeitfalle.registration.solver.NormalEquations;
+
+/**
+ * Column oriented storage of affine model equations, one row per finite X or Y value of a {@link Displacement}.
+ * <p>
+ * Rows are written directly into {@link ReferencesMatrix}, {@link DifferencesVector} or {@link NormalEquations}
+ * by {@link BasicAffineModel} and {@link OneDimensionalAffineModel}. Other {@link AffineModel} implementations see the table
+ * as {@link java.util.List} of {@link AffineModelEquation}, which are created on access.
+ *
+ */
+final class AffineEquationTable extends AbstractList<AffineModelEquation> implements RandomAccess {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * Creates a {@link Collector} which creates the equations for each {@link Displacement} moved by the given
+	 * {@link TranslateFunction} and collects the {@link DegreesOfFreedom} of all moved displacements.
+	 * The displacements are moved without creating new {@link Displacement} instances. Partial results are appended
+	 * in encounter order, so that the collector can be used with parallel streams.
+	 *
+	 * @param translate {@link TranslateFunction} applied to each {@link Displacement} before creating its equations
+	 * @return {@link Collector} of {@link AffineEquationTable}
+	 */
+	static Collector<Displacement, AffineEquationTable, AffineEquationTable> collector(TranslateFunction translate) {
+		double offsetX = translate.getX();
+		double offsetY = translate.getY();
+		return Collector.of(AffineEquationTable::new,
+							(table, d) -> table.accept(d, offsetX, offsetY),
+							AffineEquationTable::combine,
+							Collector.Characteristics.IDENTITY_FINISH);
+	}
+
+	private final DegreesOfFreedom degreesOfFreedom = new DegreesOfFreedom();
+
+	private boolean[] alongX;
+
+	private double[] refx;
+
+	private double[] refy;
+
+	private double[] delta;
+
+	private int rows = 0;
+
+	static AffineEquationTable withCapacity(int capacity) {
+		return new AffineEquationTable(Math.max(capacity, 1));
+	}
+
+	private AffineEquationTable() {
+		this(INITIAL_CAPACITY);
+	}
+
+	private AffineEquationTable(int capacity) {
+		alongX = new boolean[capacity];
+		refx = new double[capacity];
+		refy = new double[capacity];
+		delta = new double[capacity];
+	}
+
+	private void accept(Displacement d, double offsetX, double offsetY) {
+		accept(d.getX(), d.getY(), d.getXd(), d.getYd(), offsetX, offsetY);
+	}
+
+	/*
+	 * Same values as obtained by Displacement.moveBy(offsetX, offsetY).
+	 */
+	private void accept(double designX, double designY, double displacedX, double displacedY, double offsetX, double offsetY) {
+		double x = offsetX + designX;
+		double y = offsetY + designY;
+		double xd = offsetX + displacedX;
+		double yd = offsetY + displacedY;
+
+		degreesOfFreedom.accept(x, y, xd, yd);
+
+		if (Double.isFinite(xd)) {
+			add(true, x, y, xd - x);
+		}
+
+		if (Double.isFinite(yd)) {
+			add(false, x, y, yd - y);
+		}
+	}
+
+	private void add(boolean x, double designX, double designY, double deltaValue) {
+		ensureCapacity(rows + 1);
+		alongX[rows] = x;
+		refx[rows] = designX;
+		refy[rows] = designY;
+		delta[rows] = deltaValue;
+		rows++;
+	}
+
+	private AffineEquationTable combine(AffineEquationTable other) {
+		ensureCapacity(rows + other.rows);
+		System.arraycopy(other.alongX, 0, alongX, rows, other.rows);
+		System.arraycopy(other.refx, 0, refx, rows, other.rows);
+		System.arraycopy(other.refy, 0, refy, rows, other.rows);
+		System.arraycopy(other.delta, 0, delta, rows, other.rows);
+		rows += other.rows;
+		degreesOfFreedom.combine(other.degreesOfFreedom);
+		return this;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > delta.length) {
+			int grown = Math.max(capacity, delta.length << 1);
+			alongX = Arrays.copyOf(alongX, grown);
+			refx = Arrays.copyOf(refx, grown);
+			refy = Arrays.copyOf(refy, grown);
+			delta = Arrays.copyOf(delta, grown);
+		}
+	}
+
+	DegreesOfFreedom getDegreesOfFreedom() {
+		return degreesOfFreedom;
+	}
+
+	/**
+	 * @param orientation {@link Orientations#X} or {@link Orientations#Y}
+	 * @return {@link AffineEquationTable} with all equations of the given orientation, degrees of freedom are not collected
+	 */
+	AffineEquationTable select(Orientation orientation) {
+		boolean x = Orientations.X.equals(orientation);
+		boolean y = Orientations.Y.equals(orientation);
+		AffineEquationTable selected = withCapacity(rows);
+		for (int row = 0; row < rows; row++) {
+			if ((x && alongX[row]) || (y && !alongX[row])) {
+				selected.add(alongX[row], refx[row], refy[row], delta[row]);
+			}
+		}
+		return selected;
+	}
+
+	@Override
+	public AffineModelEquation get(int row) {
+		Objects.checkIndex(row, rows);
+		return AffineModelEquation.of(refx[row], refy[row], delta[row], alongX[row] ? Orientations.X : Orientations.Y);
+	}
+
+	@Override
+	public int size() {
+		return rows;
+	}
+
+	/**
+	 * Writes the coefficients of the given row in the same way as {@link ReferencesMatrix#set2D(int, AffineModelEquation, Orientation)}.
+	 */
+	private void writeRow2D(int row, double[] target, Orientation direction) {
+		boolean x = alongX[row];
+		double sx = x ? refx[row] : 0.0;
+		double sy = x ? 0.0 : refy[row];
+		double ox = x ? 0.0 : -refx[row];
+		double oy = x ? refy[row] : 0.0;
+		double tx = x ? 1.0 : 0.0;
+		double ty = x ? 0.0 : 1.0;
+
+		if (Orientations.X.equals(direction)) {
+			target[0] = sx;
+			target[1] = oy;
+			target[2] = tx;
+		}
+
+		if (Orientations.Y.equals(direction)) {
+			target[0] = sy;
+			target[1] = ox;
+			target[2] = ty;
+		}
+
+		if (Orientations.XY.equals(direction)) {
+			target[0] = sx;
+			target[1] = sy;
+			target[2] = ox;
+			target[3] = oy;
+			target[4] = tx;
+			target[5] = ty;
+		}
+	}
+
+	/**
+	 * Writes the coefficients of the given row in the same way as {@link ReferencesMatrix#set1D(int, AffineModelEquation, Orientation)}.
+	 */
+	private void writeRow1D(int row, double[] target) {
+		if (alongX[row]) {
+			target[0] = refx[row];
+			target[1] = refy[row];
+			target[2] = 1.0;
+			target[3] = 0.0;
+		} else {
+			target[0] = refy[row];
+			target[1] = -refx[row];
+			target[2] = 0.0;
+			target[3] = 1.0;
+		}
+	}
+
+	ReferencesMatrix references(Orientation direction, int cols) {
+		ReferencesMatrix references = new ReferencesMatrix(rows, cols);
+		double[][] matrix = references.getArray();
+		for (int row = 0; row < rows; row++) {
+			writeRow2D(row, matrix[row], direction);
+		}
+		return references;
+	}
+
+	ReferencesMatrix references1D(int cols) {
+		ReferencesMatrix references = new ReferencesMatrix(rows, cols);
+		double[][] matrix = references.getArray();
+		for (int row = 0; row < rows; row++) {
+			writeRow1D(row, matrix[row]);
+		}
+		return references;
+	}
+
+	DifferencesVector deltas() {
+		return DifferencesVector.from(delta, rows);
+	}
+
+	/**
+	 * Accumulates the rows as provided by {@link #references(Orientation, int)}, the accumulator decides whether this happens in parallel.
+	 */
+	NormalEquations accumulate(NormalEquationsAccumulator accumulator, Orientation direction, int cols) {
+		return accumulator.accumulate(rows, cols, (row, coefficients) -> {
+			writeRow2D(row, coefficients, direction);
+			return delta[row];
+		});
+	}
+
+	/**
+	 * @param other {@link AffineEquationTable} to compare with
+	 * @return true when both tables consist of equations with the same orientation and reference coefficients in the same order, delta values are not compared.
+	 */
+	boolean hasSameDesign(AffineEquationTable other) {
+		if (rows != other.rows) {
+			return false;
+		}
+		for (int row = 0; row < rows; row++) {
+			if (alongX[row] != other.alongX[row]
+					|| Double.compare(refx[row], other.refx[row]) != 0
+					|| Double.compare(refy[row], other.refy[row]) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
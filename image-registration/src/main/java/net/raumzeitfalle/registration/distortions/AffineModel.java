@@ -19,11 +19,29 @@
  */
 package net.raumzeitfalle.registration.distortions;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import net.raumzeitfalle.registration.DegreesOfFreedom;
 import net.raumzeitfalle.registration.Orientable;
 
 public interface AffineModel {
 	<T extends Orientable> AffineTransform solve(Collection<AffineModelEquation> equations, DegreesOfFreedom dimension);
+	
+	/**
+	 * Solves several sets of equations which share the same design (references), e.g. repeated measurements of one layout.
+	 * All sets must consist of equations with identical reference coefficients in identical order, only the delta values may differ.
+	 * 
+	 * @param runs List of equation sets sharing the same design
+	 * @param dimension {@link DegreesOfFreedom} which apply to all sets
+	 * @return List of {@link AffineTransform} in order of the given sets
+	 */
+	default List<AffineTransform> solveAll(List<? extends Collection<AffineModelEquation>> runs, DegreesOfFreedom dimension) {
+		List<AffineTransform> transforms = new ArrayList<>(runs.size());
+		for (Collection<AffineModelEquation> equations : runs) {
+			transforms.add(solve(equations, dimension));
+		}
+		return transforms;
+	}
 }
@@ -52,6 +52,10 @@ public final class AffineModelEquation implements ModelEquation {
     	return new AffineModelEquation(d.getX(), d.getY(), d.dY(), Orientations.Y);
     }
         
+    static AffineModelEquation of(double refx, double refy, double delta, Orientation direction) {
+    	return new AffineModelEquation(refx, refy, delta, direction);
+    }
+        
     private final double sx;
     
     private final double sy;
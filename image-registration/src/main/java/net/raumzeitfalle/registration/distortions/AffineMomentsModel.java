@@ -0,0 +1,244 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.distortions;
+
+import net.raumzeitfalle.registration.Distribution;
+import net.raumzeitfalle.registration.Orientation;
+import net.raumzeitfalle.registration.Orientations;
+import net.raumzeitfalle.registration.RegistrationMoments;
+import net.raumzeitfalle.registration.solver.Solutions;
+
+/**
+ * Closed form least squares solution of the affine models using {@link RegistrationMoments}.
+ * <p>
+ * Design locations are centered at the mean design location, as done by {@link AffineTransformCalculation}.
+ * The X equations (s<sub>x</sub>, o<sub>y</sub>, t<sub>x</sub>) and Y equations (s<sub>y</sub>, o<sub>x</sub>, t<sub>y</sub>)
+ * are independent, hence each direction reduces to a 2x2 system of centered co-moments once the translation is eliminated.
+ * The one dimensional model (see {@link OneDimensionalAffineModel}) uses the 4x4 normal equations which are restored from the moments.
+ *
+ */
+final class AffineMomentsModel {
+
+	/*
+	 * Relative size of a determinant or pivot below which a system is considered as singular.
+	 */
+	private static final double SINGULARITY_TOLERANCE = 1E-12;
+
+	/**
+	 * @param moments {@link RegistrationMoments} with at least one X or Y value
+	 * @return {@link AffineTransform} for design locations centered at {@link RegistrationMoments#getDesignMeanX()}
+	 *         and {@link RegistrationMoments#getDesignMeanY()}
+	 * @throws ArithmeticException when the design locations of one direction do not span an area
+	 */
+	AffineTransform solve(RegistrationMoments moments) {
+		double cx = moments.getDesignMeanX();
+		double cy = moments.getDesignMeanY();
+		RegistrationMoments.Moments x = moments.getX();
+		RegistrationMoments.Moments y = moments.getY();
+		Orientation direction = moments.getDirection();
+
+		double[] xSolution = new double[3];
+		if (x.getCount() > 0) {
+			double[] scaleAndOrtho = solve(x.getXX(), x.getXY(), x.getYY(), x.getXDelta(), x.getYDelta());
+			double sx = scaleAndOrtho[0];
+			double oy = scaleAndOrtho[1];
+			double tx = x.getMeanDelta() - sx * (x.getMeanX() - cx) - oy * (x.getMeanY() - cy);
+			xSolution = new double[] { sx, oy, tx };
+		}
+
+		double[] ySolution = new double[3];
+		if (y.getCount() > 0) {
+			double[] scaleAndOrtho = solve(y.getYY(), -y.getXY(), y.getXX(), y.getYDelta(), -y.getXDelta());
+			double sy = scaleAndOrtho[0];
+			double ox = scaleAndOrtho[1];
+			double ty = y.getMeanDelta() - sy * (y.getMeanY() - cy) + ox * (y.getMeanX() - cx);
+			ySolution = new double[] { sy, ox, ty };
+		}
+
+		double[] solution = xSolution;
+		if (Orientations.Y.equals(direction)) {
+			solution = ySolution;
+		}
+		if (Orientations.XY.equals(direction)) {
+			solution = new double[] { xSolution[0], ySolution[0], ySolution[1], xSolution[1], xSolution[2], ySolution[2] };
+		}
+
+		return direction.runOperation(new BasicAffineTransformFactory(Solutions.fromArray(solution)));
+	}
+
+	/**
+	 * Solves the one dimensional model (scale, rotation, t<sub>x</sub>, t<sub>y</sub>) for sites along one horizontal or vertical line.
+	 *
+	 * @param moments {@link RegistrationMoments} with at least one X or Y value
+	 * @return {@link AffineTransform} for design locations centered at the mean design location
+	 * @throws ArithmeticException when the normal equations are singular
+	 * @throws UnsupportedOperationException when sites are neither distributed horizontally nor vertically
+	 */
+	AffineTransform solve1D(RegistrationMoments moments) {
+		Distribution distribution = moments.getDistribution();
+		if (!Distribution.HORIZONTAL.equals(distribution) && !Distribution.VERTICAL.equals(distribution)) {
+			String message = String.format("Evaluation of data with %s spatial orientation not supported.", distribution);
+			throw new UnsupportedOperationException(message);
+		}
+
+		double cx = moments.getDesignMeanX();
+		double cy = moments.getDesignMeanY();
+		double[][] normals = new double[4][4];
+		double[] rhs = new double[4];
+
+		/*
+		 * X rows: [u, v, 1, 0], Y rows: [v, -u, 0, 1] with u = x - cx and v = y - cy
+		 */
+		RegistrationMoments.Moments x = moments.getX();
+		if (x.getCount() > 0) {
+			Sums s = new Sums(x, cx, cy);
+			add(normals, 0, 0, s.uu);
+			add(normals, 0, 1, s.uv);
+			add(normals, 0, 2, s.u);
+			add(normals, 1, 1, s.vv);
+			add(normals, 1, 2, s.v);
+			add(normals, 2, 2, s.n);
+			rhs[0] += s.ud;
+			rhs[1] += s.vd;
+			rhs[2] += s.d;
+		}
+
+		RegistrationMoments.Moments y = moments.getY();
+		if (y.getCount() > 0) {
+			Sums s = new Sums(y, cx, cy);
+			add(normals, 0, 0, s.vv);
+			add(normals, 0, 1, -s.uv);
+			add(normals, 0, 3, s.v);
+			add(normals, 1, 1, s.uu);
+			add(normals, 1, 3, -s.u);
+			add(normals, 3, 3, s.n);
+			rhs[0] += s.vd;
+			rhs[1] -= s.ud;
+			rhs[3] += s.d;
+		}
+
+		double[] solved = gaussianElimination(normals, rhs);
+		double scale = solved[0];
+		double rot = solved[1];
+		double tx = solved[2];
+		double ty = solved[3];
+
+		if (Distribution.HORIZONTAL.equals(distribution)) {
+			return SimpleAffineTransform.horizontal(tx, ty, scale, rot);
+		}
+		return SimpleAffineTransform.vertical(tx, ty, scale, rot);
+	}
+
+	/*
+	 * Solves [a b; b d][p; q] = [e; f]
+	 */
+	private static double[] solve(double a, double b, double d, double e, double f) {
+		double determinant = a * d - b * b;
+		if (!(a > 0.0 && d > 0.0 && determinant > SINGULARITY_TOLERANCE * a * d)) {
+			throw new ArithmeticException("Matrix is singular.");
+		}
+		return new double[] { (d * e - b * f) / determinant, (a * f - b * e) / determinant };
+	}
+
+	/*
+	 * Adds the value to the symmetric matrix at (row, col) and (col, row).
+	 */
+	private static void add(double[][] matrix, int row, int col, double value) {
+		matrix[row][col] += value;
+		if (row != col) {
+			matrix[col][row] += value;
+		}
+	}
+
+	private static double[] gaussianElimination(double[][] matrix, double[] rhs) {
+		int size = rhs.length;
+		double scale = 0.0;
+		for (int i = 0; i < size; i++) {
+			scale = Math.max(scale, Math.abs(matrix[i][i]));
+		}
+
+		for (int col = 0; col < size; col++) {
+			int pivot = col;
+			for (int row = col + 1; row < size; row++) {
+				if (Math.abs(matrix[row][col]) > Math.abs(matrix[pivot][col])) {
+					pivot = row;
+				}
+			}
+			if (!(Math.abs(matrix[pivot][col]) > SINGULARITY_TOLERANCE * scale)) {
+				throw new ArithmeticException("Matrix is singular.");
+			}
+			double[] swappedRow = matrix[col];
+			matrix[col] = matrix[pivot];
+			matrix[pivot] = swappedRow;
+			double swappedValue = rhs[col];
+			rhs[col] = rhs[pivot];
+			rhs[pivot] = swappedValue;
+
+			for (int row = col + 1; row < size; row++) {
+				double factor = matrix[row][col] / matrix[col][col];
+				for (int k = col; k < size; k++) {
+					matrix[row][k] -= factor * matrix[col][k];
+				}
+				rhs[row] -= factor * rhs[col];
+			}
+		}
+
+		double[] solution = new double[size];
+		for (int row = size - 1; row >= 0; row--) {
+			double sum = rhs[row];
+			for (int k = row + 1; k < size; k++) {
+				sum -= matrix[row][k] * solution[k];
+			}
+			solution[row] = sum / matrix[row][row];
+		}
+		return solution;
+	}
+
+	/*
+	 * Raw sums of one direction restored from its moments, with design locations centered at (cx, cy).
+	 */
+	private static final class Sums {
+		private final double n;
+		private final double u;
+		private final double v;
+		private final double d;
+		private final double uu;
+		private final double uv;
+		private final double vv;
+		private final double ud;
+		private final double vd;
+
+		private Sums(RegistrationMoments.Moments moments, double cx, double cy) {
+			n = moments.getCount();
+			double meanU = moments.getMeanX() - cx;
+			double meanV = moments.getMeanY() - cy;
+			double meanD = moments.getMeanDelta();
+			u = n * meanU;
+			v = n * meanV;
+			d = n * meanD;
+			uu = moments.getXX() + n * meanU * meanU;
+			uv = moments.getXY() + n * meanU * meanV;
+			vv = moments.getYY() + n * meanV * meanV;
+			ud = moments.getXDelta() + n * meanU * meanD;
+			vd = moments.getYDelta() + n * meanV * meanD;
+		}
+	}
+
+}
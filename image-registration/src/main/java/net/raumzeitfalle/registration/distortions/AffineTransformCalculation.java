@@ -20,41 +20,82 @@
 package net.raumzeitfalle.registration.distortions;
 
 import java.lang.System.Logger.Level;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.stream.Collector;
 import java.util.stream.Collectors;
 
 import net.raumzeitfalle.registration.DegreesOfFreedom;
+import net.raumzeitfalle.registration.ModelEquations;
+import net.raumzeitfalle.registration.ModelEquationsView;
+import net.raumzeitfalle.registration.NormalEquationsAccumulator;
+import net.raumzeitfalle.registration.RegistrationMoments;
 import net.raumzeitfalle.registration.alignment.TranslateFunction;
 import net.raumzeitfalle.registration.displacement.Displacement;
+import net.raumzeitfalle.registration.solver.SolverMode;
+import net.raumzeitfalle.registration.solver.SolverProvider;
 
 public final class AffineTransformCalculation implements BiFunction<Collection<Displacement>, Predicate<Displacement>, AffineTransform> {
 
+	/**
+	 * Creates a calculation which processes large data sets in parallel using the common {@link java.util.concurrent.ForkJoinPool}.
+	 * For at least the given number of displacements, the equations are created using a parallel stream. Systems with at least the given
+	 * number of equations are solved using normal equations, which are accumulated in parallel tasks and combined pairwise
+	 * (see {@link NormalEquationsAccumulator}). Smaller data sets are processed sequentially.
+	 * 
+	 * @param parallelThreshold Number of displacements or equations from which on the calculation runs in parallel (must be positive).
+	 * @return {@link AffineTransformCalculation} in parallel mode
+	 */
+	public static AffineTransformCalculation parallel(int parallelThreshold) {
+		NormalEquationsAccumulator accumulator = new NormalEquationsAccumulator(parallelThreshold);
+		return new AffineTransformCalculation(new BasicAffineModel(accumulator), DEFAULT_ERROR_HANDLER, parallelThreshold);
+	}
+	
+	/**
+	 * Creates a calculation in parallel mode with {@link NormalEquationsAccumulator#DEFAULT_THRESHOLD}, see {@link #parallel(int)}.
+	 * 
+	 * @return {@link AffineTransformCalculation} in parallel mode
+	 */
+	public static AffineTransformCalculation parallel() {
+		return parallel(NormalEquationsAccumulator.DEFAULT_THRESHOLD);
+	}
+	
 	private final AffineModel model;
 	
 	private Function<Exception, AffineTransform> errorHandler;
 	
+	private final int parallelThreshold;
+	
 	private static final System.Logger LOGGER = System.getLogger(AffineTransformCalculation.class.getName());
 	
+	private static final Function<Exception, AffineTransform> DEFAULT_ERROR_HANDLER = ex->{
+		LOGGER.log(Level.WARNING, "Model calculation error -> continuing with a SkipTransform.", ex);
+		return SkipAffineTransform.centeredAt(0, 0);
+	};
+	
 	public AffineTransformCalculation() {
 		this(new BasicAffineModel());
 	}
 	
 	
 	public AffineTransformCalculation(AffineModel model) {
-		this(model, ex->{
-			LOGGER.log(Level.WARNING, "Model calculation error -> continuing with a SkipTransform.", ex);
-			return SkipAffineTransform.centeredAt(0, 0);
-		});
+		this(model, DEFAULT_ERROR_HANDLER);
 	}
 	
 	public AffineTransformCalculation(AffineModel model, Function<Exception, AffineTransform> onError) {
+		this(model, onError, Integer.MAX_VALUE);
+	}
+	
+	private AffineTransformCalculation(AffineModel model, Function<Exception, AffineTransform> onError, int parallelThreshold) {
 		this.model = Objects.requireNonNull(model, "The used AffineModel for calculation must not be null.");
 		this.errorHandler = Objects.requireNonNull(onError, "The error handler (onError) must not be null.");
+		this.parallelThreshold = parallelThreshold;
 	}
 	
 	@Override
@@ -63,26 +104,165 @@ public final class AffineTransformCalculation implements BiFunction<Collection<D
     		return SkipAffineTransform.centeredAt(0, 0);
 
     	TranslateFunction translate = Displacement.translationToCenter(t, u);
-    
-    	DegreesOfFreedom degreesOfFreedom = new DegreesOfFreedom();
     	
-    	List<AffineModelEquation> finalEquations = t.stream()
-    												.filter(u)
-    												.map(translate)
-    												.map(degreesOfFreedom)
-									                .flatMap(AffineModelEquation::from)
-									                .collect(Collectors.toList());
+    	if (useEquationsView(t)) {
+    		ModelEquationsView<AffineModelEquation> equations = ModelEquationsView.of(t, u, d -> AffineModelEquation.from(translate.apply(d)));
+    		return solve(equations, equations.getDegreesOfFreedom(), translate);
+    	}
+    
+    	AffineEquationTable finalEquations = createEquations(t, u, translate);
     	
-    	if (finalEquations.isEmpty())
+    	return solve(finalEquations, translate);
+	}
+	
+	/*
+	 * Normal equations are accumulated by visiting each equation once, hence there is no need to keep them in memory.
+	 * Large collections are collected into tables nevertheless, as those are accumulated in parallel.
+	 */
+	private boolean useEquationsView(Collection<Displacement> t) {
+		return t.size() < parallelThreshold
+				&& SolverMode.NORMAL_EQUATIONS.equals(SolverProvider.getInstance().getMode());
+	}
+	
+	/**
+	 * Creates a {@link Collector} which calculates the {@link AffineTransform} for all collected displacements, 
+	 * with the same result as {@link #apply(Collection, Predicate)} for all selected displacements within numerical precision.
+	 * <p>
+	 * Only the {@link RegistrationMoments} are collected, hence the displacements are not kept in memory. The partial moments
+	 * can be merged, so that the collector can be used with parallel streams. The transform is calculated as by {@link #apply(RegistrationMoments)}.
+	 * 
+	 * @return {@link Collector} calculating an {@link AffineTransform}
+	 */
+	public Collector<Displacement, ?, AffineTransform> collector() {
+		return Collectors.collectingAndThen(RegistrationMoments.collector(), this::apply);
+	}
+	
+	/**
+	 * Calculates the {@link AffineTransform} from the given {@link RegistrationMoments} in closed form, without processing the displacements again.
+	 * The result is the least squares solution for all displacements collected in the moments, same as {@link #apply(Collection, Predicate)}
+	 * within numerical precision. The configured {@link AffineModel} is not used, sites along one horizontal or vertical line are
+	 * evaluated using the one dimensional model. When no solution can be found, the error handler is called.
+	 * 
+	 * @param moments {@link RegistrationMoments} of all displacements to be used for calculation
+	 * @return {@link AffineTransform}
+	 */
+	public AffineTransform apply(RegistrationMoments moments) {
+		if (0 == moments.getX().getCount() && 0 == moments.getY().getCount())
+			return SkipAffineTransform.centeredAt(0, 0);
+		
+		AffineTransform transform = tryCalculation(moments);
+		
+		return new AffineTransformBuilder(transform, moments.getDesignMeanX(), moments.getDesignMeanY()).build();
+	}
+	
+	private AffineTransform tryCalculation(RegistrationMoments moments) {
+		AffineMomentsModel momentsModel = new AffineMomentsModel();
+		try {
+			return momentsModel.solve(moments);
+		}
+		catch (Exception e) {
+			try {
+				return momentsModel.solve1D(moments);
+			}
+			catch (Exception oneDimError) {
+				return errorHandler.apply(oneDimError);
+			}
+		}
+	}
+	
+	private AffineTransform solve(AffineEquationTable finalEquations, TranslateFunction translate) {
+		return solve(finalEquations, finalEquations.getDegreesOfFreedom(), translate);
+	}
+	
+	private AffineTransform solve(Collection<AffineModelEquation> finalEquations, DegreesOfFreedom degreesOfFreedom, TranslateFunction translate) {
+		if (finalEquations.isEmpty())
     		return SkipAffineTransform.centeredAt(0, 0);
 
         AffineTransform transform = tryCalculation(finalEquations, degreesOfFreedom);
         
         return new AffineTransformBuilder(transform, -translate.getX(), -translate.getY()).build();
-		        						
 	}
 
-	private AffineTransform tryCalculation( List<AffineModelEquation> finalEquations,
+	/**
+	 * Calculates the affine transforms for several collections of displacements, e.g. repeated measurements of one layout.
+	 * Collections which result in identical designs (same selected locations and same missing values) are solved together,
+	 * so that the design is only decomposed once.
+	 * 
+	 * @param runs List of collections of {@link Displacement}
+	 * @param u {@link Predicate} which describes which {@link Displacement} elements shall be used for calculation
+	 * @return List of {@link AffineTransform}, one for each collection in the given order.
+	 */
+	public List<AffineTransform> applyAll(List<? extends Collection<Displacement>> runs, Predicate<Displacement> u) {
+		
+		List<TranslateFunction> translations = new ArrayList<>(runs.size());
+		List<AffineEquationTable> equations = new ArrayList<>(runs.size());
+		for (Collection<Displacement> t : runs) {
+			TranslateFunction translate = Displacement.translationToCenter(t, u);
+			equations.add(createEquations(t, u, translate));
+			translations.add(translate);
+		}
+		
+		AffineTransform[] transforms = new AffineTransform[runs.size()];
+		for (int i = 0; i < transforms.length; i++) {
+			if (null != transforms[i]) {
+				continue;
+			}
+			
+			if (equations.get(i).isEmpty()) {
+				transforms[i] = SkipAffineTransform.centeredAt(0, 0);
+				continue;
+			}
+			
+			List<Integer> group = new ArrayList<>();
+			List<List<AffineModelEquation>> sharedDesign = new ArrayList<>();
+			for (int j = i; j < transforms.length; j++) {
+				if (null == transforms[j] && sameDesign(equations.get(i), equations.get(j))) {
+					group.add(j);
+					sharedDesign.add(equations.get(j));
+				}
+			}
+			
+			List<AffineTransform> solved = tryCalculations(sharedDesign, equations.get(i).getDegreesOfFreedom());
+			for (int k = 0; k < group.size(); k++) {
+				int index = group.get(k);
+				TranslateFunction translate = translations.get(index);
+				transforms[index] = new AffineTransformBuilder(solved.get(k), -translate.getX(), -translate.getY()).build();
+			}
+		}
+		
+		return Arrays.asList(transforms);
+	}
+	
+	private AffineEquationTable createEquations(Collection<Displacement> t, Predicate<Displacement> u, TranslateFunction translate) {
+		return ModelEquations.streamOf(t, parallelThreshold)
+							 .filter(u)
+							 .collect(AffineEquationTable.collector(translate));
+	}
+	
+	private boolean sameDesign(AffineEquationTable equations, AffineEquationTable otherEquations) {
+		DegreesOfFreedom dof = equations.getDegreesOfFreedom();
+		DegreesOfFreedom otherDof = otherEquations.getDegreesOfFreedom();
+		if (!dof.getX().equals(otherDof.getX()) || !dof.getY().equals(otherDof.getY())) {
+			return false;
+		}
+		return equations.hasSameDesign(otherEquations);
+	}
+
+	private List<AffineTransform> tryCalculations( List<List<AffineModelEquation>> sharedDesign,
+												  DegreesOfFreedom degreesOfFreedom ) {
+		try {
+			return model.solveAll(sharedDesign, degreesOfFreedom);
+		}
+		catch (Exception e) {
+			List<AffineTransform> transforms = new ArrayList<>(sharedDesign.size());
+			for (List<AffineModelEquation> finalEquations : sharedDesign) {
+				transforms.add(tryCalculation(finalEquations, degreesOfFreedom));
+			}
+			return transforms;
+		}
+	}
+
+	private AffineTransform tryCalculation( Collection<AffineModelEquation> finalEquations,
 											DegreesOfFreedom degreesOfFreedom ) {
 		try {
 			return model.solve(finalEquations,degreesOfFreedom); 
@@ -92,7 +272,7 @@ public final class AffineTransformCalculation implements BiFunction<Collection<D
 		}
 	}
 
-	private AffineTransform tryOneDimModel( List<AffineModelEquation> finalEquations,
+	private AffineTransform tryOneDimModel( Collection<AffineModelEquation> finalEquations,
 											DegreesOfFreedom degreesOfFreedom ) {
 		
 		try {	
@@ -19,17 +19,24 @@
  */
 package net.raumzeitfalle.registration.distortions;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import net.raumzeitfalle.registration.DegreesOfFreedom;
 import net.raumzeitfalle.registration.DifferencesVector;
+import net.raumzeitfalle.registration.NormalEquationsAccumulator;
 import net.raumzeitfalle.registration.Orientable;
 import net.raumzeitfalle.registration.Orientation;
+import net.raumzeitfalle.registration.Orientations;
 import net.raumzeitfalle.registration.ReferencesMatrix;
-import net.raumzeitfalle.registration.solver.Deltas;
-import net.raumzeitfalle.registration.solver.References;
+import net.raumzeitfalle.registration.solver.NormalEquations;
 import net.raumzeitfalle.registration.solver.Solution;
+import net.raumzeitfalle.registration.solver.Solutions;
+import net.raumzeitfalle.registration.solver.SolverMode;
 import net.raumzeitfalle.registration.solver.SolverProvider;
 import net.raumzeitfalle.registration.solver.spi.SolverAdapter;
 
@@ -50,29 +57,230 @@ import net.raumzeitfalle.registration.solver.spi.SolverAdapter;
  */
 final class BasicAffineModel implements AffineModel {
 	
+	/*
+	 * Number of equations from which on the X and Y sub-problems are solved separately. Smaller systems are
+	 * solved with 6 columns as before, hence their results are identical. Separate solutions are mathematically
+	 * the same but the floating point operations differ, so that results may deviate in the last bits.
+	 */
+	static final int DECOUPLING_THRESHOLD = 1_000;
+	
+	/*
+	 * Number of equations from which on the X and Y sub-problems are solved concurrently.
+	 */
+	static final int CONCURRENCY_THRESHOLD = 10_000;
+	
+	/*
+	 * Systems with at least the parallel threshold number of equations are solved using normal equations
+	 * accumulated in parallel, independent of the configured SolverMode.
+	 */
+	private final NormalEquationsAccumulator accumulator;
+	
+	BasicAffineModel() {
+		this(new NormalEquationsAccumulator(Integer.MAX_VALUE));
+	}
+	
+	BasicAffineModel(NormalEquationsAccumulator accumulator) {
+		this.accumulator = accumulator;
+	}
+	
 	@Override
 	public <T extends Orientable> AffineTransform solve(Collection<AffineModelEquation> equations,
 			DegreesOfFreedom degreesOfFreedom) {
 		
+		Orientation direction = degreesOfFreedom.getDirection();
+		
+		/*
+		 * Normal equations are accumulated in one pass with 6 columns, so that the equations
+		 * need not be split into X and Y sub-problems before.
+		 */
+		if (Orientations.XY.equals(direction) && equations.size() >= DECOUPLING_THRESHOLD 
+				&& !useNormalEquations(equations.size())) {
+			return solveDecoupled(equations);
+		}
+		
+		Solution solution = solve(equations, direction);
+		
+		return createTransform(solution, direction);
+	}
+	
+	/*
+	 * X equations only populate sx, oy and tx whereas Y equations only populate sy, ox and ty.
+	 * Hence the combined system is block diagonal and both blocks can be solved separately
+	 * using 3 columns each, instead of one system with 6 columns where half of the coefficients are zero.
+	 */
+	private AffineTransform solveDecoupled(Collection<AffineModelEquation> equations) {
+		
+		List<AffineModelEquation> xEquations = select(equations, Orientations.X);
+		List<AffineModelEquation> yEquations = select(equations, Orientations.Y);
+		
+		Solution x;
+		Solution y;
+		if (equations.size() >= CONCURRENCY_THRESHOLD) {
+			CompletableFuture<Solution> xSolution = CompletableFuture.supplyAsync(()->solve(xEquations, Orientations.X));
+			y = solve(yEquations, Orientations.Y);
+			x = join(xSolution);
+		} else {
+			x = solve(xEquations, Orientations.X);
+			y = solve(yEquations, Orientations.Y);
+		}
+		
+		return createTransform(combine(x, y), Orientations.XY);
+	}
+	
+	@Override
+	public List<AffineTransform> solveAll(List<? extends Collection<AffineModelEquation>> runs, DegreesOfFreedom degreesOfFreedom) {
+		
+		if (runs.size() < 2 || SolverMode.NORMAL_EQUATIONS.equals(SolverProvider.getInstance().getMode())) {
+			return AffineModel.super.solveAll(runs, degreesOfFreedom);
+		}
+		
+		Orientation direction = degreesOfFreedom.getDirection();
+		List<AffineTransform> transforms = new ArrayList<>(runs.size());
+		
+		if (Orientations.XY.equals(direction) && runs.get(0).size() >= DECOUPLING_THRESHOLD) {
+			List<Solution> x = solveAll(select(runs, Orientations.X), Orientations.X);
+			List<Solution> y = solveAll(select(runs, Orientations.Y), Orientations.Y);
+			for (int i = 0; i < runs.size(); i++) {
+				transforms.add(createTransform(combine(x.get(i), y.get(i)), Orientations.XY));
+			}
+			return transforms;
+		}
+		
+		for (Solution solution : solveAll(runs, direction)) {
+			transforms.add(createTransform(solution, direction));
+		}
+		return transforms;
+	}
+	
+	private List<Solution> solveAll(List<? extends Collection<AffineModelEquation>> runs, Orientation direction) {
+		
+		// there are 3 coefficients per direction
+		int cols = direction.getDimensions() * 3;
+		Collection<AffineModelEquation> design = runs.get(0);
+		int rows = design.size();
+		
+		ReferencesMatrix references = references(design, direction, cols);
+		
+		List<DifferencesVector> deltas = new ArrayList<>(runs.size());
+		for (Collection<AffineModelEquation> equations : runs) {
+			if (equations.size() != rows) {
+				throw new IllegalArgumentException("All sets of equations must share the same design.");
+			}
+			deltas.add(deltas(equations));
+		}
+		
+		SolverAdapter solver = SolverProvider.getInstance().getSolver(rows, cols);
+		return solver.solveAll(references, deltas);
+	}
+	
+	private List<List<AffineModelEquation>> select(List<? extends Collection<AffineModelEquation>> runs, Orientation orientation) {
+		List<List<AffineModelEquation>> selected = new ArrayList<>(runs.size());
+		for (Collection<AffineModelEquation> equations : runs) {
+			selected.add(select(equations, orientation));
+		}
+		return selected;
+	}
+	
+	private List<AffineModelEquation> select(Collection<AffineModelEquation> equations, Orientation orientation) {
+		if (equations instanceof AffineEquationTable) {
+			return ((AffineEquationTable) equations).select(orientation);
+		}
+		List<AffineModelEquation> selected = new ArrayList<>(equations.size());
+		for (AffineModelEquation eq : equations) {
+			if (eq.matches(orientation)) {
+				selected.add(eq);
+			}
+		}
+		return selected;
+	}
+	
+	/*
+	 * X: [sx, oy, tx], Y: [sy, ox, ty] -> XY: [sx, sy, ox, oy, tx, ty]
+	 */
+	private Solution combine(Solution x, Solution y) {
+		return Solutions.fromArray(new double[] { x.get(0), y.get(0), y.get(1), 
+												  x.get(1), x.get(2), y.get(2) });
+	}
+	
+	private Solution join(CompletableFuture<Solution> solution) {
+		try {
+			return solution.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+	
+	private Solution solve(Collection<AffineModelEquation> equations, Orientation direction) {
+		
 		// there are 3 coefficients per direction
-		int cols = degreesOfFreedom.getDimensions() * 3;
+		int cols = direction.getDimensions() * 3;
 		int rows = equations.size();
 		
-		ReferencesMatrix references = new ReferencesMatrix(rows, cols);
-		DifferencesVector deltas = new DifferencesVector(rows);
+		if (useNormalEquations(rows)) {
+			return solveNormalEquations(equations, direction, cols);
+		}
 		
-		Orientation direction = degreesOfFreedom.getDirection();
-		prepare(equations, references, deltas, direction);
+		ReferencesMatrix references;
+		DifferencesVector deltas;
+		if (equations instanceof AffineEquationTable) {
+			AffineEquationTable table = (AffineEquationTable) equations;
+			references = table.references(direction, cols);
+			deltas = table.deltas();
+		} else {
+			references = new ReferencesMatrix(rows, cols);
+			deltas = new DifferencesVector(rows);
+			prepare(equations, references, deltas, direction);
+		}
 		
-		return solve(references, deltas, direction);
+		SolverAdapter solver = SolverProvider.getInstance().getSolver(rows, cols);
+		return solver.apply(references, deltas);
 	}
-
-	private AffineTransform solve(References references, Deltas deltas, Orientation direction) {
+	
+	private boolean useNormalEquations(int rows) {
+		return rows >= accumulator.getParallelThreshold() 
+				|| SolverMode.NORMAL_EQUATIONS.equals(SolverProvider.getInstance().getMode());
+	}
+	
+	private ReferencesMatrix references(Collection<AffineModelEquation> equations, Orientation direction, int cols) {
+		if (equations instanceof AffineEquationTable) {
+			return ((AffineEquationTable) equations).references(direction, cols);
+		}
+		ReferencesMatrix references = new ReferencesMatrix(equations.size(), cols);
+		int row = 0;
+		for (AffineModelEquation eq : equations) {
+			references.set2D(row, eq, direction);
+			row++;
+		}
+		return references;
+	}
+	
+	private DifferencesVector deltas(Collection<AffineModelEquation> equations) {
+		if (equations instanceof AffineEquationTable) {
+			return ((AffineEquationTable) equations).deltas();
+		}
+		return DifferencesVector.from(equations);
+	}
+	
+	private Solution solveNormalEquations(Collection<AffineModelEquation> equations, Orientation direction, int cols) {
 		
-		SolverAdapter solver = SolverProvider.getInstance().getSolver();
-		Solution solution = solver.apply(references, deltas);
+		NormalEquations normalEquations;
+		if (equations instanceof AffineEquationTable) {
+			normalEquations = ((AffineEquationTable) equations).accumulate(accumulator, direction, cols);
+		} else {
+			normalEquations = new NormalEquations(cols);
+			ReferencesMatrix row = new ReferencesMatrix(1, cols);
+			for (AffineModelEquation eq : equations) {
+				row.set2D(0, eq, direction);
+				normalEquations.accept(row.getArray()[0], eq.getDeltaValue());
+			}
+		}
 		
-		return createTransform(solution, direction);
+		// the normal equations form a square system
+		SolverAdapter solver = SolverProvider.getInstance().getSolver(cols, cols);
+		return solver.solve(normalEquations);
 	}
 
 	private AffineTransform createTransform(Solution solved, Orientation direction) {
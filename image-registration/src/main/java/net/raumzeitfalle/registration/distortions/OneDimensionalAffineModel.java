@@ -68,6 +68,11 @@ class OneDimensionalAffineModel implements AffineModel {
 		int cols = 4; // dimension.getDimensions() * 2;  
 		int rows = equations.size();
 		
+		if (equations instanceof AffineEquationTable) {
+			AffineEquationTable table = (AffineEquationTable) equations;
+			return solve(table.references1D(cols), table.deltas(), degreesOfFreedom);
+		}
+		
 		ReferencesMatrix references = new ReferencesMatrix(rows, cols);
 		DifferencesVector deltas = new DifferencesVector(rows);
 
@@ -100,7 +105,7 @@ class OneDimensionalAffineModel implements AffineModel {
 	
 	private AffineTransform solve(References references, Deltas deltas, DegreesOfFreedom dof) {
 		
-		SolverAdapter solver = SolverProvider.getInstance().getSolver();
+		SolverAdapter solver = SolverProvider.getInstance().getSolver(references.rows(), references.columns());
 		Solution solution = solver.apply(references, deltas);
 		
 		return createTransform(solution, dof);
@@ -150,6 +150,24 @@ public class SimpleAffineTransform implements AffineTransform {
     	return Displacement.from(d,xd,yd);
     }
 
+    @Override
+    public void applyAll(double[] x, double[] y, double[] xd, double[] yd, double[] xdOut, double[] ydOut, int from, int to) {
+        double sx = this.getScaleX();
+        double sy = this.getScaleY();
+        double ox = this.getOrthoX();
+        double oy = this.getOrthoY();
+        for (int i = from; i < to; i++) {
+            double xi = Double.isFinite(x[i]) ? x[i] : 0d;
+            double yi = Double.isFinite(y[i]) ? y[i] : 0d;
+            xdOut[i] = - translationX + xd[i] - xi * sx + yi * ox;
+        }
+        for (int i = from; i < to; i++) {
+            double xi = Double.isFinite(x[i]) ? x[i] : 0d;
+            double yi = Double.isFinite(y[i]) ? y[i] : 0d;
+            ydOut[i] = - translationY + yd[i] - yi * sy - xi * oy;
+        }
+    }
+
 	@Override
 	public boolean skip() {
 		return false;
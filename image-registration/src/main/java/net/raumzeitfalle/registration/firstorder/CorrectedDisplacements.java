@@ -0,0 +1,114 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.firstorder;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+
+import net.raumzeitfalle.registration.Transform;
+import net.raumzeitfalle.registration.TransformCorrection;
+import net.raumzeitfalle.registration.displacement.Displacement;
+
+/**
+ * View of the displacements after applying a (fused) correction {@link Transform}.
+ * <p>
+ * The correction is applied with {@link TransformCorrection} on first iteration (or when {@link #materialize()} is called),
+ * the corrected displacements are then kept, so that following iterations return the same instances. Until then only the
+ * original displacements and the correction are referenced, hence workflows only reading transform parameters never
+ * run the correction. The original collection must not be modified afterwards.
+ * <p>
+ * Same as the list formerly returned by {@link FirstOrderResult#getDisplacements()}, this is a read-only random access {@link List},
+ * any access by index materializes the corrected displacements.
+ *
+ */
+final class CorrectedDisplacements extends AbstractList<Displacement> implements RandomAccess {
+
+	private final Transform correction;
+
+	private final Collection<Displacement> source;
+
+	private volatile List<Displacement> corrected;
+
+	CorrectedDisplacements(Transform correction, Collection<Displacement> source) {
+		this.correction = correction;
+		this.source = source;
+	}
+
+	/**
+	 * @return the corrected displacements, calculated only once
+	 */
+	List<Displacement> materialize() {
+		List<Displacement> result = corrected;
+		if (result == null) {
+			synchronized (this) {
+				result = corrected;
+				if (result == null) {
+					result = asRandomAccessList(new TransformCorrection().apply(correction, source));
+					corrected = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * Corrections return lists except for skipped transforms, where the source collection is returned as is.
+	 */
+	private static List<Displacement> asRandomAccessList(Collection<Displacement> displacements) {
+		if (displacements instanceof List && displacements instanceof RandomAccess) {
+			return (List<Displacement>) displacements;
+		}
+		return new ArrayList<>(displacements);
+	}
+
+	boolean isMaterialized() {
+		return corrected != null;
+	}
+
+	Transform getCorrection() {
+		return correction;
+	}
+
+	@Override
+	public Displacement get(int index) {
+		return materialize().get(index);
+	}
+
+	@Override
+	public Iterator<Displacement> iterator() {
+		return materialize().iterator();
+	}
+
+	@Override
+	public Spliterator<Displacement> spliterator() {
+		return materialize().spliterator();
+	}
+
+	@Override
+	public int size() {
+		return source.size();
+	}
+
+}
@@ -19,12 +19,16 @@
  */
 package net.raumzeitfalle.registration.firstorder;
 
+import java.util.AbstractCollection;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.function.BiFunction;
 import java.util.function.Predicate;
 
-import net.raumzeitfalle.registration.TransformCorrection;
+import net.raumzeitfalle.registration.Transform;
 import net.raumzeitfalle.registration.alignment.RigidTransform;
 import net.raumzeitfalle.registration.alignment.RigidTransformCalculation;
 import net.raumzeitfalle.registration.displacement.Displacement;
@@ -35,53 +39,158 @@ import net.raumzeitfalle.registration.distortions.SimpleAffineTransform;
 
 public final class FirstOrderCorrection implements BiFunction<Collection<Displacement>, FirstOrderSetup, FirstOrderResult> {
 
+	private static final Predicate<Displacement> SELECTED = d->true;
+
 	public static FirstOrderResult using(Collection<Displacement> displacements, FirstOrderSetup setup) {
 		return new FirstOrderCorrection().apply(displacements, setup);
 	}
 	
+	public static List<FirstOrderResult> usingAll(List<? extends Collection<Displacement>> runs, FirstOrderSetup setup) {
+		return new FirstOrderCorrection().applyAll(runs, setup);
+	}
+	
 	@Override
 	public FirstOrderResult apply(Collection<Displacement> displacements, FirstOrderSetup setup) {
 		
-		Predicate<Displacement> alignmentSelection = setup.getAlignmentSelection();
+		/*
+		 * All selectors are evaluated only once on the given displacements, steps 1 and 2 only process selected sites.
+		 */
+		FirstOrderSetup.Selections selections = setup.selectFrom(displacements);
+		List<Displacement> alignmentSites = selections.getAlignment().select(displacements);
 		
 		/* 
 		 * STEP 1 - Calculate corrected first order based on unaligned data
 		 */
 		RigidTransform alignment = new RigidTransformCalculation()
-									   .apply(displacements, alignmentSelection);
+									   .apply(alignmentSites, SELECTED);
 		
-		Predicate<Displacement> firstOrderSelector = setup.getCalculationSelection();
+		List<Displacement> calculationSites = selections.getCalculation().select(displacements);
 		
 		/*
 		 * STEP 2 - Calculate the 6-parameter model (FirstOrder) and parameterize according to corrections defined in setup
 		 */
-		AffineTransform calculatedFirstOrder = new AffineTransformCalculation().apply(displacements, firstOrderSelector);
+		AffineTransform calculatedFirstOrder = new AffineTransformCalculation().apply(calculationSites, SELECTED);
 		AffineTransform firstOrder = updateFirstOrderForCompensation(setup.getCompensations(),calculatedFirstOrder);
 	
 		/*
-		 * STEP 3 - Apply all requested compensations
+		 * When no alignment is requested, then the work is done after applying all requested compensations (STEP 3).
+		 */
+		if (setup.getAlignment().equals(Alignments.UNALIGNED)) {
+			return new FirstOrderResult(alignment, calculatedFirstOrder, firstOrder, displacements);
+		}
+		
+		/*
+		 * STEP 4 - When any case of alignment is requested, then a 2nd correction is needed.
+		 * Calculate residual rotation correction for custom alignment methods on the compensated displacements.
+		 * The alignment selector is evaluated on the compensated values, as it may depend on displaced locations.
+		 * Compensation and residual alignment are then fused and applied in one pass.
+		 * 
+		 */
+		RigidTransform residualAlignment = new RigidTransformCalculation().apply(corrected(firstOrder, displacements), setup.getAlignmentSelection());
+		return new FirstOrderResult(alignment, calculatedFirstOrder, firstOrder.followedBy(residualAlignment), displacements);
+	}
+
+	
+	/**
+	 * Performs the first order correction for several collections of displacements, which are measurements of the same layout
+	 * (e.g. repeatability runs or time series). Collections sharing the same design are solved together, 
+	 * so that the design matrix is only decomposed once and each additional collection only costs the solve for its deltas.
+	 * 
+	 * @param runs List of collections of {@link Displacement}, ideally all with the same design coordinates
+	 * @param setup {@link FirstOrderSetup} applied to all collections
+	 * @return List of {@link FirstOrderResult}, one for each collection in the given order
+	 */
+	public List<FirstOrderResult> applyAll(List<? extends Collection<Displacement>> runs, FirstOrderSetup setup) {
+		
+		/*
+		 * All selectors are evaluated only once per run, steps 1 and 2 only process selected sites.
 		 */
-		Collection<Displacement> correctedResults = new TransformCorrection()
-				.apply(firstOrder, displacements);
+		List<List<Displacement>> alignmentSites = new ArrayList<>(runs.size());
+		List<List<Displacement>> calculationSites = new ArrayList<>(runs.size());
+		for (Collection<Displacement> run : runs) {
+			FirstOrderSetup.Selections selections = setup.selectFrom(run);
+			alignmentSites.add(selections.getAlignment().select(run));
+			calculationSites.add(selections.getCalculation().select(run));
+		}
+		
+		/* 
+		 * STEP 1 - Calculate corrected first order based on unaligned data
+		 */
+		List<RigidTransform> alignments = new RigidTransformCalculation()
+											  .applyAll(alignmentSites, SELECTED);
 		
 		/*
-		 * When no alignment is requested, then the work is done here. The result will be returned then.
+		 * STEP 2 - Calculate the 6-parameter model (FirstOrder) for all runs
+		 */
+		List<AffineTransform> calculatedFirstOrders = new AffineTransformCalculation().applyAll(calculationSites, SELECTED);
+		
+		List<AffineTransform> firstOrders = new ArrayList<>(runs.size());
+		for (int i = 0; i < runs.size(); i++) {
+			firstOrders.add(updateFirstOrderForCompensation(setup.getCompensations(), calculatedFirstOrders.get(i)));
+		}
+		
+		/*
+		 * STEP 3 - Apply all requested compensations
 		 */
+		List<FirstOrderResult> results = new ArrayList<>(runs.size());
 		if (setup.getAlignment().equals(Alignments.UNALIGNED)) {
-			return new FirstOrderResult(alignment, calculatedFirstOrder, correctedResults);
+			for (int i = 0; i < runs.size(); i++) {
+				results.add(new FirstOrderResult(alignments.get(i), calculatedFirstOrders.get(i), firstOrders.get(i), runs.get(i)));
+			}
+			return results;
 		}
 		
 		/*
-		 * STEP 4 - When any case of alignment is requested, then a 2nd correction is needed.
-		 * Calculate and correct residual rotation correction for custom alignment methods
-		 * 
+		 * STEP 4 - Residual alignment, corrections do not modify the design, hence all runs are still solved together.
+		 * The alignment selector is evaluated on the compensated values, as it may depend on displaced locations.
+		 * Compensation and residual alignment are then fused and applied in one pass.
 		 */
-		RigidTransform residualAlignment = new RigidTransformCalculation().apply(correctedResults, alignmentSelection);
-		Collection<Displacement> alignedResults = new TransformCorrection().apply(residualAlignment, correctedResults);
-				
-		return new FirstOrderResult(alignment, calculatedFirstOrder, alignedResults);
+		List<Collection<Displacement>> correctedResults = new ArrayList<>(runs.size());
+		for (int i = 0; i < runs.size(); i++) {
+			correctedResults.add(corrected(firstOrders.get(i), runs.get(i)));
+		}
+		List<RigidTransform> residualAlignments = new RigidTransformCalculation().applyAll(correctedResults, setup.getAlignmentSelection());
+		for (int i = 0; i < runs.size(); i++) {
+			Transform correction = firstOrders.get(i).followedBy(residualAlignments.get(i));
+			results.add(new FirstOrderResult(alignments.get(i), calculatedFirstOrders.get(i), correction, runs.get(i)));
+		}
+		return results;
 	}
+	
+	/**
+	 * Provides the corrected displacements without storing them, each {@link Displacement} is corrected when iterated.
+	 * 
+	 * @param transform {@link Transform} to apply
+	 * @param displacements Collection of {@link Displacement}
+	 * @return {@link Collection} view of the corrected displacements
+	 */
+	private static Collection<Displacement> corrected(Transform transform, Collection<Displacement> displacements) {
+		if (transform.skip()) {
+			return displacements;
+		}
+		return new AbstractCollection<Displacement>() {
+			@Override
+			public Iterator<Displacement> iterator() {
+				Iterator<Displacement> source = displacements.iterator();
+				return new Iterator<Displacement>() {
+					@Override
+					public boolean hasNext() {
+						return source.hasNext();
+					}
 
+					@Override
+					public Displacement next() {
+						return transform.apply(source.next());
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return displacements.size();
+			}
+		};
+	}
 	
 	/**
 	 * In order to correct a certain transform, this method ensures that depending on given set of compensations,
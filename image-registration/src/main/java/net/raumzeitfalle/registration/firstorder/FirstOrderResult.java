@@ -22,10 +22,19 @@ package net.raumzeitfalle.registration.firstorder;
 import java.util.Collection;
 import java.util.Objects;
 
+import net.raumzeitfalle.registration.Transform;
 import net.raumzeitfalle.registration.alignment.RigidTransform;
 import net.raumzeitfalle.registration.displacement.Displacement;
 import net.raumzeitfalle.registration.distortions.AffineTransform;
 
+/**
+ * Result of a {@link FirstOrderCorrection}: the alignment, the calculated first order and the corrected displacements.
+ * <p>
+ * The corrected displacements are provided as a view over the original displacements and the fused correction.
+ * The correction is only applied when the displacements are iterated (or {@link #materializeDisplacements()} is called),
+ * so that workflows only reading alignment and first order parameters skip the correction pass and its allocations.
+ *
+ */
 public final class FirstOrderResult {
 	
 	private final RigidTransform alignment;
@@ -39,6 +48,10 @@ public final class FirstOrderResult {
 		this.firstOrder = Objects.requireNonNull(firstOrder, "FirstOrder (AffineTransform) must not be null.");
 		this.displacements = Objects.requireNonNull(results, "Collection of Displacements (results) must not be null.");
 	}
+	
+	FirstOrderResult(RigidTransform alignment, AffineTransform firstOrder, Transform correction, Collection<Displacement> displacements) {
+		this(alignment, firstOrder, correction.skip() ? displacements : new CorrectedDisplacements(correction, displacements));
+	}
 
 	public RigidTransform getAlignment() {
 		return alignment;
@@ -48,8 +61,25 @@ public final class FirstOrderResult {
 		return firstOrder;
 	}
 
+	/**
+	 * @return {@link Collection} of corrected displacements, a read-only random access {@link java.util.List}.
+	 *         The correction is applied on first iteration or access by index.
+	 */
 	public Collection<Displacement> getDisplacements() {
 		return displacements;
 	}
 	
+	/**
+	 * Applies the correction (if not yet done) and provides the corrected displacements as stored by the correction,
+	 * e.g. as {@link net.raumzeitfalle.registration.displacement.DisplacementTable} for column oriented input.
+	 * 
+	 * @return {@link Collection} of corrected displacements
+	 */
+	public Collection<Displacement> materializeDisplacements() {
+		if (displacements instanceof CorrectedDisplacements) {
+			return ((CorrectedDisplacements) displacements).materialize();
+		}
+		return displacements;
+	}
+	
 }
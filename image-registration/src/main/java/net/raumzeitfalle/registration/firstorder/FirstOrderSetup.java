@@ -19,6 +19,7 @@
  */
 package net.raumzeitfalle.registration.firstorder;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Objects;
@@ -26,6 +27,7 @@ import java.util.Set;
 import java.util.function.Predicate;
 
 import net.raumzeitfalle.registration.displacement.Displacement;
+import net.raumzeitfalle.registration.displacement.SiteSelection;
 
 public final class FirstOrderSetup {
 	
@@ -51,9 +53,14 @@ public final class FirstOrderSetup {
 	
 	private final Predicate<Displacement> removalSelection;
 	
+	private final Predicate<Displacement> forAlignment;
+	
+	private final Predicate<Displacement> forCalculation;
+	
 	private FirstOrderSetup(Alignments alignMethod,EnumSet<Compensations> compensationMethods,
 					Predicate<Displacement> align,Predicate<Displacement> calc,
-					Predicate<Displacement> removal) {
+					Predicate<Displacement> removal,
+					Predicate<Displacement> forAlignment, Predicate<Displacement> forCalculation) {
 		
 		this.alignmentMethod = alignMethod;
 		this.compensationMethods = Collections.unmodifiableSet(EnumSet.copyOf(compensationMethods));
@@ -62,6 +69,9 @@ public final class FirstOrderSetup {
 		this.calculationSelection = calc;
 		this.removalSelection = removal;
 		
+		this.forAlignment = forAlignment;
+		this.forCalculation = forCalculation;
+		
 	}
 
 	public Alignments getAlignment() {
@@ -88,6 +98,83 @@ public final class FirstOrderSetup {
 		return getRemovalSelection().negate();
 	}
 	
+	/**
+	 * Evaluates the alignment, calculation and removal selectors once for each of the given displacements.
+	 * The combined selections (e.g. calculation sites which are not removed) are then created using bitwise operations,
+	 * they select the same sites as {@link #getAlignmentSelection()}, {@link #getCalculationSelection()} and {@link #withoutRemovedDisplacements()}.
+	 * 
+	 * @param displacements {@link Collection} of {@link Displacement}
+	 * @return {@link FirstOrderSetup.Selections} for the given displacements
+	 */
+	public FirstOrderSetup.Selections selectFrom(Collection<Displacement> displacements) {
+		
+		SiteSelection removal = select(displacements, removalSelection);
+		SiteSelection remaining = removal.not();
+		
+		SiteSelection alignment;
+		if (alignmentMethod.equals(Alignments.ALL) || alignmentMethod.equals(Alignments.UNALIGNED)) {
+			alignment = remaining;
+		} else {
+			alignment = select(displacements, forAlignment);
+		}
+		
+		SiteSelection calculation;
+		if (alignmentMethod.equals(Alignments.SCANNER_SELECTED)) {
+			calculation = alignment;
+		} else {
+			calculation = select(displacements, forCalculation).and(remaining);
+		}
+		
+		return new Selections(alignment, calculation, removal, remaining);
+	}
+	
+	private static SiteSelection select(Collection<Displacement> displacements, Predicate<Displacement> selector) {
+		if (ANY == selector) {
+			return SiteSelection.all(displacements.size());
+		}
+		if (NONE == selector) {
+			return SiteSelection.none(displacements.size());
+		}
+		return SiteSelection.of(displacements, selector);
+	}
+	
+	/**
+	 * Site selections of one collection of displacements, see {@link FirstOrderSetup#selectFrom(Collection)}.
+	 */
+	public static final class Selections {
+		
+		private final SiteSelection alignment;
+		
+		private final SiteSelection calculation;
+		
+		private final SiteSelection removal;
+		
+		private final SiteSelection remaining;
+		
+		private Selections(SiteSelection alignment, SiteSelection calculation, SiteSelection removal, SiteSelection remaining) {
+			this.alignment = alignment;
+			this.calculation = calculation;
+			this.removal = removal;
+			this.remaining = remaining;
+		}
+		
+		public SiteSelection getAlignment() {
+			return alignment;
+		}
+		
+		public SiteSelection getCalculation() {
+			return calculation;
+		}
+		
+		public SiteSelection getRemoval() {
+			return removal;
+		}
+		
+		public SiteSelection withoutRemovedDisplacements() {
+			return remaining;
+		}
+	}
+	
 	
 	public static class Builder {
 		
@@ -145,7 +232,9 @@ public final class FirstOrderSetup {
 					                   compensationMethods,
 					                   alignmentSelector, 
 					                   calculationSelector,
-					                   forRemoval);
+					                   forRemoval,
+					                   forAlignment,
+					                   forCalculation);
 		}
 
 
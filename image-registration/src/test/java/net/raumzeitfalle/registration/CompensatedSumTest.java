@@ -0,0 +1,82 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class CompensatedSumTest {
+
+	@Test
+	void cancellation() {
+
+		CompensatedSum classUnderTest = new CompensatedSum();
+		classUnderTest.accept(1E16);
+		classUnderTest.accept(1.0);
+		classUnderTest.accept(-1E16);
+
+		assertEquals(3, classUnderTest.getCount());
+		assertEquals(1.0, classUnderTest.getSum(), 0.0);
+		assertEquals(1.0 / 3, classUnderTest.getAverage(), 0.0);
+	}
+
+	@Test
+	void manySmallValues() {
+
+		CompensatedSum classUnderTest = new CompensatedSum();
+		double naive = 0.0;
+		for (int i = 0; i < 1_000_000; i++) {
+			classUnderTest.accept(0.1);
+			naive += 0.1;
+		}
+
+		assertEquals(100_000.0, classUnderTest.getSum(), 0.0);
+		assertNotEquals(100_000.0, naive, 0.0);
+	}
+
+	@Test
+	void combine() {
+
+		CompensatedSum classUnderTest = new CompensatedSum();
+		classUnderTest.accept(1E16);
+		classUnderTest.accept(1.0);
+
+		CompensatedSum other = new CompensatedSum();
+		other.accept(1.0);
+		other.accept(-1E16);
+
+		assertSame(classUnderTest, classUnderTest.combine(other));
+		assertEquals(4, classUnderTest.getCount());
+		assertEquals(2.0, classUnderTest.getSum(), 0.0);
+		assertEquals(2, other.getCount());
+	}
+
+	@Test
+	void empty() {
+
+		CompensatedSum classUnderTest = new CompensatedSum();
+
+		assertEquals(0, classUnderTest.getCount());
+		assertEquals(0.0, classUnderTest.getSum(), 0.0);
+		assertTrue(Double.isNaN(classUnderTest.getAverage()));
+	}
+
+}
@@ -0,0 +1,92 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class DistinctDoublesTest {
+
+	private final DistinctDoubles classUnderTest = new DistinctDoubles();
+
+	@Test
+	void empty() {
+		assertTrue(classUnderTest.isEmpty());
+		assertEquals(0, classUnderTest.size());
+	}
+
+	@Test
+	void add() {
+		assertTrue(classUnderTest.add(1.5));
+		assertFalse(classUnderTest.add(1.5));
+		assertTrue(classUnderTest.add(-1.5));
+
+		assertEquals(2, classUnderTest.size());
+		assertFalse(classUnderTest.isEmpty());
+	}
+
+	@Test
+	void add_specialValues_likeDoubleEquals() {
+		assertTrue(classUnderTest.add(0.0));
+		assertFalse(classUnderTest.add(0.0));
+		assertTrue(classUnderTest.add(-0.0));
+		assertTrue(classUnderTest.add(Double.NaN));
+		assertFalse(classUnderTest.add(Double.longBitsToDouble(0x7ff8000000000001L)));
+		assertTrue(classUnderTest.add(Double.POSITIVE_INFINITY));
+		assertTrue(classUnderTest.add(Double.NEGATIVE_INFINITY));
+
+		assertEquals(5, classUnderTest.size());
+	}
+
+	@Test
+	void add_manyValues_sameSizeAsHashSet() {
+		Random random = new Random(4711);
+		Set<Double> expected = new HashSet<>();
+		for (int i = 0; i < 100_000; i++) {
+			double value = random.nextInt(20_000) * 250.0 - 1E6;
+			assertEquals(expected.add(value), classUnderTest.add(value), "value " + value);
+		}
+		assertEquals(expected.size(), classUnderTest.size());
+	}
+
+	@Test
+	void addAll() {
+		classUnderTest.add(0.0);
+		classUnderTest.add(1.0);
+
+		DistinctDoubles other = new DistinctDoubles();
+		other.add(0.0);
+		other.add(2.0);
+		other.add(Double.NaN);
+
+		classUnderTest.addAll(other);
+
+		assertEquals(4, classUnderTest.size());
+		assertFalse(classUnderTest.add(2.0));
+		assertFalse(classUnderTest.add(Double.NaN));
+		assertEquals(3, other.size());
+	}
+
+}
@@ -0,0 +1,161 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import net.raumzeitfalle.registration.alignment.RigidTransform;
+import net.raumzeitfalle.registration.alignment.RigidTransformCalculation;
+import net.raumzeitfalle.registration.alignment.SimpleTranslation;
+import net.raumzeitfalle.registration.alignment.Translation;
+import net.raumzeitfalle.registration.displacement.Displacement;
+import net.raumzeitfalle.registration.distortions.AffineTransform;
+import net.raumzeitfalle.registration.distortions.AffineTransformBuilder;
+import net.raumzeitfalle.registration.distortions.SimpleAffineTransform;
+
+class FusedTransformTest {
+
+	private static final double TOLERANCE = 1E-9;
+
+	private static final double NaN = Double.NaN;
+
+	private final AffineTransform affine = SimpleAffineTransform.with(SimpleTranslation.with(0.1, -0.2), 2E-6, -3E-6, 4E-6, 5E-6, 0, 0);
+
+	private final RigidTransform rigid = RigidTransform.with(-0.05, 0.03, 7E-6);
+
+	private final List<Displacement> displacements = Arrays.asList(
+			Displacement.at(0, 0,  70000,  20000,  70000.123,  19999.991),
+			Displacement.at(1, 1, -70000,  20000, -69999.9,    20000.05),
+			Displacement.at(2, 2,  70000, -20000,  70000.01,  -20000.2),
+			Displacement.at(3, 3,    NaN,  20000,      0.1,    20000.1),
+			Displacement.at(4, 4,  70000,    NaN,  70000.3,        0.2));
+
+	@Test
+	void followedBy() {
+
+		FusedTransform classUnderTest = affine.followedBy(rigid);
+
+		assertTrue(classUnderTest.isFused());
+		assertFalse(classUnderTest.skip());
+		assertEquals(Arrays.asList(affine, rigid), classUnderTest.getStages());
+
+		assertAll(
+				() -> assertEquals( 0.05,  classUnderTest.getTranslationX(), TOLERANCE),
+				() -> assertEquals(-0.17,  classUnderTest.getTranslationY(), TOLERANCE),
+				() -> assertEquals( 2E-6,  classUnderTest.getScaleX(), TOLERANCE),
+				() -> assertEquals(-3E-6,  classUnderTest.getScaleY(), TOLERANCE),
+				() -> assertEquals(11E-6,  classUnderTest.getOrthoX(), TOLERANCE),
+				() -> assertEquals(12E-6,  classUnderTest.getOrthoY(), TOLERANCE));
+
+		for (Displacement d : displacements) {
+			assertSameCorrection(rigid.apply(affine.apply(d)), classUnderTest.apply(d));
+		}
+	}
+
+	@Test
+	void applyAll_sameAsApply() {
+
+		FusedTransform classUnderTest = FusedTransform.of(affine, Translation.of(1, 2)).followedBy(rigid);
+
+		assertEquals(3, classUnderTest.getStages().size());
+
+		int length = displacements.size();
+		double[] x = new double[length];
+		double[] y = new double[length];
+		double[] xd = new double[length];
+		double[] yd = new double[length];
+		for (int i = 0; i < length; i++) {
+			x[i] = displacements.get(i).getX();
+			y[i] = displacements.get(i).getY();
+			xd[i] = displacements.get(i).getXd();
+			yd[i] = displacements.get(i).getYd();
+		}
+
+		classUnderTest.applyAll(x, y, xd, yd, xd, yd, length);
+
+		for (int i = 0; i < length; i++) {
+			Displacement expected = classUnderTest.apply(displacements.get(i));
+			assertEquals(expected.getXd(), xd[i], TOLERANCE, "xd at site " + i);
+			assertEquals(expected.getYd(), yd[i], TOLERANCE, "yd at site " + i);
+		}
+	}
+
+	@Test
+	void skippedTransforms_areIdentity() {
+
+		AffineTransform skipAffine = new AffineTransformBuilder(SimpleAffineTransform.with(SimpleTranslation.with(0, 0), 0, 0, 0, 0, 0, 0)).build();
+		RigidTransform skipRigid = new RigidTransformCalculation()
+				.apply(displacements, d -> false);
+
+		assertTrue(skipAffine.skip());
+		assertTrue(skipRigid.skip());
+
+		FusedTransform classUnderTest = skipAffine.followedBy(skipRigid);
+
+		assertTrue(classUnderTest.skip());
+		assertTrue(classUnderTest.getStages().isEmpty());
+
+		Displacement source = displacements.get(0);
+		Displacement result = classUnderTest.apply(source);
+		assertEquals(source.getXd(), result.getXd());
+		assertEquals(source.getYd(), result.getYd());
+
+		assertEquals(Arrays.asList(rigid), skipAffine.followedBy(rigid).getStages());
+	}
+
+	@Test
+	void otherTransforms_areAppliedStageByStage() {
+
+		Transform other = d -> d.correctBy(10, -10);
+
+		FusedTransform classUnderTest = affine.followedBy(other);
+
+		assertFalse(classUnderTest.isFused());
+
+		Displacement source = displacements.get(0);
+		assertSameCorrection(other.apply(affine.apply(source)), classUnderTest.apply(source));
+
+		double[] x  = { source.getX() };
+		double[] y  = { source.getY() };
+		double[] xd = { source.getXd() };
+		double[] yd = { source.getYd() };
+		double[] xdOut = new double[1];
+		double[] ydOut = new double[1];
+
+		classUnderTest.applyAll(x, y, xd, yd, xdOut, ydOut, 1);
+
+		assertEquals(other.apply(affine.apply(source)).getXd(), xdOut[0], TOLERANCE);
+		assertEquals(other.apply(affine.apply(source)).getYd(), ydOut[0], TOLERANCE);
+		assertEquals(source.getXd(), xd[0], "source must not be modified");
+	}
+
+	private static void assertSameCorrection(Displacement expected, Displacement actual) {
+		assertAll(
+				() -> assertEquals(expected.getXd(), actual.getXd(), TOLERANCE, "xd"),
+				() -> assertEquals(expected.getYd(), actual.getYd(), TOLERANCE, "yd"),
+				() -> assertEquals(expected.getX(), actual.getX(), "x"),
+				() -> assertEquals(expected.getY(), actual.getY(), "y"));
+	}
+}
@@ -0,0 +1,48 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import net.raumzeitfalle.registration.displacement.Displacement;
+
+class ModelEquationsTest {
+
+	@Test
+	void streamOf() {
+
+		List<Displacement> displacements = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			displacements.add(Displacement.at(i, i, i, i, i + 0.1, i - 0.1));
+		}
+
+		assertTrue(ModelEquations.streamOf(displacements, 10).isParallel());
+		assertFalse(ModelEquations.streamOf(displacements, 11).isParallel());
+		assertFalse(ModelEquations.streamOf(displacements, Integer.MAX_VALUE).isParallel());
+		assertEquals(displacements, ModelEquations.streamOf(displacements, 1).collect(Collectors.toList()));
+	}
+
+}
@@ -0,0 +1,90 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import net.raumzeitfalle.registration.alignment.RigidModelEquation;
+import net.raumzeitfalle.registration.displacement.Displacement;
+
+class ModelEquationsViewTest {
+
+	@Test
+	void sameEquationsAsStreamed() {
+
+		List<Displacement> displacements = new ArrayList<>();
+		for (int i = 0; i < 1_000; i++) {
+			double x = (i % 50) * 100.0;
+			double y = (i / 50) * 100.0;
+			double yd = i % 11 == 0 ? Double.NaN : y + 0.001 * (i % 13);
+			displacements.add(Displacement.at(i, i, x, y, x - 0.002 * (i % 17), yd));
+		}
+		
+		Predicate<Displacement> selector = d -> d.getIndex() % 3 != 0;
+
+		List<RigidModelEquation> expectedEquations = displacements.stream()
+				.filter(selector)
+				.flatMap(RigidModelEquation::from)
+				.collect(Collectors.toList());
+		
+		DegreesOfFreedom expectedDof = displacements.stream()
+				.filter(selector)
+				.collect(DegreesOfFreedom::new, DegreesOfFreedom::accept, DegreesOfFreedom::combine);
+
+		ModelEquationsView<RigidModelEquation> view = ModelEquationsView.of(displacements, selector, RigidModelEquation::from);
+
+		assertEquals(expectedEquations.size(), view.size());
+		assertEquals(expectedDof.getX(), view.getDegreesOfFreedom().getX());
+		assertEquals(expectedDof.getY(), view.getDegreesOfFreedom().getY());
+		
+		// equations are created again for each iteration
+		for (int run = 0; run < 2; run++) {
+			Iterator<RigidModelEquation> it = view.iterator();
+			for (RigidModelEquation expected : expectedEquations) {
+				RigidModelEquation actual = it.next();
+				assertEquals(expected.getOrientation(), actual.getOrientation());
+				assertEquals(expected.getDesignValue(), actual.getDesignValue());
+				assertEquals(expected.getDeltaValue(), actual.getDeltaValue());
+			}
+		}
+	}
+	
+	@Test
+	void nothingSelected() {
+		
+		List<Displacement> displacements = List.of(Displacement.at(0, 0, 0, 0, 0.1, 0.1), 
+												   Displacement.at(1, 1, 100, 0, Double.NaN, Double.NaN));
+		
+		ModelEquationsView<RigidModelEquation> view = ModelEquationsView.of(displacements, d -> d.getIndex() > 0, RigidModelEquation::from);
+		
+		assertTrue(view.isEmpty());
+		assertEquals(0, view.getDegreesOfFreedom().getCombined());
+	}
+
+}
@@ -0,0 +1,80 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import net.raumzeitfalle.registration.solver.NormalEquations;
+
+class NormalEquationsAccumulatorTest {
+
+	private static final double TOLERANCE = 1E-12;
+
+	private static final int ROWS = 50_000;
+
+	private final NormalEquationsAccumulator.RowWriter rowWriter = (row, coefficients) -> {
+		coefficients[0] = 1.0;
+		coefficients[1] = (row % 250) * 400.0 - 50_000.0;
+		coefficients[2] = (row / 250) * 500.0 - 50_000.0;
+		return 0.01 + coefficients[1] * 2E-6 - coefficients[2] * 1E-6 + 1E-4 * Math.sin(row);
+	};
+
+	@Test
+	void parallel_sameAsSequential() {
+
+		NormalEquations sequential = new NormalEquationsAccumulator(Integer.MAX_VALUE).accumulate(ROWS, 3, rowWriter);
+		NormalEquations parallel = new NormalEquationsAccumulator(5_000).accumulate(ROWS, 3, rowWriter);
+
+		assertEquals(ROWS, sequential.getRows());
+		assertEquals(ROWS, parallel.getRows());
+
+		double[][] expectedNormals = sequential.getReferences().getArray();
+		double[][] actualNormals = parallel.getReferences().getArray();
+		double[] expectedMoments = sequential.getDeltas().getArray();
+		double[] actualMoments = parallel.getDeltas().getArray();
+		for (int i = 0; i < 3; i++) {
+			assertArrayEquals(expectedNormals[i], actualNormals[i], TOLERANCE, "normals in row " + i);
+			assertEquals(expectedMoments[i], actualMoments[i], TOLERANCE * Math.abs(expectedMoments[i]), "moment " + i);
+		}
+	}
+
+	@Test
+	void parallel_isRepeatable() {
+
+		NormalEquationsAccumulator classUnderTest = new NormalEquationsAccumulator(NormalEquationsAccumulator.MIN_ROWS_PER_TASK);
+
+		double[] first = classUnderTest.accumulate(ROWS, 3, rowWriter).getDeltas().getArray();
+		double[] second = classUnderTest.accumulate(ROWS, 3, rowWriter).getDeltas().getArray();
+
+		assertArrayEquals(first, second);
+	}
+
+	@Test
+	void emptyAndIllegalThreshold() {
+
+		assertEquals(0, new NormalEquationsAccumulator(1).accumulate(0, 2, rowWriter).getRows());
+
+		Throwable t = assertThrows(IllegalArgumentException.class, () -> new NormalEquationsAccumulator(0));
+		assertEquals("Parallel threshold must be positive.", t.getMessage());
+	}
+
+}
@@ -0,0 +1,155 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import net.raumzeitfalle.registration.displacement.Displacement;
+
+class RegistrationMomentsTest {
+
+	private static final double TOLERANCE = 1E-9;
+
+	@Test
+	void combine_sameAsSinglePass() {
+
+		List<Displacement> displacements = displacements(1000);
+
+		RegistrationMoments singlePass = new RegistrationMoments();
+		displacements.forEach(singlePass);
+
+		RegistrationMoments chunked = new RegistrationMoments();
+		for (int start = 0; start < displacements.size(); start += 170) {
+			RegistrationMoments chunk = new RegistrationMoments();
+			displacements.subList(start, Math.min(start + 170, displacements.size())).forEach(chunk);
+			chunked.combine(chunk);
+		}
+		chunked.combine(new RegistrationMoments());
+
+		RegistrationMoments parallel = displacements.parallelStream().collect(RegistrationMoments.collector());
+
+		for (RegistrationMoments actual : List.of(chunked, parallel)) {
+			assertEquals(singlePass.getDesignMeanX(), actual.getDesignMeanX(), TOLERANCE);
+			assertEquals(singlePass.getDesignMeanY(), actual.getDesignMeanY(), TOLERANCE);
+			assertSameMoments(singlePass.getX(), actual.getX());
+			assertSameMoments(singlePass.getY(), actual.getY());
+		}
+	}
+
+	@Test
+	void moments() {
+
+		List<Displacement> displacements = new ArrayList<>();
+		displacements.add(Displacement.at(0, 0, 0, 0, 1, 2));
+		displacements.add(Displacement.at(1, 1, 10, 0, 13, 1));
+		displacements.add(Displacement.at(2, 2, 0, 20, Double.NaN, 20));
+		displacements.add(Displacement.at(3, 3, 10, 20, 10, Double.NaN));
+
+		RegistrationMoments moments = RegistrationMoments.of(displacements, d -> true);
+
+		assertEquals(5.0, moments.getDesignMeanX(), TOLERANCE);
+		assertEquals(10.0, moments.getDesignMeanY(), TOLERANCE);
+
+		// X: (0,0,1), (10,0,3), (10,20,0)
+		RegistrationMoments.Moments x = moments.getX();
+		assertEquals(3, x.getCount());
+		assertEquals(20.0 / 3, x.getMeanX(), TOLERANCE);
+		assertEquals(20.0 / 3, x.getMeanY(), TOLERANCE);
+		assertEquals(4.0 / 3, x.getMeanDelta(), TOLERANCE);
+		assertEquals(200.0 / 3, x.getXX(), TOLERANCE);
+		assertEquals(200.0 / 3, x.getXY(), TOLERANCE);
+		assertEquals(800.0 / 3, x.getYY(), TOLERANCE);
+		assertEquals(10.0 / 3, x.getXDelta(), TOLERANCE);
+		assertEquals(-80.0 / 3, x.getYDelta(), TOLERANCE);
+		assertEquals(14.0 / 3, x.getDeltaDelta(), TOLERANCE);
+
+		// Y: (0,0,2), (10,0,1), (0,20,0)
+		RegistrationMoments.Moments y = moments.getY();
+		assertEquals(3, y.getCount());
+		assertEquals(1.0, y.getMeanDelta(), TOLERANCE);
+
+		assertEquals(Orientations.XY, moments.getDirection());
+		assertEquals(Distribution.AREA, moments.getDistribution());
+	}
+
+	@Test
+	void directionAndDistribution() {
+
+		List<Displacement> vertical = new ArrayList<>();
+		vertical.add(Displacement.at(0, 0, 0, 0, 1, Double.NaN));
+		vertical.add(Displacement.at(1, 1, 0, 10, 1, Double.NaN));
+		vertical.add(Displacement.at(2, 2, 0, 20, 1, 21));
+
+		RegistrationMoments verticalMoments = RegistrationMoments.of(vertical, d -> true);
+		assertEquals(Orientations.XY, verticalMoments.getDirection());
+		assertEquals(Distribution.SINGULARITY, verticalMoments.getDistribution());
+
+		RegistrationMoments xOnly = RegistrationMoments.of(vertical, d -> d.getIndex() < 2);
+		assertEquals(Orientations.X, xOnly.getDirection());
+
+		vertical.add(Displacement.at(3, 3, 0, 30, 1, 31));
+		assertEquals(Distribution.VERTICAL, RegistrationMoments.of(vertical, d -> true).getDistribution());
+	}
+
+	@Test
+	void empty() {
+
+		RegistrationMoments moments = RegistrationMoments.of(Collections.emptyList(), d -> true);
+
+		assertEquals(0, moments.getX().getCount());
+		assertEquals(0, moments.getY().getCount());
+		assertTrue(Double.isNaN(moments.getDesignMeanX()));
+		assertTrue(Double.isNaN(moments.getDesignMeanY()));
+		assertEquals(Orientations.XY, moments.getDirection());
+		assertThrows(IllegalArgumentException.class, () -> moments.getDistribution());
+	}
+
+	private static List<Displacement> displacements(int count) {
+		List<Displacement> displacements = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			double x = (i % 40) * 3500.0 + 1E5;
+			double y = (i / 40) * 4200.0 - 5E4;
+			double xd = i % 13 == 0 ? Double.NaN : x + 0.02 + 0.001 * Math.sin(i);
+			double yd = i % 17 == 0 ? Double.NaN : y - 0.01 + 0.002 * Math.cos(i);
+			displacements.add(Displacement.at(i, i, x, y, xd, yd));
+		}
+		return displacements;
+	}
+
+	private static void assertSameMoments(RegistrationMoments.Moments expected, RegistrationMoments.Moments actual) {
+		assertAll(
+			() -> assertEquals(expected.getCount(),      actual.getCount()),
+			() -> assertEquals(expected.getMeanX(),      actual.getMeanX(),      TOLERANCE),
+			() -> assertEquals(expected.getMeanY(),      actual.getMeanY(),      TOLERANCE),
+			() -> assertEquals(expected.getMeanDelta(),  actual.getMeanDelta(),  TOLERANCE),
+			() -> assertEquals(expected.getXX(),         actual.getXX(),         TOLERANCE * expected.getXX()),
+			() -> assertEquals(expected.getYY(),         actual.getYY(),         TOLERANCE * expected.getYY()),
+			() -> assertEquals(expected.getDeltaDelta(), actual.getDeltaDelta(), TOLERANCE * expected.getDeltaDelta()),
+			() -> assertEquals(expected.getXY(),         actual.getXY(),         TOLERANCE * Math.sqrt(expected.getXX() * expected.getYY())),
+			() -> assertEquals(expected.getXDelta(),     actual.getXDelta(),     TOLERANCE * Math.sqrt(expected.getXX() * expected.getDeltaDelta())),
+			() -> assertEquals(expected.getYDelta(),     actual.getYDelta(),     TOLERANCE * Math.sqrt(expected.getYY() * expected.getDeltaDelta())));
+	}
+}
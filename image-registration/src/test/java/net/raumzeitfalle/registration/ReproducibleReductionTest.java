@@ -0,0 +1,136 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.stream.Collector;
+
+import org.junit.jupiter.api.Test;
+
+import net.raumzeitfalle.registration.displacement.Displacement;
+
+class ReproducibleReductionTest {
+
+	private final Collector<Double, CompensatedSum, Double> sum = Collector.of(CompensatedSum::new,
+			CompensatedSum::accept, CompensatedSum::combine, CompensatedSum::getSum);
+
+	@Test
+	void parallel_bitIdenticalToSequential() {
+
+		List<Double> values = new ArrayList<>();
+		for (int i = 0; i < 100_003; i++) {
+			values.add(Math.sin(i) * Math.pow(10, i % 17 - 8));
+		}
+
+		double sequential = ReproducibleReduction.collect(values, sum, false);
+		for (int run = 0; run < 5; run++) {
+			assertEquals(sequential, ReproducibleReduction.collect(values, sum, true), 0.0, "run " + run);
+		}
+		assertEquals(sequential, ReproducibleReduction.collect(new LinkedList<>(values), sum, true), 0.0);
+		assertEquals(sequential, ReproducibleReduction.collect(values, sum), 0.0);
+	}
+
+	@Test
+	void sequential_iteratesWithoutCopy() {
+
+		for (int size : new int[] { 0, 1, ReproducibleReduction.BLOCK_SIZE, ReproducibleReduction.BLOCK_SIZE + 1,
+				4 * ReproducibleReduction.BLOCK_SIZE, 7 * ReproducibleReduction.BLOCK_SIZE + 3 }) {
+
+			List<Double> values = new ArrayList<>();
+			for (int i = 0; i < size; i++) {
+				values.add(Math.cos(i) * Math.pow(10, i % 13 - 6));
+			}
+
+			Collection<Double> iterableOnly = new AbstractCollection<Double>() {
+				@Override
+				public Iterator<Double> iterator() {
+					return values.iterator();
+				}
+
+				@Override
+				public int size() {
+					return values.size();
+				}
+
+				@Override
+				public Object[] toArray() {
+					throw new UnsupportedOperationException("must not be copied");
+				}
+			};
+
+			assertEquals(ReproducibleReduction.collect(values, sum, true), ReproducibleReduction.collect(iterableOnly, sum), 0.0, "size " + size);
+		}
+	}
+
+	@Test
+	void blocks() {
+
+		for (int size : new int[] { 0, 1, ReproducibleReduction.BLOCK_SIZE - 1, ReproducibleReduction.BLOCK_SIZE,
+				ReproducibleReduction.BLOCK_SIZE + 1, 5 * ReproducibleReduction.BLOCK_SIZE + 7 }) {
+			for (boolean parallel : new boolean[] { false, true }) {
+				int[] visited = ReproducibleReduction.reduce(size, () -> new int[size],
+						(indices, i) -> indices[i]++,
+						(left, right) -> {
+							for (int i = 0; i < size; i++) {
+								left[i] += right[i];
+							}
+							return left;
+						}, parallel);
+				for (int i = 0; i < size; i++) {
+					assertEquals(1, visited[i], "element " + i + " of " + size);
+				}
+			}
+		}
+
+		assertThrows(IllegalArgumentException.class,
+				() -> ReproducibleReduction.reduce(-1, CompensatedSum::new, (s, i) -> s.accept(i), CompensatedSum::combine, false));
+	}
+
+	@Test
+	void registrationMoments_bitIdenticalInParallel() {
+
+		List<Displacement> displacements = new ArrayList<>();
+		for (int i = 0; i < 30_000; i++) {
+			double x = (i % 150) * 1000.0 + 2E4;
+			double y = (i / 150) * 700.0 - 7E4;
+			displacements.add(Displacement.at(i, i, x, y, x + 0.01 + 1E-3 * Math.sin(i), y - 0.02 + 1E-3 * Math.cos(i)));
+		}
+
+		RegistrationMoments sequential = ReproducibleReduction.collect(displacements, RegistrationMoments.collector(), false);
+		RegistrationMoments parallel = ReproducibleReduction.collect(displacements, RegistrationMoments.collector(), true);
+
+		assertEquals(sequential.getDesignMeanX(), parallel.getDesignMeanX(), 0.0);
+		assertEquals(sequential.getX().getXDelta(), parallel.getX().getXDelta(), 0.0);
+		assertEquals(sequential.getY().getYDelta(), parallel.getY().getYDelta(), 0.0);
+		assertEquals(sequential.toAffineTransform().toString(), parallel.toAffineTransform().toString());
+		assertEquals(sequential.toAffineTransform().toString(), RegistrationMoments.of(displacements, d -> true, true).toAffineTransform().toString());
+		RegistrationMoments stream = displacements.stream().collect(RegistrationMoments.collector());
+		assertEquals(stream.getX().getXDelta(), RegistrationMoments.of(displacements, d -> true).getX().getXDelta(), 0.0);
+		assertEquals(stream.getX().getXDelta(), RegistrationMoments.of(displacements, d -> true, false).getX().getXDelta(), 0.0);
+	}
+
+}
@@ -20,6 +20,10 @@
 package net.raumzeitfalle.registration;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -134,4 +138,38 @@ class RigidBodyDegreesOfFreedomTest {
 		
 	}
 
+	@Test
+	void combine() {
+		
+		classUnderTest.accept(Displacement.at(0, 0, -1.0, -1.0, -1.1, -1.1));
+		classUnderTest.accept(Displacement.at(0, 0,  1.0, -1.0,  1.1, -1.1));
+		
+		DegreesOfFreedom other = new DegreesOfFreedom();
+		other.accept(Displacement.at(0, 0,  1.0,  2.0,  1.1,  2.1));
+		other.accept(Displacement.at(0, 0,  2.0,  2.0,  2.1,  Double.NaN));
+		
+		assertSame(classUnderTest, classUnderTest.combine(other));
+		
+		assertEquals( 3, classUnderTest.getX(), "degree of freedom in X");
+		assertEquals( 2, classUnderTest.getY(), "degree of freedom in Y");
+		assertEquals( 2, other.getX(), "other is not modified");
+	}
+	
+	@Test
+	void combine_parallel() {
+		
+		List<Displacement> displacements = new ArrayList<>();
+		for (int i = 0; i < 10_000; i++) {
+			displacements.add(Displacement.at(i, i, i % 100, i / 100, i % 100 + 0.1, i % 7 == 0 ? Double.NaN : i / 100));
+		}
+		
+		displacements.forEach(classUnderTest);
+		DegreesOfFreedom collected = displacements.parallelStream()
+												  .collect(DegreesOfFreedom::new, DegreesOfFreedom::accept, DegreesOfFreedom::combine);
+		
+		assertEquals(100, collected.getX(), "degree of freedom in X");
+		assertEquals(classUnderTest.getX(), collected.getX(), "degree of freedom in X");
+		assertEquals(classUnderTest.getY(), collected.getY(), "degree of freedom in Y");
+	}
+
 }
@@ -20,16 +20,24 @@
 package net.raumzeitfalle.registration;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.jupiter.api.Test;
 
+import net.raumzeitfalle.registration.alignment.RigidTransform;
 import net.raumzeitfalle.registration.alignment.SimpleTranslation;
 import net.raumzeitfalle.registration.displacement.Displacement;
+import net.raumzeitfalle.registration.displacement.DisplacementTable;
 import net.raumzeitfalle.registration.distortions.AffineTransform;
 import net.raumzeitfalle.registration.distortions.AffineTransformBuilder;
 import net.raumzeitfalle.registration.distortions.SimpleAffineTransform;
@@ -84,4 +92,108 @@ class TransformCorrectionTest {
 	 	
 	}
 
+	@Test
+	void apply_displacementTable() {
+		
+		AffineTransform transform = SimpleAffineTransform.with(SimpleTranslation.with(0.1, -0.2), 1E-6, -2E-6, 3E-6, 4E-6, 0, 0);
+		
+		List<Displacement> source = Arrays.asList(
+				Displacement.at(0, 0, 1000, 1000, 1000.1, 999.9),
+				Displacement.at(1, 1, -1000, 1000, -999.8, 1000.05));
+		
+		TransformCorrection correctionFunction = new TransformCorrection();
+		
+		List<Displacement> expected = (List<Displacement>) correctionFunction.apply(transform, source);
+		Collection<Displacement> result = correctionFunction.apply(transform, DisplacementTable.from(source));
+		
+		assertTrue(result instanceof DisplacementTable);
+		assertEquals(expected.size(), result.size());
+		
+		List<Displacement> actual = (List<Displacement>) result;
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).getXd(), actual.get(i).getXd());
+			assertEquals(expected.get(i).getYd(), actual.get(i).getYd());
+		}
+	}
+
+	@Test
+	void parallel_sameAsSequential() {
+		
+		List<Displacement> source = new ArrayList<>();
+		for (int i = 0; i < 50_000; i++) {
+			double x = (i % 250) * 400.0 - 5E4;
+			double y = (i / 250) * 500.0 - 5E4;
+			source.add(Displacement.at(i, i, x, y, x + 0.01 * Math.sin(i), i % 97 == 0 ? Double.NaN : y - 0.02 * Math.cos(i)));
+		}
+		
+		AffineTransform affine = SimpleAffineTransform.with(SimpleTranslation.with(0.1, -0.2), 1E-6, -2E-6, 3E-6, 4E-6, 0, 0);
+		Transform fused = affine.followedBy(RigidTransform.with(-0.05, 0.03, 2E-7));
+		Transform custom = new Transform() {
+			@Override
+			public Displacement apply(Displacement t) {
+				return t.correctBy(10, -10);
+			}
+		};
+		
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			List<TransformCorrection> parallelCorrections = Arrays.asList(TransformCorrection.parallel(1000),
+																		  TransformCorrection.parallel(1000, executor));
+			for (Transform transform : Arrays.asList(affine, fused, custom)) {
+				List<Displacement> expected = (List<Displacement>) new TransformCorrection().apply(transform, source);
+				for (TransformCorrection correction : parallelCorrections) {
+					assertSameDisplacements(expected, correction.apply(transform, source));
+					Collection<Displacement> fromLinkedList = correction.apply(transform, new LinkedList<>(source));
+					assertTrue(fromLinkedList instanceof RandomAccess);
+					assertSameDisplacements(expected, fromLinkedList);
+					
+					Collection<Displacement> table = correction.apply(transform, DisplacementTable.from(source));
+					assertTrue(table instanceof DisplacementTable);
+					assertSameDisplacements(expected, table);
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	@Test
+	void parallel_smallCollectionsSequential() {
+		
+		List<Displacement> source = Arrays.asList(Displacement.at(1, 1, 1000, 1000));
+		Transform failing = new Transform() {
+			@Override
+			public Displacement apply(Displacement t) {
+				throw new IllegalStateException(Thread.currentThread().getName());
+			}
+		};
+		
+		Throwable sequential = assertThrows(IllegalStateException.class, () -> TransformCorrection.parallel(2).apply(failing, source));
+		assertEquals(Thread.currentThread().getName(), sequential.getMessage());
+		
+		assertThrows(IllegalStateException.class, () -> TransformCorrection.parallel(1, Runnable::run).apply(failing, source),
+				"exceptions of tasks must be propagated unwrapped");
+	}
+	
+	@Test
+	void parallel_invalidArguments() {
+		
+		Throwable t = assertThrows(IllegalArgumentException.class, () -> TransformCorrection.parallel(0));
+		assertEquals("Parallel threshold must be positive.", t.getMessage());
+		
+		t = assertThrows(NullPointerException.class, () -> TransformCorrection.parallel(1, null));
+		assertEquals("Executor must not be null.", t.getMessage());
+	}
+	
+	private static void assertSameDisplacements(List<Displacement> expected, Collection<Displacement> actual) {
+		assertEquals(expected.size(), actual.size());
+		int i = 0;
+		for (Displacement a : actual) {
+			Displacement e = expected.get(i++);
+			assertEquals(e.getIndex(), a.getIndex());
+			assertEquals(e.getXd(), a.getXd());
+			assertEquals(e.getYd(), a.getYd());
+		}
+	}
+
 }
@@ -0,0 +1,130 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.alignment;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import net.raumzeitfalle.registration.DifferencesVector;
+import net.raumzeitfalle.registration.NormalEquationsAccumulator;
+import net.raumzeitfalle.registration.Orientation;
+import net.raumzeitfalle.registration.Orientations;
+import net.raumzeitfalle.registration.ReferencesMatrix;
+import net.raumzeitfalle.registration.displacement.Displacement;
+import net.raumzeitfalle.registration.solver.NormalEquations;
+
+class RigidEquationTableTest {
+
+	private final List<Displacement> displacements = Arrays.asList(
+			Displacement.at(0, 0, -10, -10, -9.9, -10.1),
+			Displacement.at(1, 1,  10, -10, 10.2, Double.NaN),
+			Displacement.at(2, 2,  10,  10, Double.NaN, 10.3),
+			Displacement.at(3, 3, -10,  10, -10.1, 9.8));
+
+	private final RigidEquationTable classUnderTest = displacements.stream().collect(RigidEquationTable.collector());
+
+	private final List<RigidModelEquation> equations = displacements.stream()
+			.flatMap(RigidModelEquation::from)
+			.collect(Collectors.toList());
+
+	@Test
+	void get() {
+		assertEquals(equations.size(), classUnderTest.size());
+		for (int i = 0; i < equations.size(); i++) {
+			assertEquals(equations.get(i).toString(), classUnderTest.get(i).toString());
+		}
+		assertEquals(2, classUnderTest.getDegreesOfFreedom().getX());
+		assertEquals(2, classUnderTest.getDegreesOfFreedom().getY());
+	}
+
+	@Test
+	void rows_sameAsEquations() {
+		assertSameRows(Orientations.X);
+		assertSameRows(Orientations.Y);
+		assertSameRows(Orientations.XY);
+	}
+
+	private void assertSameRows(Orientation direction) {
+
+		int cols = direction.getDimensions() + 1;
+
+		ReferencesMatrix expected = new ReferencesMatrix(equations.size(), cols);
+		NormalEquations expectedNormals = new NormalEquations(cols);
+		for (int row = 0; row < equations.size(); row++) {
+			expected.set(row, equations.get(row), direction);
+			expectedNormals.accept(expected.getArray()[row], equations.get(row).getDeltaValue());
+		}
+
+		ReferencesMatrix actual = classUnderTest.references(direction, cols);
+		for (int row = 0; row < equations.size(); row++) {
+			assertArrayEquals(expected.getArray()[row], actual.getArray()[row], direction + " references in row " + row);
+		}
+
+		assertArrayEquals(DifferencesVector.from(equations).getArray(), classUnderTest.deltas().getArray());
+
+		NormalEquations actualNormals = classUnderTest.accumulate(new NormalEquationsAccumulator(Integer.MAX_VALUE), direction, cols);
+		assertArrayEquals(expectedNormals.getDeltas().getArray(), actualNormals.getDeltas().getArray());
+		for (int i = 0; i < cols; i++) {
+			assertArrayEquals(expectedNormals.getReferences().getArray()[i], actualNormals.getReferences().getArray()[i]);
+		}
+	}
+
+	@Test
+	void collector_keepsOrderInParallelStreams() {
+
+		List<Displacement> many = new ArrayList<>();
+		for (int i = 0; i < 20_000; i++) {
+			many.add(Displacement.at(i, i, i % 200, i / 200, i % 200 + 0.01 * (i % 3), i / 200 - 0.02));
+		}
+
+		RigidEquationTable sequential = many.stream().collect(RigidEquationTable.collector());
+		RigidEquationTable parallel = many.parallelStream().collect(RigidEquationTable.collector());
+
+		assertTrue(sequential.hasSameDesign(parallel));
+		assertArrayEquals(sequential.deltas().getArray(), parallel.deltas().getArray());
+		assertEquals(200, parallel.getDegreesOfFreedom().getX());
+		assertEquals(100, parallel.getDegreesOfFreedom().getY());
+	}
+
+	@Test
+	void hasSameDesign() {
+
+		List<Displacement> moved = new ArrayList<>();
+		for (Displacement d : displacements) {
+			moved.add(Displacement.from(d, d.getXd() + 1.0, d.getYd() - 1.0));
+		}
+		RigidEquationTable other = moved.stream().collect(RigidEquationTable.collector());
+
+		assertTrue(classUnderTest.hasSameDesign(other));
+
+		RigidEquationTable fewer = displacements.subList(0, 3).stream().collect(RigidEquationTable.collector());
+		assertFalse(classUnderTest.hasSameDesign(fewer));
+	}
+
+}
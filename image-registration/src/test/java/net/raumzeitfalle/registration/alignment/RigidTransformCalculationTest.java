@@ -26,6 +26,10 @@ import java.util.function.*;
 
 import org.junit.jupiter.api.Test;
 
+import net.raumzeitfalle.registration.DegreesOfFreedom;
+import net.raumzeitfalle.registration.NormalEquationsAccumulator;
+import net.raumzeitfalle.registration.Orientable;
+import net.raumzeitfalle.registration.RegistrationMoments;
 import net.raumzeitfalle.registration.displacement.Displacement;
 
 class RigidTransformCalculationTest {
@@ -319,8 +323,158 @@ class RigidTransformCalculationTest {
 	}
 	
 	
+	@Test
+	void applyAll_groupsSharedDesigns() {
+		
+		List<Integer> groupSizes = new ArrayList<>();
+		RigidBodyModel recordingModel = new RigidBodyModel() {
+			@Override
+			public <T extends Orientable> RigidTransform solve(Collection<RigidModelEquation> equations, DegreesOfFreedom dof) {
+				return model.solve(equations, dof);
+			}
+			
+			@Override
+			public List<RigidTransform> solveAll(List<? extends Collection<RigidModelEquation>> runs, DegreesOfFreedom dof) {
+				groupSizes.add(runs.size());
+				return model.solveAll(runs, dof);
+			}
+		};
+		
+		List<Displacement> first = listOf(Displacement.at(0, 0, 1000, 1000, 1010, 1000),
+										  Displacement.at(1, 1, 1000, 9000, 1010, 9000),
+										  Displacement.at(2, 2, 9000, 9000, 9010, 9000));
+		
+		List<Displacement> second = listOf(Displacement.at(0, 0, 1000, 1000, 1000, 1020),
+										   Displacement.at(1, 1, 1000, 9000, 1000, 9020),
+										   Displacement.at(2, 2, 9000, 9000, 9000, 9020));
+		
+		List<Displacement> withMissingValue = listOf(Displacement.at(0, 0, 1000, 1000, Double.NaN, 1020),
+													 Displacement.at(1, 1, 1000, 9000, 1000, 9020),
+													 Displacement.at(2, 2, 9000, 9000, 9000, 9020));
+		
+		List<RigidTransform> results = new RigidTransformCalculation(recordingModel)
+												.applyAll(listOf(first, withMissingValue, second, Collections.emptyList()), d->true);
+		
+		assertAll(
+				()->assertEquals(Arrays.asList(2, 1), groupSizes, "first and second share the same design"),
+				()->assertEquals(4, results.size()),
+				()->assertEquals(10.0, results.get(0).getTranslationX(), TOLERANCE),
+				()->assertEquals( 0.0, results.get(0).getTranslationY(), TOLERANCE),
+				()->assertEquals( 0.0, results.get(2).getTranslationX(), TOLERANCE),
+				()->assertEquals(20.0, results.get(2).getTranslationY(), TOLERANCE),
+				()->assertEquals(20.0, results.get(1).getTranslationY(), TOLERANCE),
+				()->assertTrue(results.get(3).skip(), "no displacements given"));
+	}
+
+	@Test
+	void collector_sameAsApply() {
+		
+		List<Displacement> displacements = new ArrayList<>();
+		for (int i = 0; i < 400; i++) {
+			double x = (i % 20) * 7000.0 - 70000;
+			double y = (i / 20) * 7000.0 - 70000;
+			double xd = i % 37 == 0 ? Double.NaN : x + 0.05 - y * 1E-6 + 0.001 * (i % 7);
+			double yd = y - 0.03 + x * 1E-6 - 0.002 * (i % 5);
+			displacements.add(Displacement.at(i, i, x, y, xd, yd));
+		}
+		
+		RigidTransformCalculation calculation = new RigidTransformCalculation(model);
+		Predicate<Displacement> selection = d -> d.getIndex() % 3 != 0;
+		
+		RigidTransform expected = calculation.apply(displacements, selection);
+		RigidTransform collected = displacements.stream().filter(selection).collect(calculation.collector());
+		RigidTransform parallel = displacements.parallelStream().filter(selection).collect(calculation.collector());
+		
+		for (RigidTransform actual : listOf(collected, parallel)) {
+			assertAll(
+				()->assertEquals(expected.getTranslationX(), actual.getTranslationX(), TOLERANCE),
+				()->assertEquals(expected.getTranslationY(), actual.getTranslationY(), TOLERANCE),
+				()->assertEquals(expected.getRotation(),     actual.getRotation(),     TOLERANCE));
+		}
+		
+		assertTrue(Collections.<Displacement>emptyList().stream().collect(calculation.collector()).skip());
+	}
+
+	@Test
+	void moments_sameAsApply() {
+		
+		List<Displacement> displacements = new ArrayList<>();
+		for (int i = 0; i < 400; i++) {
+			double x = (i % 20) * 7000.0 - 70000;
+			double y = (i / 20) * 7000.0 - 70000;
+			double xd = i % 37 == 0 ? Double.NaN : x + 0.05 - y * 1E-6 + 0.001 * (i % 7);
+			double yd = y - 0.03 + x * 1E-6 - 0.002 * (i % 5);
+			displacements.add(Displacement.at(i, i, x, y, xd, yd));
+		}
+		
+		RigidTransformCalculation calculation = new RigidTransformCalculation(model);
+		
+		List<Displacement> xOnly = new ArrayList<>();
+		List<Displacement> yOnly = new ArrayList<>();
+		for (Displacement d : displacements) {
+			xOnly.add(Displacement.at(d.getIndex(), d.getId(), d.getX(), d.getY(), d.getXd(), Double.NaN));
+			yOnly.add(Displacement.at(d.getIndex(), d.getId(), d.getX(), d.getY(), Double.NaN, d.getYd()));
+		}
+		
+		Predicate<Displacement> selection = d -> d.getIndex() % 3 != 0;
+		Predicate<Displacement> singleSite = d -> d.getIndex() == 1;
+		
+		for (List<Displacement> data : listOf(displacements, xOnly, yOnly)) {
+			for (Predicate<Displacement> selector : listOf(selection, singleSite)) {
+				RigidTransform expected = calculation.apply(data, selector);
+				RigidTransform actual = calculation.apply(RegistrationMoments.of(data, selector));
+				assertAll(
+					()->assertEquals(expected.getTranslationX(), actual.getTranslationX(), TOLERANCE),
+					()->assertEquals(expected.getTranslationY(), actual.getTranslationY(), TOLERANCE),
+					()->assertEquals(expected.getRotation(),     actual.getRotation(),     TOLERANCE));
+			}
+		}
+		
+		assertTrue(calculation.apply(RegistrationMoments.of(displacements, d -> false)).skip());
+	}
+
+	@Test
+	void sequentialByDefault() {
+		
+		List<Displacement> displacements = new ArrayList<>();
+		for (int i = 0; i < NormalEquationsAccumulator.DEFAULT_THRESHOLD; i++) {
+			double x = (i % 500) * 300.0 - 75000;
+			double y = (i / 500) * 700.0 - 70000;
+			displacements.add(Displacement.at(i, i, x, y, x + 0.05 - y * 1E-6, y - 0.03 + x * 1E-6));
+		}
+		
+		Set<Thread> threads = Collections.synchronizedSet(new HashSet<>());
+		new RigidTransformCalculation(model).apply(displacements, d -> threads.add(Thread.currentThread()) || true);
+		
+		assertEquals(Collections.singleton(Thread.currentThread()), threads, "selector must only be called by the calling thread");
+	}
+
+	@Test
+	void parallel_sameAsApply() {
+		
+		List<Displacement> displacements = new ArrayList<>();
+		for (int i = 0; i < 20_000; i++) {
+			double x = (i % 200) * 700.0 - 70000;
+			double y = (i / 200) * 1400.0 - 70000;
+			double xd = i % 37 == 0 ? Double.NaN : x + 0.05 - y * 1E-6 + 0.001 * (i % 7);
+			double yd = y - 0.03 + x * 1E-6 - 0.002 * (i % 5);
+			displacements.add(Displacement.at(i, i, x, y, xd, yd));
+		}
+		
+		Predicate<Displacement> selection = d -> d.getIndex() % 3 != 0;
+		RigidTransform expected = new RigidTransformCalculation(model).apply(displacements, selection);
+		RigidTransform actual = RigidTransformCalculation.parallel(2_000).apply(displacements, selection);
+		
+		assertAll(
+			()->assertEquals(expected.getTranslationX(), actual.getTranslationX(), 1E-9),
+			()->assertEquals(expected.getTranslationY(), actual.getTranslationY(), 1E-9),
+			()->assertEquals(expected.getRotation(),     actual.getRotation(),     1E-12));
+		
+		assertThrows(IllegalArgumentException.class, ()->RigidTransformCalculation.parallel(0));
+	}
 
-	private List<Displacement> listOf(Displacement ... d) {
+	@SafeVarargs
+	private <T> List<T> listOf(T ... d) {
 		return Arrays.asList(d);
 	}
 
@@ -100,6 +100,27 @@ class SimpleRigidTransformTest {
 		assertEquals( -70.0, result.getYd(), TOLERANCE);
 	}
 	
+	@Test
+	void applyAll() {
+		classUnderTest = new SimpleRigidTransform(10, -20, 3);
+		
+		double[] x  = { 10, -10, 0 };
+		double[] y  = { 20, -10, 5 };
+		double[] xd = { 10, -10, 0 };
+		double[] yd = { 20, -10, 5 };
+		double[] xdOut = new double[3];
+		double[] ydOut = new double[3];
+		
+		classUnderTest.applyAll(x, y, xd, yd, xdOut, ydOut, 3);
+		
+		for (int i = 0; i < x.length; i++) {
+			Displacement expected = classUnderTest.apply(Displacement.at(i, i, x[i], y[i], xd[i], yd[i]));
+			assertEquals(expected.getXd(), xdOut[i], TOLERANCE);
+			assertEquals(expected.getYd(), ydOut[i], TOLERANCE);
+		}
+		assertEquals(10, xd[0], "source must not be modified");
+	}
+	
 	@Test
 	void toStringMethod() {
 		classUnderTest = new SimpleRigidTransform(10, -20, 3);
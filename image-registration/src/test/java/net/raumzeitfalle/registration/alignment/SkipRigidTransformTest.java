@@ -54,4 +54,19 @@ class SkipRigidTransformTest {
 		assertEquals( source, result );
 		assertEquals( source.hashCode(), result.hashCode() );
 	}
+	
+	@Test
+	void applyAll() {
+		double[] x  = { 10, 20 };
+		double[] y  = { 20, 30 };
+		double[] xd = { 10.1, 20.2 };
+		double[] yd = { 19.9, 29.8 };
+		double[] xdOut = new double[2];
+		double[] ydOut = new double[2];
+		
+		classUnderTest.applyAll(x, y, xd, yd, xdOut, ydOut, 2);
+		
+		assertArrayEquals(xd, xdOut);
+		assertArrayEquals(yd, ydOut);
+	}
 }
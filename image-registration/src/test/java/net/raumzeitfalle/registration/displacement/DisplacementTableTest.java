@@ -0,0 +1,184 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.displacement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import net.raumzeitfalle.registration.alignment.RigidTransform;
+
+class DisplacementTableTest {
+
+	private final List<Displacement> displacements = Arrays.asList(
+			Displacement.at(0, 10, -100.0,  -50.0, -100.1,  -49.8, Category.ALIGN),
+			Displacement.at(1, 11,  100.0,  -50.0,  100.2,  -50.1, Category.REG),
+			Displacement.at(2, 12,  100.0,   50.0,  100.0, Double.NaN, Category.INFO_ONLY),
+			Displacement.at(3, 13, -100.0,   50.0,  -99.7,   50.3, Category.ALIGN));
+
+	@Test
+	void from() {
+
+		DisplacementTable classUnderTest = DisplacementTable.from(displacements);
+
+		assertEquals(displacements.size(), classUnderTest.size());
+		for (int site = 0; site < displacements.size(); site++) {
+			assertSameSite(displacements.get(site), classUnderTest.get(site));
+		}
+	}
+
+	@Test
+	void from_table() {
+
+		DisplacementTable table = DisplacementTable.from(displacements);
+
+		assertSame(table, DisplacementTable.from(table), "a table must not be copied");
+	}
+
+	@Test
+	void columnAccess() {
+
+		DisplacementTable classUnderTest = DisplacementTable.from(displacements);
+
+		assertAll(
+				() -> assertEquals(1, classUnderTest.getIndex(1)),
+				() -> assertEquals(11, classUnderTest.getId(1)),
+				() -> assertEquals(100.0, classUnderTest.getX(1)),
+				() -> assertEquals(-50.0, classUnderTest.getY(1)),
+				() -> assertEquals(100.2, classUnderTest.getXd(1)),
+				() -> assertEquals(-50.1, classUnderTest.getYd(1)),
+				() -> assertEquals(displacements.get(1).dX(), classUnderTest.dX(1)),
+				() -> assertEquals(displacements.get(1).dY(), classUnderTest.dY(1)),
+				() -> assertTrue(Double.isNaN(classUnderTest.dY(2))),
+				() -> assertEquals(Category.INFO_ONLY, classUnderTest.getCategory(2)),
+				() -> assertThrows(IndexOutOfBoundsException.class, () -> classUnderTest.getX(4)),
+				() -> assertThrows(IndexOutOfBoundsException.class, () -> classUnderTest.get(-1))
+				);
+	}
+
+	@Test
+	void builder_growsBeyondCapacity() {
+
+		DisplacementTable.Builder builder = DisplacementTable.builder(0);
+		for (int i = 0; i < 100; i++) {
+			builder.add(i, i, i, -i, i + 0.5, -i - 0.5, Category.REG);
+		}
+		DisplacementTable classUnderTest = builder.build();
+
+		assertAll(
+				() -> assertEquals(100, classUnderTest.size()),
+				() -> assertEquals(99.5, classUnderTest.getXd(99)),
+				() -> assertEquals(-0.5, classUnderTest.dY(99)),
+				() -> assertEquals(100, classUnderTest.stream().count())
+				);
+	}
+
+	@Test
+	void builder_canOnlyBuildOnce() {
+
+		DisplacementTable.Builder builder = DisplacementTable.builder(1);
+		builder.build();
+
+		Throwable t = assertThrows(IllegalStateException.class, () -> builder.add(displacements.get(0)));
+
+		assertEquals("The DisplacementTable has already been built.", t.getMessage());
+	}
+
+	@Test
+	void isImmutable() {
+
+		DisplacementTable classUnderTest = DisplacementTable.from(displacements);
+
+		assertThrows(UnsupportedOperationException.class, () -> classUnderTest.add(displacements.get(0)));
+		assertThrows(UnsupportedOperationException.class, () -> classUnderTest.set(0, displacements.get(0)));
+	}
+
+	@Test
+	void map() {
+
+		DisplacementTable table = DisplacementTable.from(displacements);
+
+		DisplacementTable classUnderTest = table.map(d -> d.correctBy(0.1, -0.1));
+
+		assertAll(
+				() -> assertEquals(-100.2, classUnderTest.getXd(0), 1E-12),
+				() -> assertEquals( -49.7, classUnderTest.getYd(0), 1E-12),
+				() -> assertEquals(-100.0, classUnderTest.getX(0)),
+				() -> assertEquals(  10,   classUnderTest.getId(0)),
+				() -> assertEquals(Category.ALIGN, classUnderTest.getCategory(0)),
+				() -> assertEquals(-100.1, table.getXd(0), "source table must not be modified")
+				);
+	}
+
+	@Test
+	void transform() {
+
+		DisplacementTable table = DisplacementTable.from(displacements);
+		RigidTransform transform = RigidTransform.with(0.1, -0.1, 1E-6);
+
+		DisplacementTable classUnderTest = table.transform(transform);
+
+		assertEquals(table.size(), classUnderTest.size());
+		for (int site = 0; site < table.size(); site++) {
+			assertSameSite(transform.apply(displacements.get(site)), classUnderTest.get(site));
+		}
+		assertEquals(-100.1, table.getXd(0), "source table must not be modified");
+	}
+
+	@Test
+	void transform_inTasks() {
+
+		DisplacementTable table = DisplacementTable.from(displacements);
+		RigidTransform transform = RigidTransform.with(0.1, -0.1, 1E-6);
+
+		DisplacementTable classUnderTest = table.transform(transform, Runnable::run, 2);
+
+		assertEquals(table.size(), classUnderTest.size());
+		for (int site = 0; site < table.size(); site++) {
+			assertSameSite(transform.apply(displacements.get(site)), classUnderTest.get(site));
+		}
+		assertThrows(IllegalArgumentException.class, () -> table.transform(transform, Runnable::run, 0));
+	}
+
+	@Test
+	void summary() {
+
+		DisplacementSummary expected = Displacement.summarize(displacements, d -> !d.belongsTo(Category.INFO_ONLY));
+		DisplacementSummary actual = Displacement.summarize(DisplacementTable.from(displacements), d -> !d.belongsTo(Category.INFO_ONLY));
+
+		assertEquals(expected.toString(), actual.toString());
+	}
+
+	private static void assertSameSite(Displacement expected, Displacement actual) {
+		assertAll(
+				() -> assertEquals(expected.getIndex(), actual.getIndex(), "index"),
+				() -> assertEquals(expected.getId(), actual.getId(), "id"),
+				() -> assertEquals(expected.getX(), actual.getX(), "x"),
+				() -> assertEquals(expected.getY(), actual.getY(), "y"),
+				() -> assertEquals(expected.getXd(), actual.getXd(), "xd"),
+				() -> assertEquals(expected.getYd(), actual.getYd(), "yd"),
+				() -> assertEquals(expected.getCategory(), actual.getCategory(), "category")
+				);
+	}
+
+}
@@ -30,6 +30,8 @@ import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
+import net.raumzeitfalle.registration.alignment.TranslateFunction;
+
 class DisplacementTest {
 
 	private Displacement classUnderTest;
@@ -168,6 +170,29 @@ class DisplacementTest {
 		assertEquals(4544.5, meanYd, 1E-1);
 	}
 	
+	@Test
+	void average_reproducible() {
+		List<Displacement> displaced = new ArrayList<>();
+		for (int i = 0; i < 20_000; i++) {
+			double x = Math.sin(i) * 1E5;
+			displaced.add(Displacement.at(i, i, x, i % 7 == 0 ? Double.NaN : 1E4 * Math.cos(i), x + 0.01, 0));
+		}
+		
+		double stream = displaced.stream().mapToDouble(Displacement::getX).filter(Double::isFinite).average().orElse(Double.NaN);
+		assertEquals(stream, Displacement.average(displaced, d->true, Displacement::getX), 0.0);
+		assertEquals(stream, Displacement.average(displaced, d->true, Displacement::getX, false), 0.0);
+		
+		double reproducible = Displacement.average(displaced, d->true, Displacement::getX, true);
+		assertEquals(stream, reproducible, 1E-9);
+		for (int run = 0; run < 3; run++) {
+			assertEquals(reproducible, Displacement.average(displaced, d->true, Displacement::getX, true), 0.0);
+		}
+		
+		TranslateFunction translate = Displacement.translationToCenter(displaced, d->true, true);
+		assertEquals(-reproducible, translate.getX(), 0.0);
+		assertEquals(-Displacement.average(displaced, d->true, Displacement::getY, true), translate.getY(), 0.0);
+	}
+	
 	@Test
 	void summarize() {
 		
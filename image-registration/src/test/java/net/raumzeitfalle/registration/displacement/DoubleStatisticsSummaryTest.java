@@ -21,8 +21,13 @@ package net.raumzeitfalle.registration.displacement;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 
+import net.raumzeitfalle.registration.ReproducibleReduction;
+
 class DoubleStatisticsSummaryTest {
 
 	@Test
@@ -41,4 +46,88 @@ class DoubleStatisticsSummaryTest {
 		
 	}
 
+	@Test
+	void sdOfSample_largeOffset() {
+		
+		DoubleStatisticsSummary summary = new DoubleStatisticsSummary();
+		
+		for (int i = 1; i <= 6; i++) {
+			summary.accept(1E9 + i);
+		}
+		summary.accept(Double.NaN);
+				
+		assertEquals(6, summary.getCount());
+		assertEquals(1.87083, summary.getStdDevOfSample(), 1E-5);
+		
+	}
+	
+	@Test
+	void combine() {
+		
+		DoubleStatisticsSummary first = new DoubleStatisticsSummary();
+		DoubleStatisticsSummary second = new DoubleStatisticsSummary();
+		DoubleStatisticsSummary empty = new DoubleStatisticsSummary();
+		
+		first.accept(1.0);
+		first.accept(2.0);
+		second.accept(3.0);
+		second.accept(4.0);
+		second.accept(5.0);
+		second.accept(6.0);
+		
+		first.combine(second);
+		first.combine(empty);
+		empty.combine(first);
+		
+		assertEquals(6, first.getCount());
+		assertEquals(3.5, first.getAverage(), 1E-12);
+		assertEquals(1.0, first.getMin());
+		assertEquals(6.0, first.getMax());
+		assertEquals(1.87083, first.getStdDevOfSample(), 1E-5);
+		assertEquals(1.87083, empty.getStdDevOfSample(), 1E-5);
+		
+	}
+	
+	@Test
+	void sdOfSample_singleValue() {
+		
+		DoubleStatisticsSummary summary = new DoubleStatisticsSummary();
+		
+		assertEquals(Double.NaN, summary.getStdDevOfSample());
+		
+		summary.accept(1.0);
+		
+		assertEquals(Double.NaN, summary.getStdDevOfSample());
+	}
+
+	@Test
+	void median() {
+		
+		DoubleStatisticsSummary summary = new DoubleStatisticsSummary(50);
+		
+		for (int i = 1; i <= 99; i++) {
+			summary.accept(i);
+		}
+		
+		assertEquals(50.0, summary.getMedian());
+		assertEquals(99.0, summary.getQuantile(0.997));
+	}
+
+	@Test
+	void collector_reproducibleInParallel() {
+		
+		List<Double> values = new ArrayList<>();
+		for (int i = 0; i < 50_000; i++) {
+			values.add(1E5 + 0.001 * Math.sin(i));
+		}
+		
+		DoubleStatisticsSummary sequential = ReproducibleReduction.collect(values, DoubleStatisticsSummary.collector(Double::doubleValue), false);
+		DoubleStatisticsSummary parallel = ReproducibleReduction.collect(values, DoubleStatisticsSummary.collector(Double::doubleValue), true);
+		
+		assertEquals(50_000, parallel.getCount());
+		assertEquals(sequential.getAverage(), parallel.getAverage(), 0.0);
+		assertEquals(sequential.getStdDevOfSample(), parallel.getStdDevOfSample(), 0.0);
+		assertEquals(sequential.getMedian(), parallel.getMedian(), 0.0);
+	}
+
 }
@@ -0,0 +1,111 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.displacement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class QuantileSketchTest {
+
+	@Test
+	void fewValues_areExact() {
+
+		QuantileSketch classUnderTest = new QuantileSketch();
+
+		assertEquals(Double.NaN, classUnderTest.getMedian());
+
+		for (int i = 100; i >= 1; i--) {
+			classUnderTest.accept(i);
+		}
+		classUnderTest.accept(Double.NaN);
+
+		assertEquals(100, classUnderTest.getCount());
+		assertEquals(  1.0, classUnderTest.getQuantile(0.0));
+		assertEquals( 50.0, classUnderTest.getMedian());
+		assertEquals( 90.0, classUnderTest.getQuantile(0.9));
+		assertEquals(100.0, classUnderTest.getQuantile(0.997));
+		assertEquals(100.0, classUnderTest.getQuantile(1.0));
+	}
+
+	@Test
+	void manyValues_boundedMemory() {
+
+		QuantileSketch classUnderTest = new QuantileSketch();
+
+		int n = 1_000_000;
+		Random random = new Random(42);
+		for (int i = 0; i < n; i++) {
+			classUnderTest.accept(random.nextInt(n));
+		}
+
+		assertEquals(n, classUnderTest.getCount());
+		assertTrue(classUnderTest.getRetained() < 3 * QuantileSketch.DEFAULT_ACCURACY + 64,
+				"retained values: " + classUnderTest.getRetained());
+
+		double tolerance = 0.01 * n;
+		assertEquals(0.500 * n, classUnderTest.getMedian(), tolerance);
+		assertEquals(0.100 * n, classUnderTest.getQuantile(0.1), tolerance);
+		assertEquals(0.997 * n, classUnderTest.getQuantile(0.997), tolerance);
+	}
+
+	@Test
+	void merge() {
+
+		QuantileSketch first = new QuantileSketch(100);
+		QuantileSketch second = new QuantileSketch(100);
+		QuantileSketch all = new QuantileSketch(100);
+
+		int n = 200_000;
+		for (int i = 0; i < n; i++) {
+			double value = (i * 7919L) % n;
+			all.accept(value);
+			if (i % 3 == 0) {
+				first.accept(value);
+			} else {
+				second.accept(value);
+			}
+		}
+
+		first.merge(second);
+		first.merge(new QuantileSketch(100));
+
+		assertEquals(n, first.getCount());
+		assertEquals(0.0, first.getQuantile(0.0));
+		assertEquals(n - 1.0, first.getQuantile(1.0));
+
+		double tolerance = 0.02 * n;
+		assertEquals(all.getMedian(), first.getMedian(), tolerance);
+		assertEquals(0.5 * n, first.getMedian(), tolerance);
+		assertEquals(0.997 * n, first.getQuantile(0.997), tolerance);
+	}
+
+	@Test
+	void invalidArguments() {
+		assertThrows(IllegalArgumentException.class, () -> new QuantileSketch(4));
+		assertThrows(IllegalArgumentException.class, () -> new QuantileSketch().getQuantile(1.5));
+		assertThrows(IllegalArgumentException.class, () -> new QuantileSketch().getQuantile(Double.NaN));
+	}
+
+}
@@ -0,0 +1,109 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.displacement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class SiteSelectionTest {
+
+	private final List<Displacement> displacements = createDisplacements(130);
+
+	@Test
+	void of() {
+
+		SiteSelection classUnderTest = SiteSelection.of(displacements, d -> d.getIndex() % 3 == 0);
+
+		assertEquals(130, classUnderTest.size());
+		assertEquals(44, classUnderTest.count());
+		assertTrue(classUnderTest.isSelected(0));
+		assertFalse(classUnderTest.isSelected(1));
+		assertTrue(classUnderTest.isSelected(129));
+		assertThrows(IndexOutOfBoundsException.class, () -> classUnderTest.isSelected(130));
+	}
+
+	@Test
+	void allAndNone() {
+
+		assertEquals(130, SiteSelection.all(130).count());
+		assertEquals(0, SiteSelection.none(130).count());
+		assertEquals(0, SiteSelection.all(0).count());
+		assertEquals(SiteSelection.all(130), SiteSelection.none(130).not());
+
+		assertThrows(IllegalArgumentException.class, () -> SiteSelection.none(-1));
+	}
+
+	@Test
+	void bitwiseOperations() {
+
+		SiteSelection even = SiteSelection.of(displacements, d -> d.getIndex() % 2 == 0);
+		SiteSelection low = SiteSelection.of(displacements, d -> d.getIndex() < 70);
+
+		assertAll(
+				() -> assertEquals(SiteSelection.of(displacements, d -> d.getIndex() % 2 == 0 && d.getIndex() < 70), even.and(low)),
+				() -> assertEquals(SiteSelection.of(displacements, d -> d.getIndex() % 2 == 0 || d.getIndex() < 70), even.or(low)),
+				() -> assertEquals(SiteSelection.of(displacements, d -> d.getIndex() % 2 != 0), even.not()),
+				() -> assertEquals(65, even.not().count()),
+				() -> assertEquals(even, even.not().not()));
+
+		assertThrows(IllegalArgumentException.class, () -> even.and(SiteSelection.all(10)));
+		assertThrows(IllegalArgumentException.class, () -> even.or(SiteSelection.all(10)));
+	}
+
+	@Test
+	void select() {
+
+		SiteSelection classUnderTest = SiteSelection.of(displacements, d -> d.getIndex() > 60 && d.getIndex() < 68);
+
+		List<Displacement> selected = classUnderTest.select(displacements);
+		List<Displacement> selectedFromLinkedList = classUnderTest.select(new LinkedList<>(displacements));
+
+		assertEquals(displacements.subList(61, 68), selected);
+		assertEquals(selected, selectedFromLinkedList);
+
+		assertThrows(IllegalArgumentException.class, () -> classUnderTest.select(displacements.subList(0, 10)));
+	}
+
+	@Test
+	void select_appliesToCorrectedDisplacements() {
+
+		SiteSelection classUnderTest = SiteSelection.of(displacements, d -> d.getIndex() == 5);
+		DisplacementTable corrected = DisplacementTable.from(displacements).map(d -> d.correctBy(1, 1));
+
+		List<Displacement> selected = classUnderTest.select(corrected);
+
+		assertEquals(1, selected.size());
+		assertEquals(5, selected.get(0).getIndex());
+		assertEquals(displacements.get(5).getXd() - 1, selected.get(0).getXd(), 1E-12);
+	}
+
+	private static List<Displacement> createDisplacements(int count) {
+		List<Displacement> displacements = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			displacements.add(Displacement.at(i, i, i, -i, i + 0.1, -i - 0.1));
+		}
+		return displacements;
+	}
+}
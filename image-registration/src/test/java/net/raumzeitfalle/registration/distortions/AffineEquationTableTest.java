@@ -0,0 +1,128 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.distortions;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import net.raumzeitfalle.registration.DegreesOfFreedom;
+import net.raumzeitfalle.registration.DifferencesVector;
+import net.raumzeitfalle.registration.Orientation;
+import net.raumzeitfalle.registration.Orientations;
+import net.raumzeitfalle.registration.ReferencesMatrix;
+import net.raumzeitfalle.registration.alignment.TranslateFunction;
+import net.raumzeitfalle.registration.displacement.Displacement;
+
+class AffineEquationTableTest {
+
+	private final List<Displacement> displacements = Arrays.asList(
+			Displacement.at(0, 0, -70000, -20000, -69999.9,   -20000.1),
+			Displacement.at(1, 1,  70000, -20000,  70000.2,   Double.NaN),
+			Displacement.at(2, 2,  70000,  20000,  Double.NaN, 20000.3),
+			Displacement.at(3, 3, -70000,  20000, -70000.1,    19999.8));
+
+	private final TranslateFunction translate = Displacement.translationToCenter(displacements, d -> true);
+
+	private final AffineEquationTable classUnderTest = displacements.stream().collect(AffineEquationTable.collector(translate));
+
+	private final List<AffineModelEquation> equations = displacements.stream()
+			.map(translate)
+			.flatMap(AffineModelEquation::from)
+			.collect(Collectors.toList());
+
+	@Test
+	void get() {
+		assertEquals(equations.size(), classUnderTest.size());
+		for (int i = 0; i < equations.size(); i++) {
+			assertEquals(equations.get(i).toString(), classUnderTest.get(i).toString());
+			assertEquals(equations.get(i).getOrientation(), classUnderTest.get(i).getOrientation());
+		}
+
+		DegreesOfFreedom expected = new DegreesOfFreedom();
+		displacements.stream().map(translate).forEach(expected);
+		assertEquals(expected.getX(), classUnderTest.getDegreesOfFreedom().getX());
+		assertEquals(expected.getY(), classUnderTest.getDegreesOfFreedom().getY());
+	}
+
+	@Test
+	void rows_sameAsEquations() {
+		assertSameRows(Orientations.X);
+		assertSameRows(Orientations.Y);
+		assertSameRows(Orientations.XY);
+
+		ReferencesMatrix expected = new ReferencesMatrix(equations.size(), 4);
+		for (int row = 0; row < equations.size(); row++) {
+			expected.set1D(row, equations.get(row), Orientations.XY);
+		}
+		ReferencesMatrix actual = classUnderTest.references1D(4);
+		for (int row = 0; row < equations.size(); row++) {
+			assertArrayEquals(expected.getArray()[row], actual.getArray()[row], "1D references in row " + row);
+		}
+
+		assertArrayEquals(DifferencesVector.from(equations).getArray(), classUnderTest.deltas().getArray());
+	}
+
+	private void assertSameRows(Orientation direction) {
+		int cols = direction.getDimensions() * 3;
+		ReferencesMatrix expected = new ReferencesMatrix(equations.size(), cols);
+		for (int row = 0; row < equations.size(); row++) {
+			expected.set2D(row, equations.get(row), direction);
+		}
+		ReferencesMatrix actual = classUnderTest.references(direction, cols);
+		for (int row = 0; row < equations.size(); row++) {
+			assertArrayEquals(expected.getArray()[row], actual.getArray()[row], direction + " references in row " + row);
+		}
+	}
+
+	@Test
+	void select() {
+		AffineEquationTable x = classUnderTest.select(Orientations.X);
+		AffineEquationTable y = classUnderTest.select(Orientations.Y);
+
+		assertEquals(3, x.size());
+		assertEquals(3, y.size());
+		assertTrue(x.stream().allMatch(eq -> eq.matches(Orientations.X)));
+		assertTrue(y.stream().allMatch(eq -> eq.matches(Orientations.Y)));
+		assertEquals(equations.get(2).toString(), x.get(1).toString());
+	}
+
+	@Test
+	void hasSameDesign() {
+		List<Displacement> moved = new ArrayList<>();
+		for (Displacement d : displacements) {
+			moved.add(Displacement.from(d, d.getXd() + 1.0, d.getYd() - 1.0));
+		}
+		AffineEquationTable other = moved.stream().collect(AffineEquationTable.collector(translate));
+		AffineEquationTable shifted = displacements.stream().collect(AffineEquationTable.collector(new TranslateFunction(1.0, 0.0)));
+
+		assertTrue(classUnderTest.hasSameDesign(other));
+		assertFalse(classUnderTest.hasSameDesign(shifted));
+	}
+
+}
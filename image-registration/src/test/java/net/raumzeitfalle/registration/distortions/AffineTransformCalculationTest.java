@@ -27,12 +27,19 @@ import java.util.function.*;
 
 import org.junit.jupiter.api.Test;
 
+import net.raumzeitfalle.registration.NormalEquationsAccumulator;
+import net.raumzeitfalle.registration.RegistrationMoments;
 import net.raumzeitfalle.registration.displacement.Displacement;
 
 class AffineTransformCalculationTest {
 
 	private static final double TOLERANCE = 1E-11;
 	
+	/*
+	 * Mean design locations are calculated incrementally from moments, hence differ in the last digits.
+	 */
+	private static final double MOMENTS_TOLERANCE = 1E-9;
+	
 	private final BiFunction<Collection<Displacement>, 
 							  Predicate<Displacement>, 
 							          AffineTransform> funtionUnderTest = new AffineTransformCalculation();
@@ -296,6 +303,122 @@ class AffineTransformCalculationTest {
 		assertEquals(  2.0, toPPM(result.getOrtho()) ,        TOLERANCE);
 	}
 	
+	@Test
+	void collector_sameAsApply() {
+		
+		List<Displacement> displacements = new ArrayList<>();
+		for (int i = 0; i < 400; i++) {
+			double x = (i % 20) * 7000.0 - 70000;
+			double y = (i / 20) * 7000.0 - 70000;
+			double xd = i % 37 == 0 ? Double.NaN : x + 0.05 + x * 2E-6 - y * 1E-6 + 0.001 * (i % 7);
+			double yd = y - 0.03 + y * 3E-6 + x * 1E-6 - 0.002 * (i % 5);
+			displacements.add(Displacement.at(i, i, x, y, xd, yd));
+		}
+		
+		AffineTransformCalculation calculation = new AffineTransformCalculation();
+		Predicate<Displacement> selection = d -> d.getIndex() % 3 != 0;
+		
+		AffineTransform expected = calculation.apply(displacements, selection);
+		AffineTransform collected = displacements.stream().filter(selection).collect(calculation.collector());
+		AffineTransform parallel = displacements.parallelStream().filter(selection).collect(calculation.collector());
+		
+		// the collector solves from registration moments
+		for (AffineTransform actual : Arrays.asList(collected, parallel)) {
+			assertSameAffineTransform(expected, actual);
+		}
+		assertSameAffineTransform(calculation.apply(RegistrationMoments.of(displacements, selection)), collected);
+		
+		assertTrue(Collections.<Displacement>emptyList().stream().collect(calculation.collector()).skip());
+	}
+	
+	@Test
+	void moments_sameAsApply() {
+		
+		List<Displacement> displacements = new ArrayList<>();
+		for (int i = 0; i < 400; i++) {
+			double x = (i % 20) * 7000.0 - 70000;
+			double y = (i / 20) * 7000.0 - 70000;
+			double xd = i % 37 == 0 ? Double.NaN : x + 0.05 + x * 2E-6 - y * 1E-6 + 0.001 * (i % 7);
+			double yd = y - 0.03 + y * 3E-6 + x * 1E-6 - 0.002 * (i % 5);
+			displacements.add(Displacement.at(i, i, x, y, xd, yd));
+		}
+		
+		List<Displacement> xOnly = new ArrayList<>();
+		List<Displacement> yOnly = new ArrayList<>();
+		for (Displacement d : displacements) {
+			xOnly.add(Displacement.at(d.getIndex(), d.getId(), d.getX(), d.getY(), d.getXd(), Double.NaN));
+			yOnly.add(Displacement.at(d.getIndex(), d.getId(), d.getX(), d.getY(), Double.NaN, d.getYd()));
+		}
+		
+		AffineTransformCalculation calculation = new AffineTransformCalculation();
+		Predicate<Displacement> selection = d -> d.getIndex() % 3 != 0;
+		Predicate<Displacement> vertical = d -> d.getIndex() % 20 == 3;
+		Predicate<Displacement> horizontal = d -> d.getIndex() / 20 == 5;
+		
+		for (List<Displacement> data : Arrays.asList(displacements, xOnly, yOnly)) {
+			assertSameAffineTransform(calculation.apply(data, selection), 
+									  calculation.apply(RegistrationMoments.of(data, selection)));
+		}
+		
+		for (Predicate<Displacement> line : Arrays.asList(vertical, horizontal)) {
+			assertSameAffineTransform(calculation.apply(displacements, line), 
+					  				  calculation.apply(RegistrationMoments.of(displacements, line)));
+		}
+		
+		Predicate<Displacement> singleSite = d -> d.getIndex() == 1;
+		assertTrue(calculation.apply(RegistrationMoments.of(displacements, singleSite)).skip());
+		assertTrue(calculation.apply(RegistrationMoments.of(displacements, d -> false)).skip());
+	}
+	
+	@Test
+	void sequentialByDefault() {
+		
+		List<Displacement> displacements = new ArrayList<>();
+		for (int i = 0; i < NormalEquationsAccumulator.DEFAULT_THRESHOLD; i++) {
+			double x = (i % 500) * 300.0 - 75000;
+			double y = (i / 500) * 700.0 - 70000;
+			displacements.add(Displacement.at(i, i, x, y, x + 0.05 + x * 2E-6 - y * 1E-6, y - 0.03 + y * 3E-6 + x * 1E-6));
+		}
+		
+		Set<Thread> threads = Collections.synchronizedSet(new HashSet<>());
+		new AffineTransformCalculation().apply(displacements, d -> threads.add(Thread.currentThread()) || true);
+		
+		assertEquals(Collections.singleton(Thread.currentThread()), threads, "selector must only be called by the calling thread");
+	}
+
+	@Test
+	void parallel_sameAsApply() {
+		
+		List<Displacement> displacements = new ArrayList<>();
+		for (int i = 0; i < 20_000; i++) {
+			double x = (i % 200) * 700.0 - 70000;
+			double y = (i / 200) * 1400.0 - 70000;
+			double xd = i % 37 == 0 ? Double.NaN : x + 0.05 + x * 2E-6 - y * 1E-6 + 0.001 * (i % 7);
+			double yd = y - 0.03 + y * 3E-6 + x * 1E-6 - 0.002 * (i % 5);
+			displacements.add(Displacement.at(i, i, x, y, xd, yd));
+		}
+		
+		Predicate<Displacement> selection = d -> d.getIndex() % 3 != 0;
+		AffineTransform expected = new AffineTransformCalculation().apply(displacements, selection);
+		AffineTransform actual = AffineTransformCalculation.parallel(2_000).apply(displacements, selection);
+		
+		assertSameAffineTransform(expected, actual);
+		
+		assertThrows(IllegalArgumentException.class, ()->AffineTransformCalculation.parallel(0));
+	}
+	
+	private void assertSameAffineTransform(AffineTransform expected, AffineTransform actual) {
+		assertAll(
+			() -> assertEquals(expected.getTranslationX(), actual.getTranslationX(), MOMENTS_TOLERANCE),
+			() -> assertEquals(expected.getTranslationY(), actual.getTranslationY(), MOMENTS_TOLERANCE),
+			() -> assertEquals(expected.getCenterX(),      actual.getCenterX(),      MOMENTS_TOLERANCE),
+			() -> assertEquals(expected.getCenterY(),      actual.getCenterY(),      MOMENTS_TOLERANCE),
+			() -> assertEquals(expected.getScaleX(),       actual.getScaleX(),       MOMENTS_TOLERANCE),
+			() -> assertEquals(expected.getScaleY(),       actual.getScaleY(),       MOMENTS_TOLERANCE),
+			() -> assertEquals(expected.getOrthoX(),       actual.getOrthoX(),       MOMENTS_TOLERANCE),
+			() -> assertEquals(expected.getOrthoY(),       actual.getOrthoY(),       MOMENTS_TOLERANCE));
+	}
+	
 	/**
 	 * Converts affine transform coefficient value into parts-per-million (PPM).
 	 * 
@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class SimpleAffineTransformTest {
@@ -29,4 +30,27 @@ public class SimpleAffineTransformTest {
         assertAll(()->assertTrue(Double.isFinite(result.getXd())),
                   ()->assertTrue(Double.isFinite(result.getYd())));
     }
+
+    @Test
+    void applyAll_inPlace() {
+        AffineTransform transform = SimpleAffineTransform.forXY(1, -1, 2E-6, -3E-6, 4E-6, 5E-6);
+
+        double[] x  = { 70000, Double.NaN, -20000 };
+        double[] y  = { 20000, 10000, Double.NaN };
+        double[] xd = { 70000.123, 0.1, -20000.01 };
+        double[] yd = { 19999.991, 10000.2, 0.3 };
+
+        List<Displacement> expected = new ArrayList<>();
+        for (int i = 0; i < x.length; i++) {
+            expected.add(transform.apply(Displacement.at(i, i, x[i], y[i], xd[i], yd[i])));
+        }
+
+        transform.applyAll(x, y, xd, yd, xd, yd, x.length);
+
+        for (int i = 0; i < x.length; i++) {
+            assertEquals(expected.get(i).getXd(), xd[i], "xd at site " + i);
+            assertEquals(expected.get(i).getYd(), yd[i], "yd at site " + i);
+        }
+        assertTrue(Double.isNaN(x[1]), "design locations must not be modified");
+    }
 }
@@ -0,0 +1,131 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.firstorder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import net.raumzeitfalle.registration.Transform;
+import net.raumzeitfalle.registration.displacement.Displacement;
+import net.raumzeitfalle.registration.displacement.DisplacementTable;
+
+class CorrectedDisplacementsTest {
+
+	private final AtomicInteger applied = new AtomicInteger();
+
+	private final Transform shift = d -> {
+		applied.incrementAndGet();
+		return Displacement.from(d, d.getXd() + 1.0, d.getYd() - 2.0);
+	};
+
+	@Test
+	void correctionAppliedOnceOnIteration() {
+
+		List<Displacement> source = new ArrayList<>();
+		source.add(Displacement.at(0, 0, 10, 20, 11, 19));
+		source.add(Displacement.at(1, 1, 30, 40, 32, 41));
+
+		CorrectedDisplacements classUnderTest = new CorrectedDisplacements(shift, source);
+
+		assertEquals(2, classUnderTest.size());
+		assertFalse(classUnderTest.isEmpty());
+		assertEquals(0, applied.get(), "size must not apply the correction");
+		assertFalse(classUnderTest.isMaterialized());
+
+		List<Displacement> corrected = new ArrayList<>(classUnderTest);
+		assertEquals(2, applied.get());
+		assertTrue(classUnderTest.isMaterialized());
+
+		assertEquals(12.0, corrected.get(0).getXd(), 0.0);
+		assertEquals(17.0, corrected.get(0).getYd(), 0.0);
+		assertEquals(33.0, corrected.get(1).getXd(), 0.0);
+		assertEquals(39.0, corrected.get(1).getYd(), 0.0);
+
+		List<Displacement> streamed = classUnderTest.stream().collect(Collectors.toList());
+		assertEquals(2, applied.get(), "correction must only be applied once");
+		assertSame(corrected.get(0), streamed.get(0));
+		assertSame(corrected.get(1), streamed.get(1));
+		assertSame(shift, classUnderTest.getCorrection());
+	}
+
+	@Test
+	void randomAccessList() {
+
+		List<Displacement> source = new ArrayList<>();
+		source.add(Displacement.at(0, 0, 10, 20, 11, 19));
+		source.add(Displacement.at(1, 1, 30, 40, 32, 41));
+
+		CorrectedDisplacements classUnderTest = new CorrectedDisplacements(shift, source);
+
+		assertTrue(classUnderTest instanceof RandomAccess);
+		assertEquals(33.0, classUnderTest.get(1).getXd(), 0.0);
+		assertEquals(2, applied.get(), "access by index must materialize all displacements");
+		assertSame(classUnderTest.get(0), classUnderTest.iterator().next());
+		assertEquals(classUnderTest.materialize(), classUnderTest);
+		assertEquals(2, applied.get(), "correction must only be applied once");
+		assertThrows(UnsupportedOperationException.class, () -> classUnderTest.add(source.get(0)));
+	}
+
+	@Test
+	void skippedCorrection_ofCollection() {
+
+		ArrayDeque<Displacement> source = new ArrayDeque<>();
+		source.add(Displacement.at(0, 0, 10, 20, 11, 19));
+		source.add(Displacement.at(1, 1, 30, 40, 32, 41));
+
+		Transform skip = new Transform() {
+			@Override
+			public Displacement apply(Displacement d) {
+				throw new AssertionError("skipped transform must not be applied");
+			}
+
+			@Override
+			public boolean skip() {
+				return true;
+			}
+		};
+
+		CorrectedDisplacements classUnderTest = new CorrectedDisplacements(skip, source);
+
+		assertSame(source.getLast(), classUnderTest.get(1));
+		assertEquals(2, classUnderTest.size());
+	}
+
+	@Test
+	void materialize_keepsColumnOrientedStorage() {
+
+		List<Displacement> source = new ArrayList<>();
+		source.add(Displacement.at(0, 0, 10, 20, 11, 19));
+
+		CorrectedDisplacements classUnderTest = new CorrectedDisplacements(shift, DisplacementTable.from(source));
+
+		assertTrue(classUnderTest.materialize() instanceof DisplacementTable);
+		assertEquals(12.0, classUnderTest.iterator().next().getXd(), 0.0);
+	}
+
+}
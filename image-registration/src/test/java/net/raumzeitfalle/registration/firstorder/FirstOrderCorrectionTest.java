@@ -0,0 +1,200 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.firstorder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import net.raumzeitfalle.registration.TransformCorrection;
+import net.raumzeitfalle.registration.alignment.RigidTransform;
+import net.raumzeitfalle.registration.alignment.RigidTransformCalculation;
+import net.raumzeitfalle.registration.displacement.Displacement;
+import net.raumzeitfalle.registration.displacement.DisplacementTable;
+
+class FirstOrderCorrectionTest {
+	
+	private static final double TOLERANCE = 1E-11;
+	
+	private final FirstOrderSetup setup = FirstOrderSetup.usingAlignment(Alignments.ALL)
+														 .compensate(Compensations.SCALE, Compensations.ORTHO)
+														 .build();
+
+	@Test
+	void usingAll_withSharedDesign() {
+		
+		List<List<Displacement>> runs = Arrays.asList(PointGrid.withNodes(5).moveBy(10, -15),
+													  scaled(PointGrid.withNodes(5).moveBy(-3, 7), 2E-6, -1E-6),
+													  scaled(PointGrid.withNodes(5).create(), 1E-6, 3E-6));
+		
+		List<FirstOrderResult> results = FirstOrderCorrection.usingAll(runs, setup);
+		
+		assertEquals(runs.size(), results.size());
+		for (int i = 0; i < runs.size(); i++) {
+			assertSameResult(FirstOrderCorrection.using(runs.get(i), setup), results.get(i));
+		}
+	}
+	
+	@Test
+	void usingAll_withDifferentDesigns() {
+		
+		List<Displacement> withMissingValue = PointGrid.withNodes(5).moveBy(10, -15);
+		Displacement first = withMissingValue.get(0);
+		withMissingValue.set(0, Displacement.from(first, Double.NaN, first.getYd()));
+		
+		List<List<Displacement>> runs = Arrays.asList(PointGrid.withNodes(5).moveBy(10, -15),
+													  withMissingValue,
+													  Collections.emptyList(),
+													  PointGrid.withNodes(3).moveBy(-3, 7),
+													  scaled(PointGrid.withNodes(5).create(), 1E-6, 3E-6));
+		
+		List<FirstOrderResult> results = new FirstOrderCorrection().applyAll(runs, setup);
+		
+		assertEquals(runs.size(), results.size());
+		for (int i = 0; i < runs.size(); i++) {
+			assertSameResult(FirstOrderCorrection.using(runs.get(i), setup), results.get(i));
+		}
+	}
+	
+	@Test
+	void using_displacementTable() {
+		
+		List<Displacement> displacements = scaled(PointGrid.withNodes(5).moveBy(10, -15), 2E-6, -1E-6);
+		
+		FirstOrderResult result = FirstOrderCorrection.using(DisplacementTable.from(displacements), setup);
+		
+		assertTrue(result.materializeDisplacements() instanceof DisplacementTable, "column oriented storage must be kept");
+		assertSameResult(FirstOrderCorrection.using(displacements, setup), result);
+	}
+	
+	@Test
+	void using_correctsDisplacementsOnlyWhenIterated() {
+		
+		List<Displacement> displacements = scaled(PointGrid.withNodes(5).moveBy(10, -15), 2E-6, -1E-6);
+		
+		FirstOrderResult result = FirstOrderCorrection.using(displacements, setup);
+		
+		assertTrue(result.getDisplacements() instanceof CorrectedDisplacements);
+		CorrectedDisplacements view = (CorrectedDisplacements) result.getDisplacements();
+		assertEquals(displacements.size(), view.size());
+		assertFalse(view.isMaterialized(), "correction must not be applied before iteration");
+		
+		Displacement first = view.iterator().next();
+		assertTrue(view.isMaterialized());
+		assertSame(first, result.getDisplacements().iterator().next(), "correction must only be applied once");
+		assertSame(result.materializeDisplacements(), result.materializeDisplacements());
+	}
+	
+	@Test
+	void using_alignmentSelectionOnCompensatedDisplacements() {
+		
+		List<Displacement> grid = scaled(PointGrid.withNodes(5).moveBy(10, -15), 2E-6, -1E-6);
+		List<Displacement> displacements = new ArrayList<>(grid.size());
+		for (int i = 0; i < grid.size(); i++) {
+			Displacement d = grid.get(i);
+			displacements.add(Displacement.from(d, d.getXd() + 1E-3 * ((i * 7) % 5 - 2), d.getYd() - 1E-3 * ((i * 3) % 4 - 1.5)));
+		}
+		
+		// depends on the displaced location, hence selects other sites after compensation
+		Predicate<Displacement> alignmentSelection = d -> d.dX() < 0;
+		FirstOrderSetup selectedAlignment = FirstOrderSetup.usingAlignment(Alignments.SELECTED)
+														   .selectForAlignment(alignmentSelection)
+														   .compensate(Compensations.SCALE, Compensations.ORTHO)
+														   .build();
+		
+		FirstOrderResult result = FirstOrderCorrection.using(displacements, selectedAlignment);
+		
+		Collection<Displacement> compensated = new TransformCorrection().apply(result.getFirstOrder(), displacements);
+		RigidTransform residualAlignment = new RigidTransformCalculation().apply(compensated, alignmentSelection);
+		List<Displacement> expected = new ArrayList<>(new TransformCorrection().apply(residualAlignment, compensated));
+		
+		assertNotEquals(displacements.stream().filter(alignmentSelection).count(), 
+						compensated.stream().filter(alignmentSelection).count(), "selection must differ after compensation");
+		
+		// the fused correction is rounded differently than two consecutive corrections
+		double tolerance = 1E-9;
+		Iterator<Displacement> actual = result.getDisplacements().iterator();
+		for (Displacement e : expected) {
+			Displacement a = actual.next();
+			assertEquals(e.getXd(), a.getXd(), tolerance, "xd of site " + e.getIndex());
+			assertEquals(e.getYd(), a.getYd(), tolerance, "yd of site " + e.getIndex());
+		}
+	}
+	
+	@Test
+	void usingAll_withoutRuns() {
+		
+		List<FirstOrderResult> results = FirstOrderCorrection.usingAll(Collections.emptyList(), setup);
+		
+		assertTrue(results.isEmpty());
+	}
+	
+	private List<Displacement> scaled(List<Displacement> displacements, double scaleX, double scaleY) {
+		return displacements.stream()
+							.map(d->Displacement.from(d, d.getXd() + d.getX()*scaleX, d.getYd() + d.getY()*scaleY))
+							.collect(Collectors.toList());
+	}
+	
+	private void assertSameResult(FirstOrderResult expected, FirstOrderResult actual) {
+		
+		assertAll(
+				()->assertEquals(expected.getAlignment().getTranslationX(), actual.getAlignment().getTranslationX(), TOLERANCE, "alignment x-translation"),
+				()->assertEquals(expected.getAlignment().getTranslationY(), actual.getAlignment().getTranslationY(), TOLERANCE, "alignment y-translation"),
+				()->assertEquals(expected.getAlignment().getRotation(),     actual.getAlignment().getRotation(),     TOLERANCE, "alignment rotation"),
+				
+				()->assertEquals(expected.getFirstOrder().getTranslationX(), actual.getFirstOrder().getTranslationX(), TOLERANCE, "first order x-translation"),
+				()->assertEquals(expected.getFirstOrder().getTranslationY(), actual.getFirstOrder().getTranslationY(), TOLERANCE, "first order y-translation"),
+				()->assertEquals(expected.getFirstOrder().getScaleX(),       actual.getFirstOrder().getScaleX(),       TOLERANCE, "first order x-scale"),
+				()->assertEquals(expected.getFirstOrder().getScaleY(),       actual.getFirstOrder().getScaleY(),       TOLERANCE, "first order y-scale"),
+				()->assertEquals(expected.getFirstOrder().getOrthoX(),       actual.getFirstOrder().getOrthoX(),       TOLERANCE, "first order x-ortho"),
+				()->assertEquals(expected.getFirstOrder().getOrthoY(),       actual.getFirstOrder().getOrthoY(),       TOLERANCE, "first order y-ortho"),
+				()->assertEquals(expected.getFirstOrder().skip(),            actual.getFirstOrder().skip(),                       "first order skip"));
+		
+		Collection<Displacement> expectedDisplacements = expected.getDisplacements();
+		Collection<Displacement> actualDisplacements = actual.getDisplacements();
+		
+		assertEquals(expectedDisplacements.size(), actualDisplacements.size());
+		
+		List<Double> expectedDeltas = new ArrayList<>();
+		List<Double> actualDeltas = new ArrayList<>();
+		Iterator<Displacement> it = actualDisplacements.iterator();
+		for (Displacement e : expectedDisplacements) {
+			Displacement a = it.next();
+			expectedDeltas.add(e.dX());
+			expectedDeltas.add(e.dY());
+			actualDeltas.add(a.dX());
+			actualDeltas.add(a.dY());
+		}
+		
+		for (int i = 0; i < expectedDeltas.size(); i++) {
+			assertEquals(expectedDeltas.get(i), actualDeltas.get(i), TOLERANCE, "delta " + i);
+		}
+	}
+
+}
@@ -21,6 +21,7 @@ package net.raumzeitfalle.registration.firstorder;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.util.Arrays;
@@ -30,6 +31,7 @@ import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
+import net.raumzeitfalle.registration.SkipTransform;
 import net.raumzeitfalle.registration.alignment.RigidTransform;
 import net.raumzeitfalle.registration.displacement.Displacement;
 import net.raumzeitfalle.registration.distortions.AffineTransform;
@@ -91,6 +93,18 @@ class FirstOrderResultTest {
 		assertEquals(rigid, classUnderTest.getAlignment(), "Alignment Transform (Rigid Transform)");
 		assertEquals(affine, classUnderTest.getFirstOrder(), "Affine Transform (First order scale-ortho model parameters)");
 		assertEquals(samples, classUnderTest.getDisplacements(), "Collection of displacements");
+		assertEquals(samples, classUnderTest.materializeDisplacements(), "Collection of displacements");
+
+	}
+	
+	@Test
+	void creationWithSkippedCorrection() {
+		
+		Collection<Displacement> samples = Arrays.asList(Displacement.at(1, 1, 0.19, 1.21));
+		
+		classUnderTest = new FirstOrderResult(rigid, affine, (SkipTransform) d->d, samples);
+		
+		assertSame(samples, classUnderTest.getDisplacements(), "Nothing to correct, original displacements are used");
 
 	}
 
@@ -301,6 +301,27 @@ class FirstOrderSetupTest {
 						"No sites left which match the removal criterion."));
 	}
 	
+	@ParameterizedTest
+	@EnumSource(Alignments.class)
+	void selectFrom_matchesPredicates(Alignments alignment) {
+
+		classUnderTest = FirstOrderSetup.usingAlignment(alignment)
+				.selectForAlignment(FIRST_SITE.or(THIRD_SITE))
+				.selectForCalculation(d -> d.getIndex() < 4)
+				.removeDisplacements(THIRD_SITE)
+				.build();
+
+		List<Displacement> source = getDisplacements(70);
+
+		FirstOrderSetup.Selections selections = classUnderTest.selectFrom(source);
+
+		assertAll(
+				() -> assertEquals(filter(source, classUnderTest.getAlignmentSelection()), selections.getAlignment().select(source), "alignment"),
+				() -> assertEquals(filter(source, classUnderTest.getCalculationSelection()), selections.getCalculation().select(source), "calculation"),
+				() -> assertEquals(filter(source, classUnderTest.getRemovalSelection()), selections.getRemoval().select(source), "removal"),
+				() -> assertEquals(filter(source, classUnderTest.withoutRemovedDisplacements()), selections.withoutRemovedDisplacements().select(source), "remaining"));
+	}
+	
 	private List<Displacement> filter(List<Displacement> displacements, Predicate<Displacement> filter) {
 		return displacements.stream()
 					        .filter(filter)
@@ -19,6 +19,10 @@
  */
 package net.raumzeitfalle.registration.jama;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
 import net.raumzeitfalle.registration.solver.*;
 import net.raumzeitfalle.registration.solver.spi.SolverAdapter;
 
@@ -27,23 +31,87 @@ import Jama.QRDecomposition;
 
 public class JamaSolver implements SolverAdapter {
 	
+	/*
+	 * QR decompositions are only cached when a capacity is given, as each entry keeps a copy of the design.
+	 */
+	private final FactorizationCache<QRDecomposition> factorizations;
+	
+	public JamaSolver() {
+		this.factorizations = null;
+	}
+	
+	/**
+	 * Creates a solver which keeps the QR decompositions of recently solved designs (e.g. repeated measurements of one layout).
+	 * 
+	 * @param cacheCapacity number of QR decompositions kept for recurring designs, must be at least 1
+	 */
+	public JamaSolver(int cacheCapacity) {
+		this.factorizations = new FactorizationCache<>(cacheCapacity);
+	}
+	
 	public Solution solve(References references, Deltas deviations) {
 		
-		Matrix refs = new Matrix(references.getArray());
 		Matrix deltas = new Matrix(deviations.getArray(), deviations.rows());
 		
-		QRDecomposition qr = new QRDecomposition(refs);
+		QRDecomposition qr = decompose(references);
 		
-		Matrix rInverse = qr.getR().inverse();
-		Matrix qTransposed = qr.getQ().transpose();
-		Matrix solution = rInverse.times(qTransposed)
-								  .times(deltas);
+		Matrix solution = qr.solve(deltas);
 		
 		double[] firstColumn = getFirstColumn(solution);
 		return Solutions.fromArray(firstColumn);
 		
 	}
 
+	@Override
+	public List<Solution> solveAll(References references, List<? extends Deltas> deltas) {
+		
+		Matrix columns = new Matrix(references.rows(), deltas.size());
+		for (int column = 0; column < deltas.size(); column++) {
+			double[] deviations = deltas.get(column).getArray();
+			for (int row = 0; row < deviations.length; row++) {
+				columns.set(row, column, deviations[row]);
+			}
+		}
+		
+		QRDecomposition qr = decompose(references);
+		Matrix solution = qr.solve(columns);
+		
+		List<Solution> solutions = new ArrayList<>(deltas.size());
+		for (int column = 0; column < deltas.size(); column++) {
+			double[] coefficients = new double[solution.getRowDimension()];
+			for (int row = 0; row < coefficients.length; row++) {
+				coefficients[row] = solution.get(row, column);
+			}
+			solutions.add(Solutions.fromArray(coefficients));
+		}
+		return solutions;
+	}
+
+	@Override
+	public Solution solve(NormalEquations equations) {
+		
+		Matrix normals = new Matrix(equations.getReferences().getArray());
+		Matrix moments = new Matrix(equations.getDeltas().getArray(), equations.getColumns());
+		
+		Matrix solution = normals.chol().solve(moments);
+		
+		return equations.toSolution(getFirstColumn(solution));
+	}
+
+	private QRDecomposition decompose(References references) {
+		if (null == factorizations) {
+			return new QRDecomposition(new Matrix(references.getArray()));
+		}
+		return factorizations.computeIfAbsent(references, r -> new QRDecomposition(new Matrix(r.getArray())));
+	}
+
+	/**
+	 * @return {@link FactorizationCache} holding the QR decompositions of recently solved designs, empty unless created with a cache capacity
+	 */
+	public Optional<FactorizationCache<QRDecomposition>> getFactorizationCache() {
+		return Optional.ofNullable(factorizations);
+	}
+
 	private double[] getFirstColumn(Matrix solution) {	
 		double[] column = new double[solution.getRowDimension()];
 		for (int row = 0; row < column.length; row++) {
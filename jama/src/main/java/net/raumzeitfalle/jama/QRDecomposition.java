@@ -214,5 +214,50 @@ public class QRDecomposition implements java.io.Serializable {
       }
       return (new Matrix(X,n,nx).getMatrix(0,n-1,0,nx-1));
    }
+
+   /** Least squares solution of A*x = b for a single right hand side.
+   <P>
+   The stored Householder vectors are applied directly to b, followed by
+   back substitution on R. Neither Q nor the inverse of R are formed.
+   @param b    An array with as many elements as A has rows.
+   @return     x that minimizes the two norm of Q*R*x-b.
+   @exception  IllegalArgumentException  Array length must agree with row dimension.
+   @exception  RuntimeException  Matrix is rank deficient.
+   */
+
+   public double[] solve (double[] b) {
+      if (b.length != m) {
+         throw new IllegalArgumentException("Array length must agree with row dimension.");
+      }
+      if (!this.isFullRank()) {
+         throw new RuntimeException("Matrix is rank deficient.");
+      }
+
+      // Copy right hand side
+      double[] y = new double[m];
+      System.arraycopy(b, 0, y, 0, m);
+
+      // Compute y = transpose(Q)*b
+      for (int k = 0; k < n; k++) {
+         double s = 0.0;
+         for (int i = k; i < m; i++) {
+            s += QR[i][k]*y[i];
+         }
+         s = -s/QR[k][k];
+         for (int i = k; i < m; i++) {
+            y[i] += s*QR[i][k];
+         }
+      }
+      // Solve R*x = y;
+      for (int k = n-1; k >= 0; k--) {
+         y[k] /= Rdiag[k];
+         for (int i = 0; i < k; i++) {
+            y[i] -= y[k]*QR[i][k];
+         }
+      }
+      double[] x = new double[n];
+      System.arraycopy(y, 0, x, 0, n);
+      return x;
+   }
   private static final long serialVersionUID = 1;
 }
@@ -19,7 +19,13 @@
  */
 package net.raumzeitfalle.jama;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
 import net.raumzeitfalle.registration.solver.Deltas;
+import net.raumzeitfalle.registration.solver.FactorizationCache;
+import net.raumzeitfalle.registration.solver.NormalEquations;
 import net.raumzeitfalle.registration.solver.References;
 import net.raumzeitfalle.registration.solver.Solution;
 import net.raumzeitfalle.registration.solver.Solutions;
@@ -27,21 +33,68 @@ import net.raumzeitfalle.registration.solver.spi.SolverAdapter;
 
 public class Solver implements SolverAdapter {
 	
+	/*
+	 * QR decompositions are only cached when a capacity is given, as each entry keeps a copy of the design.
+	 */
+	private final FactorizationCache<QRDecomposition> factorizations;
+	
+	public Solver() {
+		this.factorizations = null;
+	}
+	
+	/**
+	 * Creates a solver which keeps the QR decompositions of recently solved designs (e.g. repeated measurements of one layout).
+	 * 
+	 * @param cacheCapacity number of QR decompositions kept for recurring designs, must be at least 1
+	 */
+	public Solver(int cacheCapacity) {
+		this.factorizations = new FactorizationCache<>(cacheCapacity);
+	}
+	
 	public Solution solve(References references, Deltas deviations) {
 		
-		Matrix refs = new Matrix(references.getArray());
-		Matrix deltas = new Matrix(deviations.getArray(), deviations.rows());
+		QRDecomposition qr = decompose(references);
 		
-		QRDecomposition qr = new QRDecomposition(refs);
+		double[] firstColumn = qr.solve(deviations.getArray());
+		return Solutions.fromArray(firstColumn);
 		
-		Matrix rInverse = qr.getR().inverse();
-		Matrix qTransposed = qr.getQ().transpose();
-		Matrix solution = rInverse.times(qTransposed)
-								  .times(deltas);
+	}
+
+	@Override
+	public List<Solution> solveAll(References references, List<? extends Deltas> deltas) {
 		
-		double[] firstColumn = getFirstColumn(solution);
-		return Solutions.fromArray(firstColumn);
+		QRDecomposition qr = decompose(references);
 		
+		List<Solution> solutions = new ArrayList<>(deltas.size());
+		for (Deltas deviations : deltas) {
+			solutions.add(Solutions.fromArray(qr.solve(deviations.getArray())));
+		}
+		return solutions;
+	}
+
+	@Override
+	public Solution solve(NormalEquations equations) {
+		
+		Matrix normals = new Matrix(equations.getReferences().getArray());
+		Matrix moments = new Matrix(equations.getDeltas().getArray(), equations.getColumns());
+		
+		Matrix solution = normals.chol().solve(moments);
+		
+		return equations.toSolution(getFirstColumn(solution));
+	}
+
+	private QRDecomposition decompose(References references) {
+		if (null == factorizations) {
+			return new QRDecomposition(new Matrix(references.getArray()));
+		}
+		return factorizations.computeIfAbsent(references, r -> new QRDecomposition(new Matrix(r.getArray())));
+	}
+
+	/**
+	 * @return {@link FactorizationCache} holding the QR decompositions of recently solved designs, empty unless created with a cache capacity
+	 */
+	public Optional<FactorizationCache<QRDecomposition>> getFactorizationCache() {
+		return Optional.ofNullable(factorizations);
 	}
 
 	private double[] getFirstColumn(Matrix solution) {	
@@ -0,0 +1,92 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.jama;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QRDecompositionTest {
+
+	private static final double TOLERANCE = 1E-11;
+
+	private final double[][] design = { 
+			{ -75000.0, 0.0, 0.0, -70000.0, 1.0, 0.0 }, 
+			{ 0.0, -70000.0, 75000.0, 0.0, 0.0, 1.0 },
+			{ -75000.0, 0.0, 0.0, 70000.0, 1.0, 0.0 }, 
+			{ 0.0, 70000.0, 75000.0, 0.0, 0.0, 1.0 },
+			{ 75000.0, 0.0, 0.0, 70000.0, 1.0, 0.0 }, 
+			{ 0.0, 70000.0, -75000.0, 0.0, 0.0, 1.0 },
+			{ 75000.0, 0.0, 0.0, -70000.0, 1.0, 0.0 }, 
+			{ 0.0, -70000.0, -75000.0, 0.0, 0.0, 1.0 } };
+
+	private final double[] differences = { -0.075, 0.140, -0.075, -0.140, 0.075, -0.140, 0.075, 0.140 };
+
+	@Test
+	void solveVector() {
+
+		QRDecomposition qr = new QRDecomposition(new Matrix(design));
+
+		double[] result = qr.solve(differences);
+		Matrix expected = qr.getR().inverse()
+							.times(qr.getQ().transpose())
+							.times(new Matrix(differences, differences.length));
+
+		assertEquals(6, result.length);
+		for (int i = 0; i < result.length; i++) {
+			assertEquals(expected.get(i, 0), result[i], TOLERANCE, "coefficient " + i);
+		}
+		assertEquals(1.0E-6, result[0], TOLERANCE, "scale x");
+		assertEquals(-2.0E-6, result[1], TOLERANCE, "scale y");
+	}
+
+	@Test
+	void solveVector_rightHandSideIsNotModified() {
+
+		double[] deltas = differences.clone();
+
+		new QRDecomposition(new Matrix(design)).solve(deltas);
+
+		assertArrayEquals(differences, deltas);
+	}
+
+	@Test
+	void solveVector_withWrongLength() {
+
+		QRDecomposition qr = new QRDecomposition(new Matrix(design));
+
+		Throwable t = assertThrows(IllegalArgumentException.class, () -> qr.solve(new double[3]));
+
+		assertEquals("Array length must agree with row dimension.", t.getMessage());
+	}
+
+	@Test
+	void solveVector_rankDeficient() {
+
+		double[][] singular = { { 1.0, 0.0 }, { 2.0, 0.0 }, { 3.0, 0.0 } };
+
+		QRDecomposition qr = new QRDecomposition(new Matrix(singular));
+
+		Throwable t = assertThrows(RuntimeException.class, () -> qr.solve(new double[] { 1.0, 2.0, 3.0 }));
+
+		assertEquals("Matrix is rank deficient.", t.getMessage());
+	}
+
+}
@@ -19,17 +19,25 @@
  */
 package net.raumzeitfalle.jama;
 
+import java.util.Arrays;
+
 import net.raumzeitfalle.registration.solver.Solution;
 import net.raumzeitfalle.registration.solver.spi.SolverAdapter;
+import net.raumzeitfalle.registration.solver.testing.SolverAdapterTestBase;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
 
-class SolverTest {
+class SolverTest extends SolverAdapterTestBase {
 
 	private final SolverAdapter classUnderTest = new Solver();
 
 	private static final double TOLERANCE = 1E-11;
+
+	@Override
+	protected SolverAdapter createSolver() {
+		return classUnderTest;
+	}
 	
 	@Test
 	void test() {
@@ -64,4 +72,42 @@ class SolverTest {
 
 	}
 
+	@Test
+	void recurringDesign_isFactorizedOnce() {
+
+		double[][] design = { 
+				{ -75000.0, 0.0, 0.0, -70000.0, 1.0, 0.0 }, 
+				{ 0.0, -70000.0, 75000.0, 0.0, 0.0, 1.0 },
+				{ -75000.0, 0.0, 0.0, 70000.0, 1.0, 0.0 }, 
+				{ 0.0, 70000.0, 75000.0, 0.0, 0.0, 1.0 },
+				{ 75000.0, 0.0, 0.0, 70000.0, 1.0, 0.0 }, 
+				{ 0.0, 70000.0, -75000.0, 0.0, 0.0, 1.0 },
+				{ 75000.0, 0.0, 0.0, -70000.0, 1.0, 0.0 }, 
+				{ 0.0, -70000.0, -75000.0, 0.0, 0.0, 1.0 } };
+		
+		double[][] remeasured = Arrays.stream(design).map(double[]::clone).toArray(double[][]::new);
+
+		double[] differences = { -0.075, 0.140, -0.075, -0.140, 0.075, -0.140, 0.075, 0.140 };
+		
+		double[] doubled = { -0.150, 0.280, -0.150, -0.280, 0.150, -0.280, 0.150, 0.280 };
+
+		Solver solver = new Solver(8);
+		Solution first = solver.solve(() -> design, () -> differences);
+		Solution second = solver.solve(() -> remeasured, () -> doubled);
+
+		assertAll(() -> assertEquals(1, solver.getFactorizationCache().get().getMisses(), "misses"),
+				() -> assertEquals(1, solver.getFactorizationCache().get().getHits(), "hits"),
+				
+				() -> assertEquals( 1.0E-6, first.get(0), TOLERANCE, "scale x"),
+				() -> assertEquals(-2.0E-6, first.get(1), TOLERANCE, "scale y"),
+				
+				() -> assertEquals( 2.0E-6, second.get(0), TOLERANCE, "scale x"),
+				() -> assertEquals(-4.0E-6, second.get(1), TOLERANCE, "scale y"));
+	}
+
+	@Test
+	void noFactorizationCacheByDefault() {
+		
+		assertFalse(new Solver().getFactorizationCache().isPresent());
+	}
 }
@@ -19,10 +19,14 @@
  */
 package net.raumzeitfalle.registration.jblas;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.jblas.DoubleMatrix;
 import org.jblas.Solve;
 
 import net.raumzeitfalle.registration.solver.Deltas;
+import net.raumzeitfalle.registration.solver.NormalEquations;
 import net.raumzeitfalle.registration.solver.References;
 import net.raumzeitfalle.registration.solver.Solution;
 import net.raumzeitfalle.registration.solver.Solutions;
@@ -45,5 +49,32 @@ public class JblasSolver implements SolverAdapter {
 		
 		return Solutions.fromArray(coefficients);		
 	}
+	
+	@Override
+	public List<Solution> solveAll(References references, List<? extends Deltas> deltas) {
+		
+		DoubleMatrix refs = new DoubleMatrix(references.getArray());
+		DoubleMatrix columns = new DoubleMatrix(refs.getRows(), deltas.size());
+		for (int column = 0; column < deltas.size(); column++) {
+			columns.putColumn(column, new DoubleMatrix(deltas.get(column).getArray()));
+		}
+		DoubleMatrix coeffs = Solve.solveLeastSquares(refs, columns);
+		
+		List<Solution> solutions = new ArrayList<>(deltas.size());
+		for (int column = 0; column < deltas.size(); column++) {
+			solutions.add(Solutions.fromArray(coeffs.getColumn(column).toArray()));
+		}
+		return solutions;
+	}
+	
+	@Override
+	public Solution solve(NormalEquations equations) {
+		
+		DoubleMatrix normals = new DoubleMatrix(equations.getReferences().getArray());
+		DoubleMatrix moments = new DoubleMatrix(equations.getDeltas().getArray());
+		DoubleMatrix coeffs = Solve.solvePositive(normals, moments);
+		
+		return equations.toSolution(coeffs.toArray());
+	}
 
 }
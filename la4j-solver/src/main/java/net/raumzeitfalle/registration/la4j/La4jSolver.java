@@ -19,6 +19,10 @@
  */
 package net.raumzeitfalle.registration.la4j;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
 import org.la4j.LinearAlgebra.InverterFactory;
 import org.la4j.Matrix;
 import org.la4j.decomposition.QRDecompositor;
@@ -28,10 +32,62 @@ import net.raumzeitfalle.registration.solver.spi.SolverAdapter;
 
 public class La4jSolver implements SolverAdapter {
 
+	/*
+	 * Pseudo inverses have the size of the design, hence they are only cached when a capacity is given.
+	 */
+	private final FactorizationCache<Matrix> pseudoInverses;
+
+	public La4jSolver() {
+		this.pseudoInverses = null;
+	}
+
+	/**
+	 * Creates a solver which keeps the pseudo inverses of recently solved designs (e.g. repeated measurements of one layout).
+	 * Each cached entry holds the design and its pseudo inverse, both with the size of the design.
+	 * 
+	 * @param cacheCapacity number of pseudo inverses kept for recurring designs, must be at least 1
+	 */
+	public La4jSolver(int cacheCapacity) {
+		this.pseudoInverses = new FactorizationCache<>(cacheCapacity);
+	}
+
 	public Solution solve(References references, Deltas deviations) {
 
+		Matrix laRinvQTransp = pseudoInverseOf(references);
+
+		return solve(laRinvQTransp, deviations);
+
+	}
+
+	@Override
+	public List<Solution> solveAll(References references, List<? extends Deltas> deltas) {
+
+		Matrix laRinvQTransp = pseudoInverseOf(references);
+
+		List<Solution> solutions = new ArrayList<>(deltas.size());
+		for (Deltas deviations : deltas) {
+			solutions.add(solve(laRinvQTransp, deviations));
+		}
+		return solutions;
+	}
+
+	/**
+	 * @return {@link FactorizationCache} holding the pseudo inverses of recently solved designs, empty unless created with a cache capacity
+	 */
+	public Optional<FactorizationCache<Matrix>> getFactorizationCache() {
+		return Optional.ofNullable(pseudoInverses);
+	}
+
+	private Matrix pseudoInverseOf(References references) {
+		if (null == pseudoInverses) {
+			return pseudoInverse(references);
+		}
+		return pseudoInverses.computeIfAbsent(references, this::pseudoInverse);
+	}
+
+	private Matrix pseudoInverse(References references) {
+
 		Matrix laRef = Matrix.from2DArray(references.getArray());
-		Matrix laDeltas = Matrix.from1DArray(deviations.rows(), 1, deviations.getArray());
 
 		QRDecompositor laQr = new QRDecompositor(laRef);
 		Matrix[] laQrResult = laQr.decompose();
@@ -42,7 +98,12 @@ public class La4jSolver implements SolverAdapter {
 		Matrix r = laQrResult[1];
 		Matrix rInv = InverterFactory.GAUSS_JORDAN.create(r).inverse();
 
-		Matrix laRinvQTransp = rInv.multiply(qTrans);
+		return rInv.multiply(qTrans);
+	}
+
+	private Solution solve(Matrix laRinvQTransp, Deltas deviations) {
+
+		Matrix laDeltas = Matrix.from1DArray(deviations.rows(), 1, deviations.getArray());
 
 		Matrix solved = laRinvQTransp.multiply(laDeltas);
 
@@ -53,7 +114,24 @@ public class La4jSolver implements SolverAdapter {
 		}
 
 		return Solutions.fromArray(coefficients);
+	}
+
+	@Override
+	public Solution solve(NormalEquations equations) {
+
+		int cols = equations.getColumns();
+		Matrix normals = Matrix.from2DArray(equations.getReferences().getArray());
+		Matrix moments = Matrix.from1DArray(cols, 1, equations.getDeltas().getArray());
+
+		Matrix normalsInv = InverterFactory.GAUSS_JORDAN.create(normals).inverse();
+		Matrix solved = normalsInv.multiply(moments);
+
+		double[] coefficients = new double[cols];
+		for (int i = 0; i < cols; i++) {
+			coefficients[i] = solved.get(i, 0);
+		}
 
+		return equations.toSolution(coefficients);
 	}
 
 	@Override
@@ -25,12 +25,19 @@ import org.junit.jupiter.api.Test;
 
 import net.raumzeitfalle.registration.solver.*;
 import net.raumzeitfalle.registration.solver.spi.SolverAdapter;
+import net.raumzeitfalle.registration.solver.testing.SolverAdapterTestBase;
 
-class La4jSolverTest {
+class La4jSolverTest extends SolverAdapterTestBase {
 
 	private final SolverAdapter classUnderTest = new La4jSolver();
 
 	private static final double TOLERANCE = 1E-11; 
+
+	@Override
+	protected SolverAdapter createSolver() {
+		return classUnderTest;
+	}
+
 	@Test
 	void test() {
 
@@ -0,0 +1,203 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.solver;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Bounded and thread safe least recently used (LRU) cache for factorizations (e.g. QR decomposition or pseudo inverse)
+ * of {@link References}.
+ * <p>
+ * Recurring designs (e.g. the same mask layout measured again) are recognized by shape and content of the {@link References},
+ * so that a {@link net.raumzeitfalle.registration.solver.spi.SolverAdapter} can skip the factorization.
+ * Designs are looked up by a fingerprint of their shape and a fixed number of sampled rows. Only when fingerprints match,
+ * the complete content is compared against the copy of the design kept with each factorization.
+ * Cached factorizations must not be modified by the caller, as they are shared.
+ * <p>
+ * Each entry holds a copy of the design and its factorization, which may both have the size of the design.
+ * Hence solvers only use a cache when created with a cache capacity.
+ *
+ * @param <F> Type of factorization
+ */
+public final class FactorizationCache<F> {
+
+	private final int capacity;
+
+	private final Map<Design, F> factorizations;
+
+	private long hits = 0;
+
+	private long misses = 0;
+
+	private long evictions = 0;
+
+	/**
+	 * @param capacity maximum number of factorizations kept, must be at least 1
+	 */
+	public FactorizationCache(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Cache capacity must be at least 1.");
+		}
+		this.capacity = capacity;
+		this.factorizations = new LinkedHashMap<Design, F>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Design, F> eldest) {
+				if (size() > FactorizationCache.this.capacity) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns the cached factorization for the given {@link References}.
+	 * If there is none, the factorization is computed and then cached.
+	 *
+	 * @param references {@link References} = design locations
+	 * @param factorization function to compute the factorization in case it is not cached
+	 * @return factorization of the given {@link References}
+	 */
+	public F computeIfAbsent(References references, Function<References, F> factorization) {
+		Objects.requireNonNull(factorization, "factorization function must not be null");
+
+		Design lookup = new Design(references.getArray());
+		synchronized (this) {
+			F cached = factorizations.get(lookup);
+			if (null != cached) {
+				hits++;
+				return cached;
+			}
+			misses++;
+		}
+
+		/*
+		 * Computed outside the lock, concurrent callers may compute the same factorization.
+		 * Then the first one is kept.
+		 */
+		F computed = Objects.requireNonNull(factorization.apply(references), "factorization must not be null");
+		synchronized (this) {
+			F cached = factorizations.putIfAbsent(lookup.copy(), computed);
+			return null != cached ? cached : computed;
+		}
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public synchronized int size() {
+		return factorizations.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Removes all cached factorizations, counters are not reset.
+	 */
+	public synchronized void clear() {
+		factorizations.clear();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "FactorizationCache [capacity=" + capacity + ", size=" + factorizations.size() + ", hits=" + hits + ", misses="
+				+ misses + ", evictions=" + evictions + "]";
+	}
+
+	/*
+	 * Identifies a design by shape and content. The array is only copied when stored in the cache.
+	 */
+	private static final class Design {
+
+		/*
+		 * Number of rows sampled for the fingerprint, so that hashing does not depend on the number of rows.
+		 */
+		private static final int SAMPLED_ROWS = 16;
+
+		private final double[][] matrix;
+
+		private final int hash;
+
+		private Design(double[][] matrix) {
+			this(matrix, fingerprint(matrix));
+		}
+
+		private static int fingerprint(double[][] matrix) {
+			int rows = matrix.length;
+			int hash = 31 * rows + (rows > 0 ? matrix[0].length : 0);
+			if (rows == 0) {
+				return hash;
+			}
+			int step = (rows + SAMPLED_ROWS - 1) / SAMPLED_ROWS;
+			for (int row = 0; row < rows; row += step) {
+				hash = 31 * hash + Arrays.hashCode(matrix[row]);
+			}
+			return 31 * hash + Arrays.hashCode(matrix[rows - 1]);
+		}
+
+		private Design(double[][] matrix, int hash) {
+			this.matrix = matrix;
+			this.hash = hash;
+		}
+
+		private Design copy() {
+			double[][] copy = new double[matrix.length][];
+			for (int row = 0; row < matrix.length; row++) {
+				copy[row] = matrix[row].clone();
+			}
+			return new Design(copy, hash);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+			Design other = (Design) obj;
+			return hash == other.hash && Arrays.deepEquals(matrix, other.matrix);
+		}
+	}
+}
@@ -0,0 +1,177 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.solver;
+
+/**
+ * Row-streaming sink for a least squares problem A*x = b.
+ * <p>
+ * Instead of materializing the m&times;n {@link References} matrix and the {@link Deltas} vector,
+ * each equation (row coefficients and its delta) is accepted one by one and accumulated into
+ * A<sup>T</sup>A and A<sup>T</sup>b. Memory consumption therefore only depends on the number of columns,
+ * not on the number of rows (measurements).
+ * <p>
+ * The square system is provided with unit diagonal (columns scaled by 1/sqrt(A<sup>T</sup>A<sub>ii</sub>)) to keep
+ * its condition number low, {@link #toSolution(double[])} reverts this scaling.
+ *
+ */
+public final class NormalEquations {
+
+	private final int cols;
+
+	private final double[][] normals;
+
+	private final double[] moments;
+
+	private long rows;
+
+	public NormalEquations(int cols) {
+		if (cols < 1) {
+			throw new IllegalArgumentException("Normal equations require at least one column.");
+		}
+		this.cols = cols;
+		this.normals = new double[cols][cols];
+		this.moments = new double[cols];
+		this.rows = 0;
+	}
+
+	/**
+	 * Adds one equation (one row of the design matrix A and its corresponding delta value) to the system.
+	 * The coefficients array is not retained and can be reused by the caller for the next row.
+	 *
+	 * @param coefficients row of the design matrix, length must be equal to the number of columns
+	 * @param delta deviation (right hand side) for this row
+	 */
+	public void accept(double[] coefficients, double delta) {
+		if (coefficients.length != cols) {
+			throw new IllegalArgumentException("Expected " + cols + " coefficients but got " + coefficients.length + ".");
+		}
+		for (int i = 0; i < cols; i++) {
+			double ci = coefficients[i];
+			if (ci == 0.0) {
+				continue;
+			}
+			double[] normal = normals[i];
+			for (int j = i; j < cols; j++) {
+				normal[j] += ci * coefficients[j];
+			}
+			moments[i] += ci * delta;
+		}
+		rows++;
+	}
+
+	/**
+	 * Adds all equations accepted by the other system to this one, e.g. to merge partial systems accumulated in parallel.
+	 * The other system is not modified.
+	 *
+	 * @param other {@link NormalEquations} with the same number of columns
+	 * @return this {@link NormalEquations} containing the equations of both systems
+	 */
+	public NormalEquations combine(NormalEquations other) {
+		if (other.cols != cols) {
+			throw new IllegalArgumentException("Expected " + cols + " columns but got " + other.cols + ".");
+		}
+		for (int i = 0; i < cols; i++) {
+			double[] normal = normals[i];
+			double[] otherNormal = other.normals[i];
+			for (int j = i; j < cols; j++) {
+				normal[j] += otherNormal[j];
+			}
+			moments[i] += other.moments[i];
+		}
+		rows += other.rows;
+		return this;
+	}
+
+	/**
+	 * @return Number of columns (coefficients to be determined).
+	 */
+	public int getColumns() {
+		return cols;
+	}
+
+	/**
+	 * @return Number of equations (rows) accepted so far.
+	 */
+	public long getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return The symmetric and scaled square matrix A<sup>T</sup>A (n&times;n).
+	 */
+	public References getReferences() {
+		double[] scales = scales();
+		double[][] matrix = new double[cols][cols];
+		for (int i = 0; i < cols; i++) {
+			for (int j = i; j < cols; j++) {
+				double value = normals[i][j] * scales[i] * scales[j];
+				matrix[i][j] = value;
+				matrix[j][i] = value;
+			}
+		}
+		return ()->matrix;
+	}
+
+	/**
+	 * @return The scaled right hand side A<sup>T</sup>b (n elements).
+	 */
+	public Deltas getDeltas() {
+		double[] scales = scales();
+		double[] vector = new double[cols];
+		for (int i = 0; i < cols; i++) {
+			vector[i] = moments[i] * scales[i];
+		}
+		return ()->vector;
+	}
+
+	/**
+	 * Converts the coefficients obtained by solving {@link #getReferences()} and {@link #getDeltas()}
+	 * into the solution of the original least squares problem.
+	 *
+	 * @param solved coefficients of the scaled system
+	 * @return {@link Solution} of A*x = b
+	 */
+	public Solution toSolution(double[] solved) {
+		if (solved.length != cols) {
+			throw new IllegalArgumentException("Expected " + cols + " coefficients but got " + solved.length + ".");
+		}
+		double[] scales = scales();
+		double[] coefficients = new double[cols];
+		for (int i = 0; i < cols; i++) {
+			coefficients[i] = solved[i] * scales[i];
+		}
+		return Solutions.fromArray(coefficients);
+	}
+
+	private double[] scales() {
+		double[] scales = new double[cols];
+		for (int i = 0; i < cols; i++) {
+			double diagonal = normals[i][i];
+			scales[i] = diagonal > 0.0 ? 1.0 / Math.sqrt(diagonal) : 1.0;
+		}
+		return scales;
+	}
+
+	@Override
+	public String toString() {
+		return "NormalEquations [cols=" + cols + ", rows=" + rows + "]";
+	}
+
+}
@@ -37,4 +37,12 @@ public interface References {
 	default int rows() {
 		return getArray().length;
 	}
+	
+	/**
+	 * @return The number of unknowns (columns of the design matrix), 0 if there are no rows.
+	 */
+	default int columns() {
+		double[][] array = getArray();
+		return array.length == 0 ? 0 : array[0].length;
+	}
 }
@@ -0,0 +1,327 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.solver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import net.raumzeitfalle.registration.solver.spi.SolverAdapter;
+
+/**
+ * Ranks {@link SolverAdapter} implementations by measuring their execution time on synthetic systems
+ * of equations with 3 unknowns (like the rigid body model or one direction of the affine model) and different numbers of rows.
+ * Implementations which fail or do not reproduce the known solution of the synthetic systems are not ranked.
+ * <p>
+ * The fastest implementation for each number of rows is used to create a {@link SolverRouting}.
+ * Optionally the ranking is stored in a file, so that later JVM starts can skip the measurements.
+ * The ranking file is only used when it has been created for the same set of implementations and numbers of rows.
+ */
+public final class SolverCalibration implements Function<List<SolverAdapter>, SolverRouting> {
+
+	private static final int[] DEFAULT_ROWS = { 8, 1_000, 100_000 };
+
+	private static final int DEFAULT_REPETITIONS = 5;
+
+	private static final int COLUMNS = 3;
+
+	/*
+	 * Maximum residual (A*x-b) accepted, the synthetic systems are consistent hence the residual is zero.
+	 */
+	private static final double TOLERANCE = 1E-9;
+
+	private static final double[] COEFFICIENTS = { 0.010, -0.020, 1.0E-6 };
+
+	private static final double HALF_WIDTH = 75_000.0;
+
+	private static final String IMPLEMENTATIONS = "implementations";
+
+	private static final String ROWS = "rows";
+
+	private static final String RANKING = "ranking.";
+
+	private final Path rankingFile;
+
+	private final int[] rows;
+
+	private final int repetitions;
+
+	/**
+	 * @param rankingFile file to load the ranking from or to store the ranking in, {@code null} disables storing the ranking
+	 */
+	public SolverCalibration(Path rankingFile) {
+		this(rankingFile, DEFAULT_ROWS, DEFAULT_REPETITIONS);
+	}
+
+	/**
+	 * @param rankingFile file to load the ranking from or to store the ranking in, {@code null} disables storing the ranking
+	 * @param rows numbers of rows of the synthetic systems
+	 * @param repetitions number of time measurements per implementation and number of rows, the median is used for ranking
+	 */
+	public SolverCalibration(Path rankingFile, int[] rows, int repetitions) {
+		if (rows.length == 0) {
+			throw new IllegalArgumentException("At least one number of rows is required.");
+		}
+		for (int r : rows) {
+			if (r < COLUMNS) {
+				throw new IllegalArgumentException("The number of rows must be at least " + COLUMNS + ".");
+			}
+		}
+		if (repetitions < 1) {
+			throw new IllegalArgumentException("The number of repetitions must be at least 1.");
+		}
+		this.rankingFile = rankingFile;
+		this.rows = Arrays.stream(rows).sorted().distinct().toArray();
+		this.repetitions = repetitions;
+	}
+
+	/**
+	 * Creates a {@link SolverRouting} which uses the fastest of the given implementations for each number of rows.
+	 * 
+	 * @param implementations {@link SolverAdapter} instances to be ranked
+	 * @return {@link SolverRouting}
+	 */
+	@Override
+	public SolverRouting apply(List<SolverAdapter> implementations) {
+		return createRouting(getRanking(implementations));
+	}
+
+	/**
+	 * Loads the ranking from file, if available and valid. Otherwise all implementations are measured
+	 * and the ranking is stored.
+	 * 
+	 * @param implementations {@link SolverAdapter} instances to be ranked
+	 * @return Class names of accurate implementations, fastest first, for each number of rows
+	 */
+	public Map<Integer, List<String>> getRanking(List<SolverAdapter> implementations) {
+		if (implementations.isEmpty()) {
+			throw new IllegalArgumentException("There is no solver implementation configured.");
+		}
+
+		String classNames = classNames(implementations);
+		Map<Integer, List<String>> ranking = load(classNames);
+		if (null == ranking) {
+			ranking = rank(implementations);
+			store(classNames, ranking);
+		}
+		return ranking;
+	}
+
+	private SolverRouting createRouting(Map<Integer, List<String>> ranking) {
+		List<Integer> sizes = ranking.entrySet()
+									 .stream()
+									 .filter(e -> !e.getValue().isEmpty())
+									 .map(Map.Entry::getKey)
+									 .collect(Collectors.toList());
+
+		if (sizes.isEmpty()) {
+			throw new IllegalArgumentException("None of the solver implementations passed the accuracy check.");
+		}
+
+		SolverRouting.Builder routing = SolverRouting.builder();
+		for (int i = 0; i < sizes.size() - 1; i++) {
+			String fastest = ranking.get(sizes.get(i)).get(0);
+			String next = ranking.get(sizes.get(i + 1)).get(0);
+			if (!fastest.equals(next)) {
+				// switch over between both calibrated sizes
+				long limit = Math.round(Math.sqrt((double) sizes.get(i) * sizes.get(i + 1))) * COLUMNS;
+				routing.upTo(limit, fastest);
+			}
+		}
+		return routing.otherwise(ranking.get(sizes.get(sizes.size() - 1)).get(0)).build();
+	}
+
+	private Map<Integer, List<String>> rank(List<SolverAdapter> implementations) {
+		Map<Integer, List<String>> ranking = new TreeMap<>();
+		for (int r : rows) {
+			ranking.put(r, rank(implementations, r));
+		}
+		return ranking;
+	}
+
+	private List<String> rank(List<SolverAdapter> implementations, int r) {
+		List<Timing> timings = new ArrayList<>(implementations.size());
+		for (SolverAdapter solver : implementations) {
+			long[] durations = new long[repetitions];
+			/*
+			 * The first run is used for warm up. Each run uses a different design,
+			 * so that solvers caching factorizations cannot benefit from previous runs.
+			 */
+			boolean accurate = true;
+			for (int repetition = 0; repetition <= repetitions && accurate; repetition++) {
+				double[][] design = createDesign(r, 31L * r + repetition);
+				double[] deltas = createDeltas(design);
+				long start = System.nanoTime();
+				Solution solution = solve(solver, design, deltas);
+				long duration = System.nanoTime() - start;
+				accurate = isAccurate(solution, design, deltas);
+				if (repetition > 0) {
+					durations[repetition - 1] = duration;
+				}
+			}
+			if (accurate) {
+				Arrays.sort(durations);
+				timings.add(new Timing(solver.getClass().getName(), durations[durations.length / 2]));
+			}
+		}
+		return timings.stream()
+					  .sorted(Comparator.comparingLong(t -> t.duration))
+					  .map(t -> t.className)
+					  .collect(Collectors.toList());
+	}
+
+	private Solution solve(SolverAdapter solver, double[][] design, double[] deltas) {
+		try {
+			return solver.solve(() -> design, () -> deltas);
+		} catch (RuntimeException e) {
+			return null;
+		}
+	}
+
+	private boolean isAccurate(Solution solution, double[][] design, double[] deltas) {
+		if (null == solution) {
+			return false;
+		}
+		for (int row = 0; row < design.length; row++) {
+			double predicted = 0.0;
+			for (int col = 0; col < COLUMNS; col++) {
+				predicted += design[row][col] * solution.get(col);
+			}
+			if (!(Math.abs(predicted - deltas[row]) <= TOLERANCE)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Rigid body design, X rows: [1, 0, -y], Y rows: [0, 1, x]
+	 */
+	private static double[][] createDesign(int r, long seed) {
+		Random random = new Random(seed);
+		double[][] design = new double[r][COLUMNS];
+		for (int row = 0; row < r; row++) {
+			double location = HALF_WIDTH * (2.0 * random.nextDouble() - 1.0);
+			design[row][row % 2] = 1.0;
+			design[row][2] = row % 2 == 0 ? -location : location;
+		}
+		return design;
+	}
+
+	private static double[] createDeltas(double[][] design) {
+		double[] deltas = new double[design.length];
+		for (int row = 0; row < design.length; row++) {
+			for (int col = 0; col < COLUMNS; col++) {
+				deltas[row] += design[row][col] * COEFFICIENTS[col];
+			}
+		}
+		return deltas;
+	}
+
+	private String classNames(List<SolverAdapter> implementations) {
+		return implementations.stream()
+							  .map(s -> s.getClass().getName())
+							  .sorted()
+							  .collect(Collectors.joining(","));
+	}
+
+	private String rowsAsString() {
+		return Arrays.stream(rows).mapToObj(Integer::toString).collect(Collectors.joining(","));
+	}
+
+	private Map<Integer, List<String>> load(String classNames) {
+		if (null == rankingFile || !Files.isReadable(rankingFile)) {
+			return null;
+		}
+
+		Properties properties = new Properties();
+		try (InputStream in = Files.newInputStream(rankingFile)) {
+			properties.load(in);
+		} catch (IOException | IllegalArgumentException e) {
+			// unreadable ranking, calibrate again
+			return null;
+		}
+
+		if (!classNames.equals(properties.getProperty(IMPLEMENTATIONS))
+				|| !rowsAsString().equals(properties.getProperty(ROWS))) {
+			return null;
+		}
+
+		Map<Integer, List<String>> ranking = new TreeMap<>();
+		for (int r : rows) {
+			String ranked = properties.getProperty(RANKING + r);
+			if (null == ranked) {
+				return null;
+			}
+			ranking.put(r, ranked.isEmpty() ? new ArrayList<>() : Arrays.asList(ranked.split(",")));
+		}
+		return ranking;
+	}
+
+	private void store(String classNames, Map<Integer, List<String>> ranking) {
+		if (null == rankingFile) {
+			return;
+		}
+
+		Properties properties = new Properties();
+		properties.setProperty(IMPLEMENTATIONS, classNames);
+		properties.setProperty(ROWS, rowsAsString());
+		for (Map.Entry<Integer, List<String>> entry : ranking.entrySet()) {
+			properties.setProperty(RANKING + entry.getKey(), String.join(",", entry.getValue()));
+		}
+
+		try {
+			Path parent = rankingFile.toAbsolutePath().getParent();
+			if (null != parent) {
+				Files.createDirectories(parent);
+			}
+			try (OutputStream out = Files.newOutputStream(rankingFile)) {
+				properties.store(out, "Solver ranking, fastest first");
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not write solver ranking to " + rankingFile, e);
+		}
+	}
+
+	private static final class Timing {
+
+		private final String className;
+
+		private final long duration;
+
+		private Timing(String className, long duration) {
+			this.className = className;
+			this.duration = duration;
+		}
+	}
+}
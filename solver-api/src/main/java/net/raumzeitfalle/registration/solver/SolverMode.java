@@ -0,0 +1,40 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.solver;
+
+/**
+ * Describes how systems of equations are handed over to a {@link net.raumzeitfalle.registration.solver.spi.SolverAdapter}.
+ */
+public enum SolverMode {
+
+	/**
+	 * The complete design matrix ({@link References}) and the {@link Deltas} vector are materialized
+	 * and solved as least squares problem (e.g. using QR decomposition). This is the default.
+	 */
+	LEAST_SQUARES,
+
+	/**
+	 * Equations are streamed row by row into {@link NormalEquations}, memory consumption is
+	 * independent of the number of equations. Numerically less robust than {@code LEAST_SQUARES} for
+	 * badly conditioned designs.
+	 */
+	NORMAL_EQUATIONS;
+
+}
@@ -19,7 +19,9 @@
  */
 package net.raumzeitfalle.registration.solver;
 
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.raumzeitfalle.registration.solver.spi.SolverAdapter;
 
@@ -38,9 +40,58 @@ public class SolverProvider {
 	}
 
 	private static String preferredSolverClass = null;
+	
+	/**
+	 * Configures how models hand over their equations to the {@link SolverAdapter}.
+	 * 
+	 * @param mode {@link SolverMode}, {@code null} restores the default ({@link SolverMode#LEAST_SQUARES}).
+	 */
+	public static void setMode(SolverMode mode) {
+		solverMode = null == mode ? SolverMode.LEAST_SQUARES : mode;
+	}
+	
+	private static SolverMode solverMode = SolverMode.LEAST_SQUARES;
+	
+	/**
+	 * Configures a size dependent selection of solvers, see {@link #getSolver(int, int)}.
+	 * 
+	 * @param routing {@link SolverRouting}, {@code null} disables routing so that the preferred solver is used for all systems.
+	 */
+	public static void setRouting(SolverRouting routing) {
+		solverRouting = routing;
+		getInstance().forceRediscovery();
+	}
+	
+	private static SolverRouting solverRouting = null;
+	
+	/**
+	 * Ranks all available implementations by their execution time (see {@link SolverCalibration}) and configures
+	 * the {@link SolverRouting} so that the fastest implementation is used for each problem size.
+	 * 
+	 * @param rankingFile file to store the ranking for later JVM starts, {@code null} to measure each time
+	 * @return {@link SolverRouting} which has been configured
+	 */
+	public static SolverRouting calibrate(Path rankingFile) {
+		return calibrate(new SolverCalibration(rankingFile));
+	}
+	
+	/**
+	 * Ranks all available implementations using the given {@link SolverCalibration} and configures
+	 * the {@link SolverRouting} so that the fastest implementation is used for each problem size.
+	 * 
+	 * @param calibration {@link SolverCalibration}
+	 * @return {@link SolverRouting} which has been configured
+	 */
+	public static SolverRouting calibrate(SolverCalibration calibration) {
+		SolverRouting routing = calibration.apply(getInstance().getAllAvailableImplementations());
+		setRouting(routing);
+		return routing;
+	}
 
 	private SolverAdapter preferredImplementation = null;
 	
+	private final Map<String, Optional<SolverAdapter>> routedImplementations = new ConcurrentHashMap<>();
+	
 	public static synchronized SolverProvider getInstance() {
         if (service == null) {
             service = new SolverProvider();
@@ -66,6 +117,46 @@ public class SolverProvider {
 		return discoveredImplementations;
     }
 	
+	public SolverMode getMode() {
+		return solverMode;
+	}
+	
+	public SolverRouting getRouting() {
+		return solverRouting;
+	}
+	
+	/**
+	 * Provides the {@link SolverAdapter} for a system of the given size according to the configured {@link SolverRouting}.
+	 * Without routing, or when the routed implementation is not available, the preferred solver is used (see {@link #getSolver()}).
+	 * 
+	 * @param rows number of equations
+	 * @param columns number of unknowns
+	 * @return {@link SolverAdapter}
+	 */
+	public SolverAdapter getSolver(int rows, int columns) {
+		SolverRouting routing = solverRouting;
+		if (null == routing) {
+			return getSolver();
+		}
+		
+		String className = routing.select(rows, columns);
+		if (null == className) {
+			return getSolver();
+		}
+		
+		Optional<SolverAdapter> routed = routedImplementations.computeIfAbsent(className, this::findImplementation);
+		if (routed.isPresent()) {
+			return routed.get();
+		}
+		return getSolver();
+	}
+	
+	private Optional<SolverAdapter> findImplementation(String className) {
+		return getAllAvailableImplementations().stream()
+											   .filter(s->s.getClass().getName().equals(className))
+											   .findAny();
+	}
+	
 	public SolverAdapter getSolver() {
 		if (this.preferredImplementation != null) {
 			return this.preferredImplementation;
@@ -98,6 +189,7 @@ public class SolverProvider {
 	
 	private void forceRediscovery() {
 		this.preferredImplementation = null;
+		this.routedImplementations.clear();
 	}
 
 	private SolverAdapter getLastImplementation(List<SolverAdapter> solver) {
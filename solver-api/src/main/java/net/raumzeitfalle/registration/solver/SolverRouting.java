@@ -0,0 +1,152 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import net.raumzeitfalle.registration.solver.spi.SolverAdapter;
+
+/**
+ * Selects a {@link SolverAdapter} implementation depending on the size (rows x columns) of the system to be solved.
+ * <p>
+ * Routes are defined by an upper limit for the number of elements of the design matrix and the class name of the
+ * preferred {@link SolverAdapter}. The first route whose limit is not exceeded is taken:
+ * 
+ * <pre>
+ * SolverRouting routing = SolverRouting.builder()
+ *                             .upTo(1_000, "net.raumzeitfalle.registration.analytic.AnalyticSolver")
+ *                             .upTo(3_000_000, "net.raumzeitfalle.jama.Solver")
+ *                             .otherwise("net.raumzeitfalle.registration.jblas.JblasSolver")
+ *                             .build();
+ *
+ * SolverProvider.setRouting(routing);
+ * </pre>
+ * 
+ * When no route matches or the selected implementation is not available, {@link SolverProvider} uses its preferred solver.
+ */
+public final class SolverRouting {
+
+	public static SolverRouting.Builder builder() {
+		return new Builder();
+	}
+
+	private final List<Route> routes;
+
+	private final String otherwise;
+
+	private SolverRouting(List<Route> routes, String otherwise) {
+		this.routes = Collections.unmodifiableList(new ArrayList<>(routes));
+		this.otherwise = otherwise;
+	}
+
+	/**
+	 * @param rows number of equations
+	 * @param columns number of unknowns
+	 * @return class name of the {@link SolverAdapter} to be used for a system of the given size or {@code null} if there is no route
+	 */
+	public String select(int rows, int columns) {
+		long elements = (long) rows * columns;
+		for (Route route : routes) {
+			if (elements <= route.limit) {
+				return route.className;
+			}
+		}
+		return otherwise;
+	}
+
+	/**
+	 * @return all class names used by this routing in order of increasing system size
+	 */
+	public List<String> getClassNames() {
+		List<String> classNames = new ArrayList<>(routes.size() + 1);
+		for (Route route : routes) {
+			classNames.add(route.className);
+		}
+		if (null != otherwise) {
+			classNames.add(otherwise);
+		}
+		return classNames;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("SolverRouting [");
+		for (Route route : routes) {
+			builder.append("elements<=").append(route.limit).append(": ").append(route.className).append(", ");
+		}
+		return builder.append("otherwise: ").append(otherwise).append("]").toString();
+	}
+
+	private static final class Route {
+
+		private final long limit;
+
+		private final String className;
+
+		private Route(long limit, String className) {
+			this.limit = limit;
+			this.className = className;
+		}
+	}
+
+	public static class Builder {
+
+		private final List<Route> routes = new ArrayList<>();
+
+		private String otherwise = null;
+
+		private Builder() {
+			/* use SolverRouting.builder() */
+		}
+
+		/**
+		 * @param elements maximum number of elements (rows x columns) of the design matrix, must be greater than the limit of the previous route
+		 * @param className class name of the {@link SolverAdapter} to be used up to the given size
+		 * @return {@link SolverRouting.Builder}
+		 */
+		public SolverRouting.Builder upTo(long elements, String className) {
+			Objects.requireNonNull(className, "className must not be null.");
+			if (elements < 1) {
+				throw new IllegalArgumentException("The number of elements must be at least 1.");
+			}
+			if (!routes.isEmpty() && elements <= routes.get(routes.size() - 1).limit) {
+				throw new IllegalArgumentException("Routes must be given in order of increasing number of elements.");
+			}
+			routes.add(new Route(elements, className));
+			return this;
+		}
+
+		/**
+		 * @param className class name of the {@link SolverAdapter} to be used for all systems larger than the last limit
+		 * @return {@link SolverRouting.Builder}
+		 */
+		public SolverRouting.Builder otherwise(String className) {
+			this.otherwise = Objects.requireNonNull(className, "className must not be null.");
+			return this;
+		}
+
+		public SolverRouting build() {
+			return new SolverRouting(routes, otherwise);
+		}
+	}
+}
@@ -19,6 +19,8 @@
  */
 package net.raumzeitfalle.registration.solver.spi;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.BiFunction;
 
 import net.raumzeitfalle.registration.solver.*;
@@ -57,4 +59,38 @@ public interface SolverAdapter extends BiFunction<References, Deltas, Solution>
 		return solve(t, u);
 	}
 	
+	/**
+	 * Solves a least squares problem which has been accumulated row by row into {@link NormalEquations}.
+	 * The default implementation hands over the (small and square) normal matrix to {@code solve(References, Deltas)}.
+	 * Implementations may override this to utilize a dedicated symmetric solver (e.g. Cholesky decomposition).
+	 * 
+	 * @param equations {@link NormalEquations} with all equations accumulated
+	 * @return {@link Solution} as a vector with the coefficients of the model, the length of the vector equals the number of columns.
+	 */
+	public default Solution solve(NormalEquations equations) {
+		Solution solved = solve(equations.getReferences(), equations.getDeltas());
+		double[] coefficients = new double[equations.getColumns()];
+		for (int i = 0; i < coefficients.length; i++) {
+			coefficients[i] = solved.get(i);
+		}
+		return equations.toSolution(coefficients);
+	}
+	
+	/**
+	 * Solves several least squares problems which share the same {@link References} (e.g. repeated measurements of one layout).
+	 * The default implementation solves each problem independently. 
+	 * Implementations may override this to decompose the {@link References} only once and to reuse the decomposition for all {@link Deltas}.
+	 * 
+	 * @param references {@link References} = design locations, shared by all problems
+	 * @param deltas List of {@link Deltas}, each with as many rows as the {@link References}
+	 * @return List of {@link Solution} in the order of the given {@link Deltas}
+	 */
+	public default List<Solution> solveAll(References references, List<? extends Deltas> deltas) {
+		List<Solution> solutions = new ArrayList<>(deltas.size());
+		for (Deltas deviations : deltas) {
+			solutions.add(solve(references, deviations));
+		}
+		return solutions;
+	}
+	
 }
@@ -0,0 +1,170 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.solver;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+class FactorizationCacheTest {
+
+	private final AtomicInteger factorizations = new AtomicInteger(0);
+
+	private final Function<References, String> factorization = r -> "factorization-" + factorizations.incrementAndGet();
+
+	@Test
+	void recurringDesign_isHit() {
+		
+		FactorizationCache<String> classUnderTest = new FactorizationCache<>(4);
+		
+		double[][] design = { { 1.0, 0.0 }, { 0.0, 1.0 }, { 1.0, 1.0 } };
+		double[][] sameContent = { { 1.0, 0.0 }, { 0.0, 1.0 }, { 1.0, 1.0 } };
+		
+		String first = classUnderTest.computeIfAbsent(() -> design, factorization);
+		String second = classUnderTest.computeIfAbsent(() -> sameContent, factorization);
+		
+		assertAll(
+				() -> assertEquals("factorization-1", first),
+				() -> assertSame(first, second),
+				() -> assertEquals(1, factorizations.get(), "number of factorizations"),
+				() -> assertEquals(1, classUnderTest.getHits(), "hits"),
+				() -> assertEquals(1, classUnderTest.getMisses(), "misses"),
+				() -> assertEquals(0, classUnderTest.getEvictions(), "evictions"),
+				() -> assertEquals(1, classUnderTest.size(), "size")
+				);
+	}
+
+	@Test
+	void differentShape_isMiss() {
+		
+		FactorizationCache<String> classUnderTest = new FactorizationCache<>(4);
+		
+		double[][] design = { { 1.0, 0.0, 1.0, 0.0 } };
+		double[][] reshaped = { { 1.0, 0.0 }, { 1.0, 0.0 } };
+		
+		classUnderTest.computeIfAbsent(() -> design, factorization);
+		classUnderTest.computeIfAbsent(() -> reshaped, factorization);
+		
+		assertAll(
+				() -> assertEquals(0, classUnderTest.getHits(), "hits"),
+				() -> assertEquals(2, classUnderTest.getMisses(), "misses"),
+				() -> assertEquals(2, classUnderTest.size(), "size")
+				);
+	}
+
+	@Test
+	void modifiedDesign_isMiss() {
+		
+		FactorizationCache<String> classUnderTest = new FactorizationCache<>(4);
+		
+		double[][] design = { { 1.0, 0.0 }, { 0.0, 1.0 } };
+		
+		classUnderTest.computeIfAbsent(() -> design, factorization);
+		design[1][1] = 2.0;
+		String modified = classUnderTest.computeIfAbsent(() -> design, factorization);
+		
+		assertAll(
+				() -> assertEquals("factorization-2", modified),
+				() -> assertEquals(0, classUnderTest.getHits(), "hits"),
+				() -> assertEquals(2, classUnderTest.getMisses(), "misses")
+				);
+	}
+
+	@Test
+	void differenceInRowNotSampled_isMiss() {
+		
+		FactorizationCache<String> classUnderTest = new FactorizationCache<>(4);
+		
+		double[][] design = new double[100][2];
+		double[][] other = new double[100][2];
+		for (int row = 0; row < design.length; row++) {
+			design[row][0] = row;
+			other[row][0] = row;
+		}
+		// only every 7th row and the last row contribute to the fingerprint
+		other[1][1] = 1.0;
+		
+		classUnderTest.computeIfAbsent(() -> design, factorization);
+		String fromOther = classUnderTest.computeIfAbsent(() -> other, factorization);
+		
+		assertAll(
+				() -> assertEquals("factorization-2", fromOther),
+				() -> assertEquals(0, classUnderTest.getHits(), "hits"),
+				() -> assertEquals(2, classUnderTest.getMisses(), "misses"),
+				() -> assertEquals(2, classUnderTest.size(), "size")
+				);
+	}
+
+	@Test
+	void leastRecentlyUsed_isEvicted() {
+		
+		FactorizationCache<String> classUnderTest = new FactorizationCache<>(2);
+		
+		double[][] a = { { 1.0 } };
+		double[][] b = { { 2.0 } };
+		double[][] c = { { 3.0 } };
+		
+		classUnderTest.computeIfAbsent(() -> a, factorization);
+		classUnderTest.computeIfAbsent(() -> b, factorization);
+		classUnderTest.computeIfAbsent(() -> a, factorization); // b is now least recently used
+		classUnderTest.computeIfAbsent(() -> c, factorization); // evicts b
+		
+		String fromA = classUnderTest.computeIfAbsent(() -> a, factorization);
+		String fromB = classUnderTest.computeIfAbsent(() -> b, factorization);
+		
+		assertAll(
+				() -> assertEquals("factorization-1", fromA),
+				() -> assertEquals("factorization-4", fromB),
+				() -> assertEquals(2, classUnderTest.getHits(), "hits"),
+				() -> assertEquals(4, classUnderTest.getMisses(), "misses"),
+				() -> assertEquals(2, classUnderTest.getEvictions(), "evictions"),
+				() -> assertEquals(2, classUnderTest.size(), "size")
+				);
+	}
+
+	@Test
+	void clear() {
+		
+		FactorizationCache<String> classUnderTest = new FactorizationCache<>(2);
+		
+		double[][] design = { { 1.0 } };
+		classUnderTest.computeIfAbsent(() -> design, factorization);
+		classUnderTest.clear();
+		classUnderTest.computeIfAbsent(() -> design, factorization);
+		
+		assertAll(
+				() -> assertEquals(1, classUnderTest.size(), "size"),
+				() -> assertEquals(2, classUnderTest.getMisses(), "misses"),
+				() -> assertEquals(0, classUnderTest.getEvictions(), "evictions")
+				);
+	}
+
+	@Test
+	void capacity_mustBePositive() {
+		
+		Throwable t = assertThrows(IllegalArgumentException.class, () -> new FactorizationCache<String>(0));
+		
+		assertEquals("Cache capacity must be at least 1.", t.getMessage());
+	}
+
+}
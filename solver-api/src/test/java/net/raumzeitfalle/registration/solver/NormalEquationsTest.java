@@ -0,0 +1,142 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.solver;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import net.raumzeitfalle.registration.solver.spi.SolverAdapter;
+
+class NormalEquationsTest {
+	
+	private static final double TOLERANCE = 1E-12;
+
+	@Test
+	void accumulation() {
+		
+		NormalEquations classUnderTest = new NormalEquations(2);
+		
+		classUnderTest.accept(new double[] {1.0, 2.0}, 3.0);
+		classUnderTest.accept(new double[] {1.0, 4.0}, 5.0);
+		
+		double[][] normals = classUnderTest.getReferences().getArray();
+		double[] moments = classUnderTest.getDeltas().getArray();
+		
+		double s0 = 1/Math.sqrt(2.0);
+		double s1 = 1/Math.sqrt(20.0);
+		
+		assertAll(
+				()->assertEquals(2, classUnderTest.getRows(), "row count"),
+				()->assertEquals(2, classUnderTest.getColumns(), "column count"),
+				()->assertEquals(1.0, normals[0][0], TOLERANCE, "unit diagonal"),
+				()->assertEquals(1.0, normals[1][1], TOLERANCE, "unit diagonal"),
+				()->assertEquals(6.0*s0*s1, normals[0][1], TOLERANCE, "scaled off diagonal"),
+				()->assertEquals(normals[0][1], normals[1][0], "symmetry"),
+				()->assertEquals(8.0*s0, moments[0], TOLERANCE, "scaled right hand side"),
+				()->assertEquals(26.0*s1, moments[1], TOLERANCE, "scaled right hand side")
+				);
+	}
+	
+	@Test
+	void solveUsingDefaultAdapterMethod() {
+		
+		// y = 1 + 0.5 * x
+		NormalEquations equations = new NormalEquations(2);
+		equations.accept(new double[] {1.0, 0.0}, 1.0);
+		equations.accept(new double[] {1.0, 2.0}, 2.0);
+		equations.accept(new double[] {1.0, 4.0}, 3.0);
+		
+		SolverAdapter cramer = (r,d) -> {
+			double[][] a = r.getArray();
+			double[] b = d.getArray();
+			double det = a[0][0]*a[1][1] - a[0][1]*a[1][0];
+			return Solutions.fromArray(new double[] {
+					(b[0]*a[1][1] - a[0][1]*b[1])/det,
+					(a[0][0]*b[1] - b[0]*a[1][0])/det });
+		};
+		
+		Solution solution = cramer.solve(equations);
+		
+		assertAll(
+				()->assertEquals(1.0, solution.get(0), TOLERANCE, "offset"),
+				()->assertEquals(0.5, solution.get(1), TOLERANCE, "slope")
+				);
+	}
+	
+	@Test
+	void zeroColumnsAreNotScaled() {
+		
+		NormalEquations classUnderTest = new NormalEquations(2);
+		classUnderTest.accept(new double[] {0.0, 2.0}, 1.0);
+		
+		Solution solution = classUnderTest.toSolution(new double[] {3.0, 1.0});
+		
+		assertEquals(3.0, solution.get(0), TOLERANCE);
+		assertEquals(0.5, solution.get(1), TOLERANCE);
+	}
+	
+	@Test
+	void combine() {
+		
+		NormalEquations expected = new NormalEquations(2);
+		expected.accept(new double[] {1.0, 2.0}, 3.0);
+		expected.accept(new double[] {1.0, 4.0}, 5.0);
+		expected.accept(new double[] {0.0, 3.0}, -1.0);
+		
+		NormalEquations classUnderTest = new NormalEquations(2);
+		classUnderTest.accept(new double[] {1.0, 2.0}, 3.0);
+		
+		NormalEquations other = new NormalEquations(2);
+		other.accept(new double[] {1.0, 4.0}, 5.0);
+		other.accept(new double[] {0.0, 3.0}, -1.0);
+		
+		assertSame(classUnderTest, classUnderTest.combine(other));
+		
+		double[][] normals = classUnderTest.getReferences().getArray();
+		double[][] expectedNormals = expected.getReferences().getArray();
+		double[] moments = classUnderTest.getDeltas().getArray();
+		double[] expectedMoments = expected.getDeltas().getArray();
+		
+		assertAll(
+				()->assertEquals(3, classUnderTest.getRows(), "row count"),
+				()->assertEquals(2, other.getRows(), "other system not modified"),
+				()->assertEquals(expectedNormals[0][1], normals[0][1], TOLERANCE),
+				()->assertEquals(expectedNormals[1][0], normals[1][0], TOLERANCE),
+				()->assertEquals(expectedMoments[0], moments[0], TOLERANCE),
+				()->assertEquals(expectedMoments[1], moments[1], TOLERANCE)
+				);
+		
+		Throwable wrongColumns = assertThrows(IllegalArgumentException.class, ()->classUnderTest.combine(new NormalEquations(3)));
+		assertEquals("Expected 2 columns but got 3.", wrongColumns.getMessage());
+	}
+	
+	@Test
+	void illegalArguments() {
+		
+		Throwable noColumns = assertThrows(IllegalArgumentException.class, ()->new NormalEquations(0));
+		assertEquals("Normal equations require at least one column.", noColumns.getMessage());
+		
+		NormalEquations classUnderTest = new NormalEquations(3);
+		Throwable wrongRow = assertThrows(IllegalArgumentException.class, ()->classUnderTest.accept(new double[2], 1.0));
+		assertEquals("Expected 3 coefficients but got 2.", wrongRow.getMessage());
+	}
+
+}
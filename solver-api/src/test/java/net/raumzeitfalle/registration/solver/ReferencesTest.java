@@ -43,6 +43,7 @@ class ReferencesTest {
 		
 		assertAll(
 				()->assertEquals(8, references.rows(), "row count"),
+				()->assertEquals(6, references.columns(), "column count"),
 				()->assertArrayEquals(design, references.getArray(), "design arrays must be equal")
 				);
 	}
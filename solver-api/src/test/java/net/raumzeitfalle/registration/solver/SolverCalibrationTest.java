@@ -0,0 +1,224 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.solver;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.raumzeitfalle.registration.solver.spi.SolverAdapter;
+
+class SolverCalibrationTest {
+
+	private static final int[] ROWS = { 8, 100 };
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void ranking() {
+
+		SolverCalibration classUnderTest = new SolverCalibration(null, ROWS, 3);
+
+		List<SolverAdapter> implementations = Arrays.asList(new SlowSolver(), new ZeroSolver(), new FastSolver(), new FailingSolver());
+		Map<Integer, List<String>> ranking = classUnderTest.getRanking(implementations);
+
+		List<String> expected = Arrays.asList(FastSolver.class.getName(), SlowSolver.class.getName());
+
+		assertAll(
+				() -> assertEquals(expected, ranking.get(8), "8 rows"),
+				() -> assertEquals(expected, ranking.get(100), "100 rows"),
+				() -> assertEquals(2, ranking.size())
+				);
+	}
+
+	@Test
+	void routing() {
+
+		SolverCalibration classUnderTest = new SolverCalibration(null, ROWS, 3);
+
+		SolverRouting routing = classUnderTest.apply(Arrays.asList(new SlowSolver(), new FastSolver()));
+
+		assertAll(
+				() -> assertEquals(Arrays.asList(FastSolver.class.getName()), routing.getClassNames()),
+				() -> assertEquals(FastSolver.class.getName(), routing.select(4, 3)),
+				() -> assertEquals(FastSolver.class.getName(), routing.select(100_000, 3))
+				);
+	}
+
+	@Test
+	void rankingFile_isReused() throws Exception {
+
+		Path rankingFile = tempDir.resolve("calibration").resolve("ranking.properties");
+		SolverCalibration classUnderTest = new SolverCalibration(rankingFile, ROWS, 3);
+
+		FastSolver fast = new FastSolver();
+		SlowSolver slow = new SlowSolver();
+		Map<Integer, List<String>> ranking = classUnderTest.getRanking(Arrays.asList(slow, fast));
+		int solved = fast.solved;
+
+		Map<Integer, List<String>> reloaded = new SolverCalibration(rankingFile, ROWS, 3).getRanking(Arrays.asList(fast, slow));
+
+		assertAll(
+				() -> assertTrue(Files.exists(rankingFile), "ranking file must be created"),
+				() -> assertEquals(8, solved, "warm up and 3 repetitions for 2 sizes"),
+				() -> assertEquals(solved, fast.solved, "no further measurements"),
+				() -> assertEquals(ranking, reloaded)
+				);
+	}
+
+	@Test
+	void rankingFile_isIgnoredForOtherImplementations() {
+
+		Path rankingFile = tempDir.resolve("ranking.properties");
+
+		new SolverCalibration(rankingFile, ROWS, 3).getRanking(Arrays.asList(new FastSolver(), new SlowSolver()));
+
+		FastSolver fast = new FastSolver();
+		Map<Integer, List<String>> ranking = new SolverCalibration(rankingFile, ROWS, 3).getRanking(Arrays.asList(fast));
+
+		assertAll(
+				() -> assertEquals(8, fast.solved, "calibration must be repeated"),
+				() -> assertEquals(Arrays.asList(FastSolver.class.getName()), ranking.get(100))
+				);
+	}
+
+	@Test
+	void rankingFile_isIgnoredForOtherRows() {
+
+		Path rankingFile = tempDir.resolve("ranking.properties");
+
+		new SolverCalibration(rankingFile, ROWS, 3).getRanking(Arrays.asList(new FastSolver()));
+
+		FastSolver fast = new FastSolver();
+		new SolverCalibration(rankingFile, new int[] { 8 }, 3).getRanking(Arrays.asList(fast));
+
+		assertEquals(4, fast.solved, "calibration must be repeated");
+	}
+
+	@Test
+	void noAccurateImplementation() {
+
+		SolverCalibration classUnderTest = new SolverCalibration(null, ROWS, 3);
+		List<SolverAdapter> implementations = Arrays.asList(new ZeroSolver(), new FailingSolver());
+
+		Throwable t = assertThrows(IllegalArgumentException.class, () -> classUnderTest.apply(implementations));
+
+		assertEquals("None of the solver implementations passed the accuracy check.", t.getMessage());
+	}
+
+	@Test
+	void noImplementation() {
+
+		SolverCalibration classUnderTest = new SolverCalibration(null);
+		List<SolverAdapter> implementations = Arrays.asList();
+
+		Throwable t = assertThrows(IllegalArgumentException.class, () -> classUnderTest.apply(implementations));
+
+		assertEquals("There is no solver implementation configured.", t.getMessage());
+	}
+
+	@Test
+	void invalidConfiguration() {
+
+		Throwable rows = assertThrows(IllegalArgumentException.class, () -> new SolverCalibration(null, new int[] { 2 }, 3));
+		Throwable none = assertThrows(IllegalArgumentException.class, () -> new SolverCalibration(null, new int[0], 3));
+		Throwable repetitions = assertThrows(IllegalArgumentException.class, () -> new SolverCalibration(null, ROWS, 0));
+
+		assertAll(
+				() -> assertEquals("The number of rows must be at least 3.", rows.getMessage()),
+				() -> assertEquals("At least one number of rows is required.", none.getMessage()),
+				() -> assertEquals("The number of repetitions must be at least 1.", repetitions.getMessage())
+				);
+	}
+
+	/*
+	 * Solves the normal equations with 3 unknowns using Cramer's rule.
+	 */
+	static class FastSolver implements SolverAdapter {
+
+		int solved = 0;
+
+		@Override
+		public Solution solve(References references, Deltas deltas) {
+			solved++;
+			double[][] design = references.getArray();
+			NormalEquations equations = new NormalEquations(3);
+			for (int row = 0; row < design.length; row++) {
+				equations.accept(design[row], deltas.getArray()[row]);
+			}
+			double[][] a = equations.getReferences().getArray();
+			double[] b = equations.getDeltas().getArray();
+
+			double det = determinant(a[0], a[1], a[2]);
+			double[] x = new double[3];
+			for (int col = 0; col < 3; col++) {
+				double[][] replaced = { a[0].clone(), a[1].clone(), a[2].clone() };
+				for (int row = 0; row < 3; row++) {
+					replaced[row][col] = b[row];
+				}
+				x[col] = determinant(replaced[0], replaced[1], replaced[2]) / det;
+			}
+			return equations.toSolution(x);
+		}
+
+		private static double determinant(double[] r0, double[] r1, double[] r2) {
+			return r0[0] * (r1[1] * r2[2] - r1[2] * r2[1])
+				 - r0[1] * (r1[0] * r2[2] - r1[2] * r2[0])
+				 + r0[2] * (r1[0] * r2[1] - r1[1] * r2[0]);
+		}
+	}
+
+	static class SlowSolver extends FastSolver {
+
+		@Override
+		public Solution solve(References references, Deltas deltas) {
+			try {
+				Thread.sleep(2);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return super.solve(references, deltas);
+		}
+	}
+
+	static class ZeroSolver implements SolverAdapter {
+
+		@Override
+		public Solution solve(References references, Deltas deltas) {
+			return Solutions.fromArray(new double[3]);
+		}
+	}
+
+	static class FailingSolver implements SolverAdapter {
+
+		@Override
+		public Solution solve(References references, Deltas deltas) {
+			throw new ArithmeticException("Matrix is singular.");
+		}
+	}
+}
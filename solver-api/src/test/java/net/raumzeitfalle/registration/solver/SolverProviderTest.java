@@ -36,6 +36,11 @@ class SolverProviderTest {
 		SolverProvider.setPreferredImplementation(null);
 	}
 	
+	@AfterEach
+	void cleanup() {
+		SolverProvider.setRouting(null);
+	}
+	
 	@Test
 	void getAllAvailableImplementations() {
 		
@@ -64,5 +69,16 @@ class SolverProviderTest {
 		
 		assertEquals("There is no solver with class [myCustomSolverClass] configured.", t.getMessage());
 	}
+	
+	@Test
+	void getSolver_routedSolverNotAvailable() {
+		SolverProvider.setRouting(SolverRouting.builder().otherwise("myCustomSolverClass").build());
+		
+		Throwable t = assertThrows(IllegalArgumentException.class,
+				()->classUnderTest.getSolver(8, 3));
+		
+		assertEquals("There is no solver implementation configured.", t.getMessage(),
+				"falls back to the preferred solver");
+	}
 
 }
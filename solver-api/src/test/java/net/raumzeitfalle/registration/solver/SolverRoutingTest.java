@@ -0,0 +1,81 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.solver;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class SolverRoutingTest {
+
+	private final SolverRouting classUnderTest = SolverRouting.builder()
+												.upTo(100, "small")
+												.upTo(10_000, "medium")
+												.otherwise("large")
+												.build();
+
+	@Test
+	void select() {
+		assertAll(
+				() -> assertEquals("small",  classUnderTest.select(8, 3)),
+				() -> assertEquals("small",  classUnderTest.select(50, 2), "limit is inclusive"),
+				() -> assertEquals("medium", classUnderTest.select(51, 2)),
+				() -> assertEquals("medium", classUnderTest.select(5000, 2)),
+				() -> assertEquals("large",  classUnderTest.select(5001, 2)),
+				() -> assertEquals("large",  classUnderTest.select(Integer.MAX_VALUE, 6), "no overflow")
+				);
+	}
+
+	@Test
+	void select_withoutOtherwise() {
+		SolverRouting routing = SolverRouting.builder().upTo(100, "small").build();
+
+		assertAll(
+				() -> assertEquals("small", routing.select(10, 10)),
+				() -> assertNull(routing.select(11, 10))
+				);
+	}
+
+	@Test
+	void getClassNames() {
+		assertEquals(Arrays.asList("small", "medium", "large"), classUnderTest.getClassNames());
+	}
+
+	@Test
+	void routes_mustBeOrdered() {
+		SolverRouting.Builder builder = SolverRouting.builder().upTo(100, "small");
+
+		Throwable t = assertThrows(IllegalArgumentException.class, () -> builder.upTo(100, "medium"));
+
+		assertEquals("Routes must be given in order of increasing number of elements.", t.getMessage());
+	}
+
+	@Test
+	void routes_mustHavePositiveLimit() {
+		SolverRouting.Builder builder = SolverRouting.builder();
+
+		Throwable t = assertThrows(IllegalArgumentException.class, () -> builder.upTo(0, "small"));
+
+		assertEquals("The number of elements must be at least 1.", t.getMessage());
+	}
+
+}
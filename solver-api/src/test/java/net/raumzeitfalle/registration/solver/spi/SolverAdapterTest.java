@@ -0,0 +1,71 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.solver.spi;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import net.raumzeitfalle.registration.solver.Deltas;
+import net.raumzeitfalle.registration.solver.Solution;
+import net.raumzeitfalle.registration.solver.Solutions;
+
+class SolverAdapterTest {
+	
+	/*
+	 * Returns the mean of all deltas, references are ignored.
+	 */
+	private final SolverAdapter classUnderTest = (r,d) -> Solutions.fromArray(new double[] { 
+			Arrays.stream(d.getArray()).average().orElse(Double.NaN) });
+
+	@Test
+	void solveAll() {
+		
+		double[][] references = { { 1.0 }, { 1.0 } };
+		
+		List<Deltas> deltas = Arrays.asList(()->new double[] { 1.0, 3.0 }, 
+											()->new double[] { 2.0, 4.0 },
+											()->new double[] { 5.0, 7.0 });
+		
+		List<Solution> solutions = classUnderTest.solveAll(()->references, deltas);
+		
+		assertAll(
+				()->assertEquals(3, solutions.size(), "one solution per deltas"),
+				()->assertEquals(2.0, solutions.get(0).get(0), "first"),
+				()->assertEquals(3.0, solutions.get(1).get(0), "second"),
+				()->assertEquals(6.0, solutions.get(2).get(0), "third")
+				);
+	}
+	
+	@Test
+	void solveAll_withoutDeltas() {
+		
+		double[][] references = { { 1.0 }, { 1.0 } };
+		
+		List<Solution> solutions = classUnderTest.solveAll(()->references, Collections.emptyList());
+		
+		assertTrue(solutions.isEmpty());
+	}
+
+}
@@ -0,0 +1,110 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.solver.testing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import net.raumzeitfalle.registration.solver.Deltas;
+import net.raumzeitfalle.registration.solver.NormalEquations;
+import net.raumzeitfalle.registration.solver.Solution;
+import net.raumzeitfalle.registration.solver.spi.SolverAdapter;
+
+/**
+ * Tests shared by all {@link SolverAdapter} implementations. Each solver module
+ * extends this class and provides the adapter under test.
+ */
+public abstract class SolverAdapterTestBase {
+
+	private static final double TOLERANCE = 1E-11;
+
+	private static final double[][] DESIGN = { 
+			{ -75000.0, 0.0, 0.0, -70000.0, 1.0, 0.0 }, 
+			{ 0.0, -70000.0, 75000.0, 0.0, 0.0, 1.0 },
+			{ -75000.0, 0.0, 0.0, 70000.0, 1.0, 0.0 }, 
+			{ 0.0, 70000.0, 75000.0, 0.0, 0.0, 1.0 },
+			{ 75000.0, 0.0, 0.0, 70000.0, 1.0, 0.0 }, 
+			{ 0.0, 70000.0, -75000.0, 0.0, 0.0, 1.0 },
+			{ 75000.0, 0.0, 0.0, -70000.0, 1.0, 0.0 }, 
+			{ 0.0, -70000.0, -75000.0, 0.0, 0.0, 1.0 } };
+
+	private static final double[] DIFFERENCES = { -0.075, 0.140, -0.075, -0.140, 0.075, -0.140, 0.075, 0.140 };
+
+	/**
+	 * @return the {@link SolverAdapter} under test
+	 */
+	protected abstract SolverAdapter createSolver();
+
+	@Test
+	public void normalEquations() {
+
+		NormalEquations equations = new NormalEquations(6);
+		for (int row = 0; row < DESIGN.length; row++) {
+			equations.accept(DESIGN[row], DIFFERENCES[row]);
+		}
+		
+		Solution solution = createSolver().solve(equations);
+
+		double[] result = { 1.0E-6, -2.0E-6, 0.0, 0.0, 0.0, 0.0 };
+
+		assertAll(() -> assertNotNull(solution, "must not be null"),
+
+				() -> assertEquals(result[0], solution.get(0), TOLERANCE, "scale x"),
+				() -> assertEquals(result[1], solution.get(1), TOLERANCE, "scale y"),
+
+				() -> assertEquals(result[2], solution.get(2), TOLERANCE, "ortho x"),
+				() -> assertEquals(result[3], solution.get(3), TOLERANCE, "ortho y"),
+
+				() -> assertEquals(result[4], solution.get(4), TOLERANCE, "trans x"),
+				() -> assertEquals(result[5], solution.get(5), TOLERANCE, "trans y"));
+
+	}
+
+	@Test
+	public void solveAll() {
+
+		double[] doubled = { -0.150, 0.280, -0.150, -0.280, 0.150, -0.280, 0.150, 0.280 };
+		
+		double[] translated = { 0.010, -0.020, 0.010, -0.020, 0.010, -0.020, 0.010, -0.020 };
+
+		List<Deltas> deltas = Arrays.asList(() -> DIFFERENCES, () -> doubled, () -> translated);
+		
+		List<Solution> solutions = createSolver().solveAll(() -> DESIGN, deltas);
+
+		assertAll(() -> assertEquals(3, solutions.size(), "one solution per deltas"),
+
+				() -> assertEquals( 1.0E-6, solutions.get(0).get(0), TOLERANCE, "scale x"),
+				() -> assertEquals(-2.0E-6, solutions.get(0).get(1), TOLERANCE, "scale y"),
+				
+				() -> assertEquals( 2.0E-6, solutions.get(1).get(0), TOLERANCE, "scale x"),
+				() -> assertEquals(-4.0E-6, solutions.get(1).get(1), TOLERANCE, "scale y"),
+				
+				() -> assertEquals( 0.0,    solutions.get(2).get(0), TOLERANCE, "scale x"),
+				() -> assertEquals( 0.0,    solutions.get(2).get(1), TOLERANCE, "scale y"),
+				() -> assertEquals( 0.010,  solutions.get(2).get(4), TOLERANCE, "trans x"),
+				() -> assertEquals(-0.020,  solutions.get(2).get(5), TOLERANCE, "trans y"));
+
+	}
+
+}
@@ -0,0 +1,96 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import net.raumzeitfalle.registration.DegreesOfFreedom;
+import net.raumzeitfalle.registration.displacement.Displacement;
+
+/**
+ * Compares the detection of distinct design locations by {@link DegreesOfFreedom} with the previous implementation
+ * based on {@code HashSet<Double>}.
+ * <p>
+ * With the {@code grid} layout there are only few distinct locations (square root of the number of sites in each direction),
+ * with the {@code scattered} layout all design locations are distinct.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DegreesOfFreedomBenchmark {
+
+	@Param({ "1000", "100000", "1000000" })
+	private int sites;
+
+	@Param({ "grid", "scattered" })
+	private String layout;
+
+	private List<Displacement> displacements;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		List<Displacement> grid = Masks.create(sites);
+		if ("grid".equalsIgnoreCase(layout)) {
+			displacements = grid;
+			return;
+		}
+
+		Random random = new Random(4711L);
+		displacements = new ArrayList<>(grid.size());
+		for (Displacement d : grid) {
+			double x = d.getX() + random.nextDouble();
+			double y = d.getY() + random.nextDouble();
+			displacements.add(Displacement.at(d.getIndex(), d.getId(), x, y, x + d.dX(), y + d.dY(), d.getCategory()));
+		}
+	}
+
+	@Benchmark
+	public int degreesOfFreedom() {
+		DegreesOfFreedom dof = new DegreesOfFreedom();
+		for (Displacement d : displacements) {
+			dof.accept(d);
+		}
+		return dof.getDegrees();
+	}
+
+	@Benchmark
+	public int hashSetOfDouble() {
+		Set<Double> xLocations = new HashSet<>(1000);
+		Set<Double> yLocations = new HashSet<>(1000);
+		for (Displacement d : displacements) {
+			if (Double.isFinite(d.getXd()))
+				xLocations.add(Double.valueOf(d.getX()));
+
+			if (Double.isFinite(d.getYd()))
+				yLocations.add(Double.valueOf(d.getY()));
+		}
+		return Math.max(xLocations.size(), yLocations.size());
+	}
+}
@@ -0,0 +1,113 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.benchmark;
+
+import java.util.Random;
+
+import net.raumzeitfalle.registration.solver.Deltas;
+import net.raumzeitfalle.registration.solver.References;
+
+/**
+ * Creates reproducible systems of equations with the layout used by the rigid body (3 columns)
+ * and affine (6 columns) models for locations spread over a 150 mm x 140 mm field.
+ * Each location contributes one X and one Y equation.
+ */
+enum Designs {
+
+	/**
+	 * X rows: [1, 0, -y], Y rows: [0, 1, x] (translation x, translation y, rotation)
+	 */
+	RIGID(3) {
+		@Override
+		void setRow(double[] row, boolean isX, double x, double y) {
+			if (isX) {
+				row[0] = 1.0;
+				row[2] = -y;
+			} else {
+				row[1] = 1.0;
+				row[2] = x;
+			}
+		}
+	},
+
+	/**
+	 * X rows: [x, 0, 0, y, 1, 0], Y rows: [0, y, -x, 0, 0, 1] (scale x, scale y, ortho x, ortho y, translation x, translation y)
+	 */
+	AFFINE(6) {
+		@Override
+		void setRow(double[] row, boolean isX, double x, double y) {
+			if (isX) {
+				row[0] = x;
+				row[3] = y;
+				row[4] = 1.0;
+			} else {
+				row[1] = y;
+				row[2] = -x;
+				row[5] = 1.0;
+			}
+		}
+	};
+
+	private static final long SEED = 4711L;
+
+	private static final double HALF_WIDTH = 75_000.0;
+
+	private static final double HALF_HEIGHT = 70_000.0;
+
+	private final int columns;
+
+	private Designs(int columns) {
+		this.columns = columns;
+	}
+
+	abstract void setRow(double[] row, boolean isX, double x, double y);
+
+	int getColumns() {
+		return columns;
+	}
+
+	References references(int locations) {
+		Random random = new Random(SEED);
+		double[][] design = new double[2 * locations][columns];
+		for (int location = 0; location < locations; location++) {
+			double x = HALF_WIDTH * (2.0 * random.nextDouble() - 1.0);
+			double y = HALF_HEIGHT * (2.0 * random.nextDouble() - 1.0);
+			setRow(design[2 * location], true, x, y);
+			setRow(design[2 * location + 1], false, x, y);
+		}
+		return () -> design;
+	}
+
+	/**
+	 * Displacements in the range of +/- 100 nm.
+	 */
+	Deltas deltas(int locations) {
+		Random random = new Random(SEED + 1);
+		double[] deltas = new double[2 * locations];
+		for (int row = 0; row < deltas.length; row++) {
+			deltas[row] = 0.1 * (2.0 * random.nextDouble() - 1.0);
+		}
+		return () -> deltas;
+	}
+
+	static Designs fromString(String model) {
+		return valueOf(model.toUpperCase());
+	}
+}
@@ -0,0 +1,96 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.benchmark;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import net.raumzeitfalle.registration.TransformCorrection;
+import net.raumzeitfalle.registration.alignment.RigidTransform;
+import net.raumzeitfalle.registration.alignment.RigidTransformCalculation;
+import net.raumzeitfalle.registration.displacement.Displacement;
+import net.raumzeitfalle.registration.displacement.DisplacementSummary;
+import net.raumzeitfalle.registration.displacement.DisplacementTable;
+import net.raumzeitfalle.registration.distortions.AffineTransform;
+import net.raumzeitfalle.registration.distortions.AffineTransformCalculation;
+
+/**
+ * Compares a {@link List} of {@link Displacement} objects with a column oriented {@link DisplacementTable} holding the same sites.
+ * <p>
+ * Calculations and summaries iterate the table and create a short lived {@link Displacement} for each site, whereas the
+ * {@link TransformCorrection} of a table only allocates the corrected columns. Run with {@code -prof gc} to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DisplacementTableBenchmark {
+
+	@Param({ "100000", "1000000", "10000000" })
+	private int sites;
+
+	private List<Displacement> displacements;
+
+	private DisplacementTable table;
+
+	private AffineTransform firstOrder;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		displacements = Masks.create(sites);
+		table = DisplacementTable.from(displacements);
+		firstOrder = new AffineTransformCalculation().apply(displacements, d -> true);
+	}
+
+	@Benchmark
+	public RigidTransform alignmentList() {
+		return new RigidTransformCalculation().apply(displacements, d -> true);
+	}
+
+	@Benchmark
+	public RigidTransform alignmentTable() {
+		return new RigidTransformCalculation().apply(table, d -> true);
+	}
+
+	@Benchmark
+	public DisplacementSummary summaryList() {
+		return Displacement.summarize(displacements, d -> true);
+	}
+
+	@Benchmark
+	public DisplacementSummary summaryTable() {
+		return Displacement.summarize(table, d -> true);
+	}
+
+	@Benchmark
+	public Collection<Displacement> correctionList() {
+		return new TransformCorrection().apply(firstOrder, displacements);
+	}
+
+	@Benchmark
+	public Collection<Displacement> correctionTable() {
+		return new TransformCorrection().apply(firstOrder, table);
+	}
+}
@@ -0,0 +1,126 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.benchmark;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import net.raumzeitfalle.registration.TransformCorrection;
+import net.raumzeitfalle.registration.displacement.Category;
+import net.raumzeitfalle.registration.displacement.Displacement;
+import net.raumzeitfalle.registration.displacement.DisplacementSummary;
+import net.raumzeitfalle.registration.distortions.AffineTransform;
+import net.raumzeitfalle.registration.distortions.AffineTransformCalculation;
+import net.raumzeitfalle.registration.firstorder.Alignments;
+import net.raumzeitfalle.registration.firstorder.Compensations;
+import net.raumzeitfalle.registration.firstorder.FirstOrderCorrection;
+import net.raumzeitfalle.registration.firstorder.FirstOrderResult;
+import net.raumzeitfalle.registration.firstorder.FirstOrderSetup;
+import net.raumzeitfalle.registration.solver.SolverProvider;
+
+/**
+ * End to end benchmarks of the image-registration core module, following the steps of the examples
+ * (first order correction, then summary of the corrected displacements) for synthetic masks (see {@link Masks}).
+ * As corrected displacements are only calculated on demand, {@code firstOrderCorrection} measures the parameters only.
+ * <p>
+ * Compensations are given as {@code +} separated list, e.g. {@code scale+ortho}, or {@code none}.
+ * The {@code solver} parameter selects the {@link net.raumzeitfalle.registration.solver.spi.SolverAdapter} used by all calculations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.AverageTime, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FirstOrderBenchmark {
+
+	@Param({ "1000", "10000", "100000", "1000000", "10000000" })
+	private int sites;
+
+	@Param({ "UNALIGNED", "ALL", "SELECTED", "SCANNER_SELECTED" })
+	private Alignments alignment;
+
+	@Param({ "none", "scale", "ortho", "magnification", "scale+ortho" })
+	private String compensations;
+
+	@Param({ "net.raumzeitfalle.jama.Solver" })
+	private String solver;
+
+	private List<Displacement> displacements;
+
+	private FirstOrderSetup setup;
+
+	private AffineTransform firstOrder;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		SolverProvider.setPreferredImplementation(solver);
+
+		displacements = Masks.create(sites);
+		setup = FirstOrderSetup.usingAlignment(alignment)
+							   .selectForAlignment(d -> d.belongsTo(Category.ALIGN))
+							   .compensate(compensations(compensations))
+							   .removeDisplacements(d -> d.belongsTo(Category.INFO_ONLY))
+							   .build();
+
+		firstOrder = new AffineTransformCalculation().apply(displacements, setup.getCalculationSelection());
+	}
+
+	@Benchmark
+	public FirstOrderResult firstOrderCorrection() {
+		return FirstOrderCorrection.using(displacements, setup);
+	}
+
+	@Benchmark
+	public Collection<Displacement> firstOrderCorrectionMaterialized() {
+		return FirstOrderCorrection.using(displacements, setup).materializeDisplacements();
+	}
+
+	@Benchmark
+	public DisplacementSummary summarize() {
+		return Displacement.summarize(displacements, setup.withoutRemovedDisplacements());
+	}
+
+	@Benchmark
+	public DisplacementSummary correctAndSummarize() {
+		FirstOrderResult result = FirstOrderCorrection.using(displacements, setup);
+		return Displacement.summarize(result.getDisplacements(), setup.withoutRemovedDisplacements());
+	}
+
+	@Benchmark
+	public Collection<Displacement> transformCorrection() {
+		return new TransformCorrection().apply(firstOrder, displacements);
+	}
+
+	private static Compensations[] compensations(String compensations) {
+		if ("none".equalsIgnoreCase(compensations)) {
+			return new Compensations[0];
+		}
+		String[] names = compensations.split("\\+");
+		Compensations[] methods = new Compensations[names.length];
+		for (int i = 0; i < names.length; i++) {
+			methods[i] = Compensations.valueOf(names[i].trim().toUpperCase());
+		}
+		return methods;
+	}
+}
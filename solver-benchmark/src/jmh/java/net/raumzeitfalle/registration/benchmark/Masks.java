@@ -0,0 +1,94 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.raumzeitfalle.registration.displacement.Category;
+import net.raumzeitfalle.registration.displacement.Displacement;
+
+/**
+ * Creates reproducible synthetic masks with sites on a regular grid over a 150 mm x 140 mm field.
+ * The measured positions are distorted by a known first order (translation, rotation, scale, ortho)
+ * and a random residual of a few nanometers.
+ * <p>
+ * Every 100th site is an alignment mark ({@link Category#ALIGN}), every 1000th site (with an offset of 500)
+ * is excluded from evaluation ({@link Category#INFO_ONLY}).
+ */
+final class Masks {
+
+	private static final long SEED = 4711L;
+
+	private static final double WIDTH = 150_000.0;
+
+	private static final double HEIGHT = 140_000.0;
+
+	private static final double TRANSLATION_X = 0.010;
+
+	private static final double TRANSLATION_Y = -0.020;
+
+	private static final double ROTATION = 0.1E-6;
+
+	private static final double SCALE_X = 1.0E-6;
+
+	private static final double SCALE_Y = -2.0E-6;
+
+	private static final double ORTHO = 0.5E-6;
+
+	private static final double RESIDUAL = 0.003;
+
+	private Masks() {
+		/* static access only */
+	}
+
+	static List<Displacement> create(int sites) {
+
+		int columns = (int) Math.ceil(Math.sqrt(sites));
+		int rows = (sites + columns - 1) / columns;
+		double pitchX = WIDTH / Math.max(1, columns - 1);
+		double pitchY = HEIGHT / Math.max(1, rows - 1);
+
+		Random random = new Random(SEED);
+		List<Displacement> displacements = new ArrayList<>(sites);
+		for (int index = 0; index < sites; index++) {
+			double x = (index % columns) * pitchX - WIDTH / 2;
+			double y = (index / columns) * pitchY - HEIGHT / 2;
+
+			double dx = TRANSLATION_X + (SCALE_X * x) - (ROTATION + ORTHO) * y + RESIDUAL * random.nextGaussian();
+			double dy = TRANSLATION_Y + (SCALE_Y * y) + ROTATION * x + RESIDUAL * random.nextGaussian();
+
+			displacements.add(Displacement.at(index, index, x, y, x + dx, y + dy, categoryOf(index)));
+		}
+		return displacements;
+	}
+
+	private static Category categoryOf(int index) {
+		if (index % 100 == 0) {
+			return Category.ALIGN;
+		}
+		if (index % 1000 == 500) {
+			return Category.INFO_ONLY;
+		}
+		return Category.REG;
+	}
+
+}
@@ -0,0 +1,93 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import net.raumzeitfalle.registration.RegistrationMoments;
+import net.raumzeitfalle.registration.ReproducibleReduction;
+import net.raumzeitfalle.registration.displacement.Displacement;
+import net.raumzeitfalle.registration.displacement.DoubleStatisticsSummary;
+
+/**
+ * Measures the cost of reproducible reductions (fixed blocks, compensated sums) compared to reductions using streams,
+ * whose results in parallel depend on the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReductionBenchmark {
+
+	@Param({ "1000", "100000", "1000000" })
+	private int sites;
+
+	private List<Displacement> displacements;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		displacements = Masks.create(sites);
+	}
+
+	@Benchmark
+	public double averageStream() {
+		return displacements.stream().mapToDouble(Displacement::getX).filter(Double::isFinite).average().orElse(Double.NaN);
+	}
+
+	@Benchmark
+	public double averageParallelStream() {
+		return displacements.parallelStream().mapToDouble(Displacement::getX).filter(Double::isFinite).average().orElse(Double.NaN);
+	}
+
+	@Benchmark
+	public double averageReproducible() {
+		return Displacement.average(displacements, d -> true, Displacement::getX, true);
+	}
+
+	@Benchmark
+	public DoubleStatisticsSummary summaryStream() {
+		return displacements.stream().collect(DoubleStatisticsSummary.collector(Displacement::dX));
+	}
+
+	@Benchmark
+	public DoubleStatisticsSummary summaryParallelStream() {
+		return displacements.parallelStream().collect(DoubleStatisticsSummary.collector(Displacement::dX));
+	}
+
+	@Benchmark
+	public DoubleStatisticsSummary summaryReproducibleParallel() {
+		return ReproducibleReduction.collect(displacements, DoubleStatisticsSummary.collector(Displacement::dX), true);
+	}
+
+	@Benchmark
+	public RegistrationMoments momentsParallelStream() {
+		return displacements.parallelStream().collect(RegistrationMoments.collector());
+	}
+
+	@Benchmark
+	public RegistrationMoments momentsReproducibleParallel() {
+		return ReproducibleReduction.collect(displacements, RegistrationMoments.collector(), true);
+	}
+}
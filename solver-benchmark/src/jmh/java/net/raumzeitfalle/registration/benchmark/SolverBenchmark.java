@@ -0,0 +1,106 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.*;
+
+import net.raumzeitfalle.jama.Solver;
+import net.raumzeitfalle.registration.jama.JamaSolver;
+import net.raumzeitfalle.registration.ejml.EjmlSolver;
+import net.raumzeitfalle.registration.jblas.JblasSolver;
+import net.raumzeitfalle.registration.la4j.La4jSolver;
+import net.raumzeitfalle.registration.mathcommons.ApacheMathCommonsSolver;
+import net.raumzeitfalle.registration.solver.Deltas;
+import net.raumzeitfalle.registration.solver.References;
+import net.raumzeitfalle.registration.solver.Solution;
+import net.raumzeitfalle.registration.solver.spi.SolverAdapter;
+
+/**
+ * Compares the {@link SolverAdapter} implementations for rigid body (3 columns) and affine (6 columns) systems.
+ * <p>
+ * Throughput and sample time (latency percentiles) are reported, the allocation rate is reported by the GC profiler ({@code -prof gc}).
+ * <ul>
+ * <li>{@code solve}: the system is solved by a new {@link SolverAdapter}, the factorization is always computed.</li>
+ * <li>{@code solveRecurring}: the same {@link SolverAdapter} solves the same design again, so that
+ * solvers with a {@link net.raumzeitfalle.registration.solver.FactorizationCache} can reuse the factorization.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverBenchmark {
+
+	@Param({ "jama", "jama-fork", "ejml", "la4j", "apache-math3", "jblas" })
+	private String backend;
+
+	@Param({ "rigid", "affine" })
+	private String model;
+
+	/*
+	 * Each location contributes one X and one Y equation, hence the systems have 8 to 10^7 rows.
+	 */
+	@Param({ "4", "50", "5000", "500000", "5000000" })
+	private int locations;
+
+	private Supplier<SolverAdapter> solvers;
+
+	private SolverAdapter recurring;
+
+	private References references;
+
+	private Deltas deltas;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Designs design = Designs.fromString(model);
+		references = design.references(locations);
+		deltas = design.deltas(locations);
+		solvers = solvers(backend);
+		recurring = solvers.get();
+	}
+
+	@Benchmark
+	public Solution solve() {
+		return solvers.get().solve(references, deltas);
+	}
+
+	@Benchmark
+	public Solution solveRecurring() {
+		return recurring.solve(references, deltas);
+	}
+
+	private static Supplier<SolverAdapter> solvers(String backend) {
+		switch (backend) {
+			case "jama":         return JamaSolver::new;
+			case "jama-fork":    return Solver::new;
+			case "ejml":         return EjmlSolver::new;
+			case "la4j":         return La4jSolver::new;
+			case "apache-math3": return ApacheMathCommonsSolver::new;
+			case "jblas":        return JblasSolver::new;
+			default: throw new IllegalArgumentException("Unknown solver backend: " + backend);
+		}
+	}
+}
@@ -0,0 +1,106 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.benchmark;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import net.raumzeitfalle.registration.Transform;
+import net.raumzeitfalle.registration.TransformCorrection;
+import net.raumzeitfalle.registration.alignment.RigidTransform;
+import net.raumzeitfalle.registration.displacement.Displacement;
+import net.raumzeitfalle.registration.displacement.DisplacementTable;
+import net.raumzeitfalle.registration.distortions.AffineTransform;
+import net.raumzeitfalle.registration.distortions.AffineTransformCalculation;
+
+/**
+ * Compares the sequential {@link TransformCorrection} with the parallel mode for large collections of displacements.
+ * <p>
+ * The parallel correction runs on a dedicated {@link ForkJoinPool} with the given number of {@code threads}, so that scaling
+ * across cores can be read from the results. Displacements are provided as {@link List} (one object per site) and as
+ * column oriented {@link DisplacementTable}. The correction is the fused first order and alignment correction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransformCorrectionBenchmark {
+
+	@Param({ "1000000", "10000000" })
+	private int sites;
+
+	@Param({ "1", "2", "4", "8" })
+	private int threads;
+
+	private List<Displacement> displacements;
+
+	private DisplacementTable table;
+
+	private Transform correction;
+
+	private ForkJoinPool pool;
+
+	private TransformCorrection sequential;
+
+	private TransformCorrection parallel;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		displacements = Masks.create(sites);
+		table = DisplacementTable.from(displacements);
+		AffineTransform firstOrder = new AffineTransformCalculation().apply(displacements, d -> true);
+		correction = firstOrder.followedBy(RigidTransform.with(0.1, -0.1, 1E-7));
+
+		pool = new ForkJoinPool(threads);
+		sequential = new TransformCorrection();
+		parallel = TransformCorrection.parallel(TransformCorrection.DEFAULT_THRESHOLD, pool);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Benchmark
+	public Collection<Displacement> listSequential() {
+		return sequential.apply(correction, displacements);
+	}
+
+	@Benchmark
+	public Collection<Displacement> listParallel() {
+		return parallel.apply(correction, displacements);
+	}
+
+	@Benchmark
+	public Collection<Displacement> tableSequential() {
+		return sequential.apply(correction, table);
+	}
+
+	@Benchmark
+	public Collection<Displacement> tableParallel() {
+		return parallel.apply(correction, table);
+	}
+}
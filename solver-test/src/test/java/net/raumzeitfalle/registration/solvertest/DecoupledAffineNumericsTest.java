@@ -0,0 +1,140 @@
+/*-
+ * #%L
+ * Image-Registration
+ * %%
+ * Copyright (C) 2019, 2021 Oliver Loeffler, Raumzeitfalle.net
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package net.raumzeitfalle.registration.solvertest;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import net.raumzeitfalle.jama.Solver;
+import net.raumzeitfalle.registration.DifferencesVector;
+import net.raumzeitfalle.registration.Orientations;
+import net.raumzeitfalle.registration.ReferencesMatrix;
+import net.raumzeitfalle.registration.displacement.Displacement;
+import net.raumzeitfalle.registration.distortions.AffineModelEquation;
+import net.raumzeitfalle.registration.distortions.AffineTransform;
+import net.raumzeitfalle.registration.distortions.AffineTransformCalculation;
+import net.raumzeitfalle.registration.solver.Solution;
+import net.raumzeitfalle.registration.solver.SolverMode;
+import net.raumzeitfalle.registration.solver.SolverProvider;
+
+/**
+ * Verifies that solving the X and Y blocks of an affine transform separately yields the 
+ * same results as solving the coupled system with 6 columns. Blocks are only solved separately
+ * for at least 1000 equations (500 sites), the results may then deviate in the last bits.
+ * Smaller systems are still solved with 6 columns and yield identical results.
+ */
+class DecoupledAffineNumericsTest {
+	
+	private static final double TOLERANCE = 1E-11;
+	
+	@BeforeAll
+	public static void prepare() {
+		SolverProvider.setPreferredImplementation(Solver.class.getName());
+	}
+	
+	@AfterEach
+	void cleanup() {
+		SolverProvider.setMode(SolverMode.LEAST_SQUARES);
+	}
+	
+	@Test
+	void smallGrid_identicalToCoupled() {
+		assertSameAsCoupled(displacements(11, 7), 0.0);
+	}
+	
+	@Test
+	void mediumGrid() {
+		assertSameAsCoupled(displacements(31, 21), TOLERANCE);
+	}
+	
+	@Test
+	void largeGrid_solvedConcurrently() {
+		assertSameAsCoupled(displacements(101, 101), TOLERANCE);
+	}
+	
+	@Test
+	void mediumGrid_normalEquations() {
+		SolverProvider.setMode(SolverMode.NORMAL_EQUATIONS);
+		assertSameAsCoupled(displacements(31, 21), TOLERANCE);
+	}
+	
+	private void assertSameAsCoupled(List<Displacement> displacements, double tolerance) {
+		
+		AffineTransform decoupled = new AffineTransformCalculation().apply(displacements, d->true);
+		
+		Solution coupled = solveCoupled(displacements);
+		
+		assertAll(
+			() -> assertEquals(coupled.get(0), decoupled.getScaleX(),       tolerance, "scale x"),
+			() -> assertEquals(coupled.get(1), decoupled.getScaleY(),       tolerance, "scale y"),
+			() -> assertEquals(coupled.get(2), decoupled.getOrthoX(),       tolerance, "ortho x"),
+			() -> assertEquals(coupled.get(3), decoupled.getOrthoY(),       tolerance, "ortho y"),
+			() -> assertEquals(coupled.get(4), decoupled.getTranslationX(), tolerance, "trans x"),
+			() -> assertEquals(coupled.get(5), decoupled.getTranslationY(), tolerance, "trans y"));
+	}
+	
+	private Solution solveCoupled(List<Displacement> displacements) {
+		
+		List<AffineModelEquation> equations = displacements.stream()
+														   .flatMap(AffineModelEquation::from)
+														   .collect(Collectors.toList());
+		
+		ReferencesMatrix references = new ReferencesMatrix(equations.size(), 6);
+		DifferencesVector deltas = new DifferencesVector(equations.size());
+		for (int row = 0; row < equations.size(); row++) {
+			references.set2D(row, equations.get(row), Orientations.XY);
+			deltas.set(row, equations.get(row));
+		}
+		
+		return new Solver().solve(references, deltas);
+	}
+	
+	/*
+	 * Grid centered at (0,0) so that no translation to center is applied in the calculation.
+	 */
+	private List<Displacement> displacements(int columns, int rows) {
+		
+		Random random = new Random(4711);
+		List<Displacement> displacements = new ArrayList<>(columns * rows);
+		
+		int index = 0;
+		for (int column = 0; column < columns; column++) {
+			for (int row = 0; row < rows; row++) {
+				double x = (column - columns / 2) * 1000.0;
+				double y = (row - rows / 2) * 1000.0;
+				double xd = x + 0.010 + x * 1E-6 - y * 2E-6 + random.nextGaussian() * 1E-3;
+				double yd = y - 0.020 + y * 3E-6 + x * 5E-7 + random.nextGaussian() * 1E-3;
+				displacements.add(Displacement.at(index, index, x, y, xd, yd));
+				index++;
+			}
+		}
+		
+		return displacements;
+	}
+}
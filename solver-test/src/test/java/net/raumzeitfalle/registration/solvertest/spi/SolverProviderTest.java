@@ -21,16 +21,25 @@ package net.raumzeitfalle.registration.solvertest.spi;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
+import net.raumzeitfalle.registration.analytic.AnalyticSolver;
 import net.raumzeitfalle.registration.ejml.EjmlSolver;
 import net.raumzeitfalle.registration.mathcommons.ApacheMathCommonsSolver;
 import net.raumzeitfalle.registration.solver.SolverProvider;
+import net.raumzeitfalle.registration.solver.SolverRouting;
 import net.raumzeitfalle.registration.solver.spi.SolverAdapter;
 
 class SolverProviderTest {
 	
 	private SolverProvider classUnderTest;
+	
+	@AfterEach
+	void cleanup() {
+		SolverProvider.setRouting(null);
+		SolverProvider.setPreferredImplementation(null);
+	}
 
 	@Test
 	void unknownSolver_getInstance() {
@@ -92,5 +101,29 @@ class SolverProviderTest {
 		assertNotNull(bySpi);
 
 	}
+	
+	@Test
+	void routing() {
+		
+		SolverProvider.setPreferredImplementation(ApacheMathCommonsSolver.class.getName());
+		SolverProvider.setRouting(SolverRouting.builder()
+										.upTo(100, AnalyticSolver.class.getName())
+										.upTo(10_000, "thisClassDoesNotExist")
+										.otherwise(EjmlSolver.class.getName())
+										.build());
+		
+		classUnderTest = SolverProvider.getInstance();
+		
+		assertAll(
+				()->assertEquals(AnalyticSolver.class, classUnderTest.getSolver(8, 3).getClass(), "small"),
+				()->assertEquals(ApacheMathCommonsSolver.class, classUnderTest.getSolver(1000, 3).getClass(), "not available, preferred solver"),
+				()->assertEquals(EjmlSolver.class, classUnderTest.getSolver(10_000, 6).getClass(), "large"),
+				()->assertSame(classUnderTest.getSolver(10_000, 6), classUnderTest.getSolver(20_000, 6), "cached")
+				);
+		
+		SolverProvider.setRouting(null);
+		
+		assertEquals(ApacheMathCommonsSolver.class, classUnderTest.getSolver(8, 3).getClass(), "no routing");
+	}
 
 }